@@ -0,0 +1,82 @@
+package com.bnovauto.api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRINCIPALS = "principals";
+    public static final String ROUTE_METRICS = "routeMetrics";
+    public static final String REPORT_SLICES = "reportSlices";
+    public static final String VEHICLES = "vehicles";
+    public static final String COMPANIES = "companies";
+    public static final String ROUTES = "routes";
+    public static final String ROLES = "roles";
+
+    @Value("${bnovauto.cache.principals.maximumSize}")
+    private long principalsMaximumSize;
+
+    @Value("${bnovauto.cache.principals.ttlSeconds}")
+    private long principalsTtlSeconds;
+
+    @Value("${bnovauto.cache.routeMetrics.maximumSize}")
+    private long routeMetricsMaximumSize;
+
+    @Value("${bnovauto.cache.reportSlices.maximumSize}")
+    private long reportSlicesMaximumSize;
+
+    @Value("${bnovauto.cache.reportSlices.ttlSeconds}")
+    private long reportSlicesTtlSeconds;
+
+    @Value("${bnovauto.cache.reference.maximumSize}")
+    private long referenceMaximumSize;
+
+    @Value("${bnovauto.cache.reference.ttlSeconds}")
+    private long referenceTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRINCIPALS, Caffeine.newBuilder()
+                .maximumSize(principalsMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(principalsTtlSeconds))
+                .recordStats()
+                .build());
+        // Метрики меняются только вместе с линией маршрута и сбрасываются
+        // явно, поэтому срок жизни не ограничен
+        cacheManager.registerCustomCache(ROUTE_METRICS, Caffeine.newBuilder()
+                .maximumSize(routeMetricsMaximumSize)
+                .recordStats()
+                .build());
+        // Срок жизни ограничивает влияние опоздавшей телеметрии на готовые сутки
+        cacheManager.registerCustomCache(REPORT_SLICES, Caffeine.newBuilder()
+                .maximumSize(reportSlicesMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(reportSlicesTtlSeconds))
+                .recordStats()
+                .build());
+
+        // Справочные сущности сбрасываются сервисами при изменении, срок жизни
+        // страхует от изменений в обход приложения
+        for (String name : new String[] {VEHICLES, COMPANIES, ROUTES, ROLES}) {
+            cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                    .maximumSize(referenceMaximumSize)
+                    .expireAfterWrite(Duration.ofSeconds(referenceTtlSeconds))
+                    .recordStats()
+                    .build());
+        }
+
+        // Сброс записей из сервисов выполняется после фиксации транзакции, иначе
+        // параллельный запрос успеет закэшировать еще не измененные данные
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
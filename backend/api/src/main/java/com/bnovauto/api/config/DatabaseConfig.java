@@ -1,9 +1,14 @@
 package com.bnovauto.api.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -12,6 +17,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.sql.DataSource;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableTransactionManagement
@@ -29,14 +35,102 @@ public class DatabaseConfig {
     @Value("${spring.datasource.driver-class-name}")
     private String driverClassName;
 
+    @Value("${spring.jpa.show-sql:false}")
+    private boolean showSql;
+
+    @Value("${bnovauto.datasource.pool.maximumPoolSize}")
+    private int maximumPoolSize;
+
+    @Value("${bnovauto.datasource.pool.minimumIdle}")
+    private int minimumIdle;
+
+    @Value("${bnovauto.datasource.pool.connectionTimeoutMs}")
+    private long connectionTimeoutMs;
+
+    @Value("${bnovauto.datasource.pool.idleTimeoutMs}")
+    private long idleTimeoutMs;
+
+    @Value("${bnovauto.datasource.pool.maxLifetimeMs}")
+    private long maxLifetimeMs;
+
+    @Value("${bnovauto.datasource.pool.leakDetectionThresholdMs}")
+    private long leakDetectionThresholdMs;
+
+    @Value("${bnovauto.datasource.pool.preparedStatementCacheQueries}")
+    private int preparedStatementCacheQueries;
+
+    @Value("${bnovauto.datasource.analytics.maximumPoolSize}")
+    private int analyticsMaximumPoolSize;
+
+    /**
+     * Основной пул соединений: прием телеметрии и запросы API.
+     * Метрики пула (active, idle, pending, время ожидания соединения) публикуются
+     * Spring Boot Actuator как hikaricp.connections.*
+     */
     @Bean
+    @Primary
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(driverClassName);
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
-        return dataSource;
+        HikariConfig config = createPoolConfig("bnovauto-main", maximumPoolSize);
+        config.setMinimumIdle(minimumIdle);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Отдельный пул только для чтения под отчеты и выгрузки, чтобы длинные
+     * аналитические запросы не занимали соединения приема телеметрии
+     */
+    @Bean
+    public DataSource analyticsDataSource() {
+        HikariConfig config = createPoolConfig("bnovauto-analytics", analyticsMaximumPoolSize);
+        config.setMinimumIdle(1);
+        config.setReadOnly(true);
+        // Выгрузки за длинные периоды законно держат соединение минутами
+        config.setLeakDetectionThreshold(TimeUnit.MINUTES.toMillis(10));
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * JdbcTemplate основного пула для всех записей (прием телеметрии, агрегаты,
+     * отчеты, импорт). Пока объявлен analyticsJdbcTemplate, шаблон Spring Boot
+     * по умолчанию не создается, поэтому основной шаблон объявлен явно.
+     */
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource());
+    }
+
+    /**
+     * Шаблон пула аналитики только для чтения; внедряется с @Qualifier
+     */
+    @Bean
+    public JdbcTemplate analyticsJdbcTemplate(@Qualifier("analyticsDataSource") DataSource analyticsDataSource) {
+        return new JdbcTemplate(analyticsDataSource);
+    }
+
+    @Bean
+    public PlatformTransactionManager analyticsTransactionManager(@Qualifier("analyticsDataSource") DataSource analyticsDataSource) {
+        return new DataSourceTransactionManager(analyticsDataSource);
+    }
+
+    private HikariConfig createPoolConfig(String poolName, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setMaxLifetime(maxLifetimeMs);
+        config.setLeakDetectionThreshold(leakDetectionThresholdMs);
+
+        // Кэш подготовленных выражений на стороне драйвера PostgreSQL
+        config.addDataSourceProperty("prepareThreshold", 3);
+        config.addDataSourceProperty("preparedStatementCacheQueries", preparedStatementCacheQueries);
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", 5);
+        return config;
     }
 
     @Bean
@@ -51,17 +145,21 @@ public class DatabaseConfig {
         Properties properties = new Properties();
         properties.setProperty("hibernate.dialect", "org.hibernate.spatial.dialect.postgis.PostgisPG95Dialect");
         properties.setProperty("hibernate.hbm2ddl.auto", "validate");
-        properties.setProperty("hibernate.show_sql", "true");
-        properties.setProperty("hibernate.format_sql", "true");
+        // Вывод SQL в консоль только для отладки, на нагрузке он сам становится узким местом
+        properties.setProperty("hibernate.show_sql", String.valueOf(showSql));
+        properties.setProperty("hibernate.format_sql", String.valueOf(showSql));
         em.setJpaProperties(properties);
         
         return em;
     }
 
     @Bean
+    @Primary
     public PlatformTransactionManager transactionManager() {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
         transactionManager.setEntityManagerFactory(entityManagerFactory().getObject());
+        // Запросы JdbcTemplate основного пула выполняются в той же транзакции, что и JPA
+        transactionManager.setDataSource(dataSource());
         return transactionManager;
     }
 }
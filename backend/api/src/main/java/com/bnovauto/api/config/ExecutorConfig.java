@@ -0,0 +1,91 @@
+package com.bnovauto.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Потоки для блокирующих фоновых задач (отчеты, запись телеметрии, рассылка).
+ * Режим выбирается тем же свойством spring.threads.virtual.enabled, которое
+ * переводит Tomcat на виртуальные потоки: при включенном режиме каждая задача
+ * получает свой виртуальный поток, иначе используется ограниченный пул
+ * платформенных потоков.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String BLOCKING_TASK_EXECUTOR = "blockingTaskExecutor";
+    public static final String REPORT_TASK_EXECUTOR = "reportTaskExecutor";
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${bnovauto.executor.blocking.poolSize}")
+    private int blockingPoolSize;
+
+    @Value("${bnovauto.executor.blocking.queueCapacity}")
+    private int blockingQueueCapacity;
+
+    @Value("${bnovauto.executor.report.poolSize}")
+    private int reportPoolSize;
+
+    @Value("${bnovauto.executor.report.queueCapacity}")
+    private int reportQueueCapacity;
+
+    @Bean(name = BLOCKING_TASK_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService blockingTaskExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blocking-", 0).factory());
+        }
+
+        // При переполнении очереди задачу выполняет вызывающий поток, это
+        // естественное торможение источника вместо отказа
+        return new ThreadPoolExecutor(blockingPoolSize, blockingPoolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(blockingQueueCapacity), namedThreadFactory("blocking-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Отдельный пул для частей отчетов. Очередь ограничена, и при ее
+     * переполнении задача отклоняется, а не выполняется вызывающим потоком:
+     * иначе части отчета считались бы в потоке HTTP-запроса.
+     */
+    @Bean(name = REPORT_TASK_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService reportTaskExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("report-", 0).factory());
+        }
+
+        return new ThreadPoolExecutor(reportPoolSize, reportPoolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(reportQueueCapacity), namedThreadFactory("report-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Создает поток для долгоживущего фонового цикла
+     *
+     * @param virtual Виртуальный поток вместо платформенного
+     * @param name Имя потока
+     * @param task Тело потока
+     * @return Незапущенный поток
+     */
+    public static Thread newThread(boolean virtual, String name, Runnable task) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).unstarted(task);
+        }
+        return Thread.ofPlatform().name(name).daemon(true).unstarted(task);
+    }
+
+    public static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> newThread(false, prefix + counter.getAndIncrement(), task);
+    }
+}
@@ -0,0 +1,100 @@
+package com.bnovauto.api.config;
+
+import com.bnovauto.api.service.GeometryUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Компактное JSON-представление геометрии JTS. Без него Jackson обходит
+ * Point и LineString как обычные бины (фабрика, огибающая, координаты) и
+ * пишет десятки лишних полей на каждую точку.
+ *
+ * Point пишется как {"latitude":55.75,"longitude":37.61}, LineString как
+ * массив пар [широта, долгота]. Spring Boot регистрирует модуль в общем
+ * ObjectMapper автоматически.
+ */
+@Component
+public class GeometryJsonModule extends SimpleModule {
+
+    public GeometryJsonModule() {
+        super("GeometryJsonModule");
+        addSerializer(Point.class, new PointSerializer());
+        addDeserializer(Point.class, new PointDeserializer());
+        addSerializer(LineString.class, new LineStringSerializer());
+        addDeserializer(LineString.class, new LineStringDeserializer());
+    }
+
+    static final class PointSerializer extends JsonSerializer<Point> {
+        @Override
+        public void serialize(Point point, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            if (point.isEmpty()) {
+                gen.writeNull();
+                return;
+            }
+            gen.writeStartObject();
+            gen.writeNumberField("latitude", point.getY());
+            gen.writeNumberField("longitude", point.getX());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class PointDeserializer extends JsonDeserializer<Point> {
+        @Override
+        public Point deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonNode node = parser.readValueAsTree();
+            JsonNode latitude = node.get("latitude");
+            JsonNode longitude = node.get("longitude");
+            if (latitude == null || longitude == null) {
+                return context.reportInputMismatch(Point.class, "Point requires latitude and longitude");
+            }
+            return GeometryUtils.createPoint(latitude.asDouble(), longitude.asDouble());
+        }
+    }
+
+    static final class LineStringSerializer extends JsonSerializer<LineString> {
+        @Override
+        public void serialize(LineString line, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            int count = line.getNumPoints();
+            gen.writeStartArray(line, count);
+            for (int i = 0; i < count; i++) {
+                Coordinate coordinate = line.getCoordinateN(i);
+                gen.writeStartArray(null, 2);
+                gen.writeNumber(coordinate.y);
+                gen.writeNumber(coordinate.x);
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    static final class LineStringDeserializer extends JsonDeserializer<LineString> {
+        @Override
+        public LineString deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonNode node = parser.readValueAsTree();
+            if (!node.isArray()) {
+                return context.reportInputMismatch(LineString.class, "LineString must be an array of [latitude, longitude]");
+            }
+            Coordinate[] coordinates = new Coordinate[node.size()];
+            for (int i = 0; i < coordinates.length; i++) {
+                JsonNode pair = node.get(i);
+                if (!pair.isArray() || pair.size() < 2) {
+                    return context.reportInputMismatch(LineString.class, "LineString must be an array of [latitude, longitude]");
+                }
+                coordinates[i] = new Coordinate(pair.get(1).asDouble(), pair.get(0).asDouble());
+            }
+            return GeometryUtils.GEOMETRY_FACTORY.createLineString(coordinates);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.bnovauto.api.config;
+
+import brave.sampler.CountingSampler;
+import brave.sampler.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сэмплер трассировки, долю которого можно менять без перезапуска через
+ * эндпоинт /actuator/tracing. Заменяет сэмплер Spring Boot с фиксированной
+ * долей из management.tracing.sampling.probability, которая здесь служит
+ * начальным значением.
+ */
+@Component
+public class RuntimeTracingSampler extends Sampler {
+
+    private volatile float probability;
+    private volatile Sampler delegate;
+
+    public RuntimeTracingSampler(@Value("${management.tracing.sampling.probability:0.0}") float probability) {
+        setProbability(probability);
+    }
+
+    @Override
+    public boolean isSampled(long traceId) {
+        return delegate.isSampled(traceId);
+    }
+
+    public float getProbability() {
+        return probability;
+    }
+
+    public void setProbability(float probability) {
+        if (probability < 0.0f || probability > 1.0f) {
+            throw new IllegalArgumentException("Sampling probability must be between 0 and 1: " + probability);
+        }
+        this.delegate = CountingSampler.create(probability);
+        this.probability = probability;
+    }
+}
@@ -0,0 +1,12 @@
+package com.bnovauto.api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Периодические задачи приложения (обновление агрегатов статистики)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
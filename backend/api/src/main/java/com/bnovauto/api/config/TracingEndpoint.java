@@ -0,0 +1,36 @@
+package com.bnovauto.api.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Включение и выключение трассировки на работающем сервисе:
+ * GET /actuator/tracing возвращает текущую долю трассируемых запросов,
+ * POST /actuator/tracing с телом {"probability": 0.1} меняет ее.
+ */
+@Component
+@Endpoint(id = "tracing")
+public class TracingEndpoint {
+
+    private final RuntimeTracingSampler sampler;
+
+    public TracingEndpoint(RuntimeTracingSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    @ReadOperation
+    public Map<String, Float> tracing() {
+        return Collections.singletonMap("probability", sampler.getProbability());
+    }
+
+    @WriteOperation
+    public Map<String, Float> setProbability(float probability) {
+        sampler.setProbability(probability);
+        return tracing();
+    }
+}
@@ -0,0 +1,66 @@
+package com.bnovauto.api.controller;
+
+import com.bnovauto.api.payload.request.GeofenceRequest;
+import com.bnovauto.api.payload.response.GeofenceResponse;
+import com.bnovauto.api.service.GeofenceService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Set;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/geofences")
+public class GeofenceController {
+
+    @Autowired
+    private GeofenceService geofenceService;
+
+    @GetMapping("/company/{companyId}")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<List<GeofenceResponse>> getGeofencesByCompany(@PathVariable Long companyId) {
+        List<GeofenceResponse> geofences = geofenceService.getGeofencesByCompany(companyId);
+        return new ResponseEntity<>(geofences, HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<GeofenceResponse> getGeofenceById(@PathVariable Long id) {
+        GeofenceResponse geofence = geofenceService.getGeofenceById(id);
+        return new ResponseEntity<>(geofence, HttpStatus.OK);
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<GeofenceResponse> createGeofence(@Valid @RequestBody GeofenceRequest request) {
+        GeofenceResponse geofence = geofenceService.createGeofence(request);
+        return new ResponseEntity<>(geofence, HttpStatus.CREATED);
+    }
+
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<GeofenceResponse> updateGeofence(@PathVariable Long id,
+                                                           @Valid @RequestBody GeofenceRequest request) {
+        GeofenceResponse geofence = geofenceService.updateGeofence(id, request);
+        return new ResponseEntity<>(geofence, HttpStatus.OK);
+    }
+
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<HttpStatus> deleteGeofence(@PathVariable Long id) {
+        geofenceService.deleteGeofence(id);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping("/vehicle/{vehicleId}")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<Set<Long>> getVehicleGeofences(@PathVariable Long vehicleId) {
+        Set<Long> geofences = geofenceService.getVehicleGeofences(vehicleId);
+        return new ResponseEntity<>(geofences, HttpStatus.OK);
+    }
+}
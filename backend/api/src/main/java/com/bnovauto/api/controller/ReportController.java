@@ -0,0 +1,62 @@
+package com.bnovauto.api.controller;
+
+import com.bnovauto.api.payload.request.ReportRequest;
+import com.bnovauto.api.payload.response.ReportJobResponse;
+import com.bnovauto.api.service.ReportService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+
+    @Autowired
+    private ReportService reportService;
+
+    /**
+     * Запуск построения отчета. Ответ приходит сразу, готовность
+     * проверяется по ID задания. При заполненной очереди отчетов
+     * возвращается 429
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<ReportJobResponse> submitReport(@Valid @RequestBody ReportRequest request) {
+        try {
+            ReportJobResponse job = reportService.submit(request);
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<ReportJobResponse> getReport(@PathVariable Long id) {
+        ReportJobResponse job = reportService.getJob(id);
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    /**
+     * Строки готового отчета. Пока отчет строится, возвращается 409
+     */
+    @GetMapping(value = "/{id}/result", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<String> getReportResult(@PathVariable Long id) {
+        String result = reportService.getResultJson(id);
+        if (result == null) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+}
@@ -1,13 +1,23 @@
 package com.bnovauto.api.controller;
 
 import com.bnovauto.api.model.Route;
+import com.bnovauto.api.payload.response.ImportReportResponse;
+import com.bnovauto.api.payload.response.MatchedPosition;
+import com.bnovauto.api.payload.response.RouteProgressResponse;
+import com.bnovauto.api.payload.response.RouteResponse;
+import com.bnovauto.api.service.BulkExportService;
+import com.bnovauto.api.service.BulkImportService;
+import com.bnovauto.api.service.RouteMatchingService;
 import com.bnovauto.api.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -19,32 +29,95 @@ public class RouteController {
     @Autowired
     private RouteService routeService;
 
+    @Autowired
+    private RouteMatchingService routeMatchingService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private BulkExportService bulkExportService;
+
     @GetMapping
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<List<Route>> getAllRoutes() {
-        List<Route> routes = routeService.getAllRoutes();
+    public ResponseEntity<List<RouteResponse>> getAllRoutes() {
+        List<RouteResponse> routes = routeService.getAllRoutes();
         return new ResponseEntity<>(routes, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
-    public ResponseEntity<Route> getRouteById(@PathVariable Long id) {
-        Route route = routeService.getRouteById(id);
-        return new ResponseEntity<>(route, HttpStatus.OK);
+    public ResponseEntity<RouteResponse> getRouteById(@PathVariable Long id) {
+        Route route = routeService.getRouteById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Route not found with id: " + id));
+        return new ResponseEntity<>(RouteResponse.from(route), HttpStatus.OK);
     }
 
     @PostMapping
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<Route> createRoute(@RequestBody Route route) {
+    public ResponseEntity<RouteResponse> createRoute(@RequestBody Route route) {
         Route newRoute = routeService.createRoute(route);
-        return new ResponseEntity<>(newRoute, HttpStatus.CREATED);
+        return new ResponseEntity<>(RouteResponse.from(newRoute), HttpStatus.CREATED);
+    }
+
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<List<RouteResponse>> createRoutes(@RequestBody List<Route> routes) {
+        List<RouteResponse> newRoutes = routeService.createRoutes(routes).stream()
+                .map(RouteResponse::from)
+                .toList();
+        return new ResponseEntity<>(newRoutes, HttpStatus.CREATED);
+    }
+
+    /**
+     * Массовый импорт маршрутов компании. Тело запроса читается потоком,
+     * формат: geojson, ndjson (Feature на строку) или csv (path в WKT). Ошибочные строки перечисляются в отчете.
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<ImportReportResponse> importRoutes(
+            @RequestParam Long companyId,
+            @RequestParam String format,
+            InputStream body) throws IOException {
+        ImportReportResponse report = bulkImportService.importRoutes(companyId, format, body);
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    /**
+     * Потоковая выгрузка маршрутов в формате импорта
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<StreamingResponseBody> exportRoutes(
+            @RequestParam(required = false) Long companyId,
+            @RequestParam(defaultValue = BulkImportService.FORMAT_GEOJSON) String format) {
+        if (!BulkImportService.isSupportedRouteFormat(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        StreamingResponseBody body = out -> bulkExportService.exportRoutes(companyId, format, out);
+        return ResponseEntity.ok().contentType(BulkExportService.getContentType(format)).body(body);
+    }
+
+    /**
+     * Пройденное и оставшееся расстояние по маршруту для точки и прогноз
+     * времени прибытия при заданной скорости
+     */
+    @GetMapping("/{id}/progress")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<RouteProgressResponse> getRouteProgress(
+            @PathVariable Long id,
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(required = false) Double speedKmh) {
+        RouteProgressResponse progress = routeService.getRouteProgress(id, lat, lon, speedKmh);
+        return new ResponseEntity<>(progress, HttpStatus.OK);
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<Route> updateRoute(@PathVariable Long id, @RequestBody Route routeDetails) {
+    public ResponseEntity<RouteResponse> updateRoute(@PathVariable Long id, @RequestBody Route routeDetails) {
         Route updatedRoute = routeService.updateRoute(id, routeDetails);
-        return new ResponseEntity<>(updatedRoute, HttpStatus.OK);
+        return new ResponseEntity<>(RouteResponse.from(updatedRoute), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
@@ -56,8 +129,8 @@ public class RouteController {
 
     @GetMapping("/company/{companyId}")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<List<Route>> getRoutesByCompany(@PathVariable Long companyId) {
-        List<Route> routes = routeService.getRoutesByCompany(companyId);
+    public ResponseEntity<List<RouteResponse>> getRoutesByCompany(@PathVariable Long companyId) {
+        List<RouteResponse> routes = routeService.getRoutesByCompanyId(companyId);
         return new ResponseEntity<>(routes, HttpStatus.OK);
     }
 
@@ -70,24 +143,37 @@ public class RouteController {
         return new ResponseEntity<>(result, HttpStatus.OK);
     }
 
+    @DeleteMapping("/vehicle/{vehicleId}/assignment")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<HttpStatus> completeAssignment(@PathVariable Long vehicleId) {
+        routeService.completeAssignment(vehicleId);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @GetMapping("/vehicle/{vehicleId}")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
-    public ResponseEntity<List<Route>> getRoutesByVehicle(@PathVariable Long vehicleId) {
-        List<Route> routes = routeService.getRoutesByVehicle(vehicleId);
+    public ResponseEntity<List<RouteResponse>> getRoutesByVehicle(@PathVariable Long vehicleId) {
+        List<RouteResponse> routes = routeService.getRoutesByVehicle(vehicleId);
         return new ResponseEntity<>(routes, HttpStatus.OK);
     }
 
-    @GetMapping("/driver/{driverId}")
-    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or @userSecurity.isCurrentUser(#driverId)")
-    public ResponseEntity<List<Route>> getRoutesByDriver(@PathVariable Long driverId) {
-        List<Route> routes = routeService.getRoutesByDriver(driverId);
-        return new ResponseEntity<>(routes, HttpStatus.OK);
+    /**
+     * Прогресс текущего рейса транспортного средства по назначенному маршруту
+     */
+    @GetMapping("/vehicle/{vehicleId}/progress")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<MatchedPosition> getVehicleProgress(@PathVariable Long vehicleId) {
+        MatchedPosition position = routeMatchingService.getMatchedPosition(vehicleId);
+        if (position == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(position, HttpStatus.OK);
     }
 
     @GetMapping("/active")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<List<Route>> getActiveRoutes() {
-        List<Route> routes = routeService.getActiveRoutes();
+    public ResponseEntity<List<RouteResponse>> getActiveRoutes() {
+        List<RouteResponse> routes = routeService.getActiveRoutes();
         return new ResponseEntity<>(routes, HttpStatus.OK);
     }
 }
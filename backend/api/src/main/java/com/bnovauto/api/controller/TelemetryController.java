@@ -0,0 +1,90 @@
+package com.bnovauto.api.controller;
+
+import com.bnovauto.api.payload.request.TelemetryRequest;
+import com.bnovauto.api.payload.response.TelemetryBatchResponse;
+import com.bnovauto.api.service.TelemetryService;
+import com.bnovauto.api.service.TelemetryStreamService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/telemetry")
+public class TelemetryController {
+
+    @Autowired
+    private TelemetryService telemetryService;
+
+    @Autowired
+    private TelemetryStreamService telemetryStreamService;
+
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('DRIVER') or hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<TelemetryBatchResponse> ingestTelemetryBatch(
+            @Valid @RequestBody List<@Valid TelemetryRequest> requests) throws InterruptedException {
+        int accepted = telemetryService.ingestTelemetryBatch(requests);
+        TelemetryBatchResponse response = new TelemetryBatchResponse(
+                accepted, requests.size() - accepted, telemetryService.getIngestionQueueDepth());
+
+        // Очередь переполнена: клиент повторяет отправку записей, начиная с индекса accepted
+        if (accepted < requests.size()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Пакетная загрузка телеметрии в двоичном формате (TelemetryFrameCodec)
+     */
+    @PostMapping(value = "/batch/binary", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasRole('DRIVER') or hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<TelemetryBatchResponse> ingestTelemetryFrame(@RequestBody byte[] body)
+            throws InterruptedException {
+        TelemetryBatchResponse response = telemetryService.ingestTelemetryFrame(ByteBuffer.wrap(body));
+
+        // Очередь переполнена: клиент повторяет отправку записей, начиная с индекса accepted
+        if (response.getRejected() > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Подписка на телеметрию в реальном времени (Server-Sent Events): по
+     * транспортному средству, по компании или по прямоугольнику карты
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public SseEmitter subscribeTelemetry(
+            @RequestParam(required = false) Long vehicleId,
+            @RequestParam(required = false) Long companyId,
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLon,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLon) {
+        if (vehicleId != null) {
+            return telemetryStreamService.subscribeVehicle(vehicleId);
+        }
+        if (companyId != null) {
+            return telemetryStreamService.subscribeCompany(companyId);
+        }
+        if (minLat != null && minLon != null && maxLat != null && maxLon != null) {
+            return telemetryStreamService.subscribeArea(minLat, minLon, maxLat, maxLon);
+        }
+        throw new IllegalArgumentException("Specify vehicleId, companyId or a bounding box");
+    }
+}
@@ -1,16 +1,33 @@
 package com.bnovauto.api.controller;
 
 import com.bnovauto.api.model.Vehicle;
-import com.bnovauto.api.model.Telemetry;
+import com.bnovauto.api.payload.response.FleetMapResponse;
+import com.bnovauto.api.payload.response.ImportReportResponse;
+import com.bnovauto.api.payload.response.RollupStatisticsResponse;
+import com.bnovauto.api.payload.response.TelemetryPageResponse;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.payload.response.TrackResponse;
+import com.bnovauto.api.payload.response.VehicleResponse;
+import com.bnovauto.api.payload.response.VehicleStatisticsResponse;
+import com.bnovauto.api.service.BulkExportService;
+import com.bnovauto.api.service.BulkImportService;
+import com.bnovauto.api.service.FleetMapService;
+import com.bnovauto.api.service.StatisticsRollupService;
+import com.bnovauto.api.service.TelemetryHistoryService;
+import com.bnovauto.api.service.TrackService;
 import com.bnovauto.api.service.VehicleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -20,32 +37,50 @@ public class VehicleController {
     @Autowired
     private VehicleService vehicleService;
 
+    @Autowired
+    private TelemetryHistoryService telemetryHistoryService;
+
+    @Autowired
+    private FleetMapService fleetMapService;
+
+    @Autowired
+    private TrackService trackService;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private BulkExportService bulkExportService;
+
     @GetMapping
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<List<Vehicle>> getAllVehicles() {
-        List<Vehicle> vehicles = vehicleService.getAllVehicles();
+    public ResponseEntity<List<VehicleResponse>> getAllVehicles() {
+        List<VehicleResponse> vehicles = vehicleService.getAllVehicles();
         return new ResponseEntity<>(vehicles, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
-    public ResponseEntity<Vehicle> getVehicleById(@PathVariable Long id) {
+    public ResponseEntity<VehicleResponse> getVehicleById(@PathVariable Long id) {
         Vehicle vehicle = vehicleService.getVehicleById(id);
-        return new ResponseEntity<>(vehicle, HttpStatus.OK);
+        return new ResponseEntity<>(VehicleResponse.from(vehicle), HttpStatus.OK);
     }
 
     @PostMapping
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<Vehicle> createVehicle(@RequestBody Vehicle vehicle) {
+    public ResponseEntity<VehicleResponse> createVehicle(@RequestBody Vehicle vehicle) {
         Vehicle newVehicle = vehicleService.createVehicle(vehicle);
-        return new ResponseEntity<>(newVehicle, HttpStatus.CREATED);
+        return new ResponseEntity<>(VehicleResponse.from(newVehicle), HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<Vehicle> updateVehicle(@PathVariable Long id, @RequestBody Vehicle vehicleDetails) {
+    public ResponseEntity<VehicleResponse> updateVehicle(@PathVariable Long id, @RequestBody Vehicle vehicleDetails) {
         Vehicle updatedVehicle = vehicleService.updateVehicle(id, vehicleDetails);
-        return new ResponseEntity<>(updatedVehicle, HttpStatus.OK);
+        return new ResponseEntity<>(VehicleResponse.from(updatedVehicle), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
@@ -55,37 +90,181 @@ public class VehicleController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    /**
+     * Массовый импорт транспортных средств компании. Тело запроса читается потоком,
+     * формат: csv или ndjson. Ошибочные строки перечисляются в отчете.
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<ImportReportResponse> importVehicles(
+            @RequestParam Long companyId,
+            @RequestParam String format,
+            InputStream body) throws IOException {
+        ImportReportResponse report = bulkImportService.importVehicles(companyId, format, body);
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    /**
+     * Потоковая выгрузка транспортных средств в формате импорта
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<StreamingResponseBody> exportVehicles(
+            @RequestParam(required = false) Long companyId,
+            @RequestParam(defaultValue = BulkImportService.FORMAT_CSV) String format) {
+        if (!BulkImportService.isSupportedVehicleFormat(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        StreamingResponseBody body = out -> bulkExportService.exportVehicles(companyId, format, out);
+        return ResponseEntity.ok().contentType(BulkExportService.getContentType(format)).body(body);
+    }
+
     @GetMapping("/company/{companyId}")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<List<Vehicle>> getVehiclesByCompany(@PathVariable Long companyId) {
-        List<Vehicle> vehicles = vehicleService.getVehiclesByCompany(companyId);
+    public ResponseEntity<List<VehicleResponse>> getVehiclesByCompany(@PathVariable Long companyId) {
+        List<VehicleResponse> vehicles = vehicleService.getVehiclesByCompany(companyId);
         return new ResponseEntity<>(vehicles, HttpStatus.OK);
     }
 
     @GetMapping("/{id}/telemetry")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
-    public ResponseEntity<List<Telemetry>> getVehicleTelemetry(
+    public ResponseEntity<TelemetryPageResponse> getVehicleTelemetry(
             @PathVariable Long id,
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
-        List<Telemetry> telemetry = vehicleService.getVehicleTelemetry(id, startDate, endDate);
-        return new ResponseEntity<>(telemetry, HttpStatus.OK);
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        TelemetryPageResponse page = telemetryHistoryService.getTelemetryPage(id, startDate, endDate, cursor, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    /**
+     * Последние записи телеметрии за несколько минут из буфера в памяти
+     */
+    @GetMapping("/{id}/telemetry/recent")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<List<TelemetryPoint>> getRecentVehicleTelemetry(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "15") int minutes,
+            @RequestParam(required = false) Integer limit) {
+        List<TelemetryPoint> points = telemetryHistoryService.getRecentTelemetry(id, minutes, limit);
+        return new ResponseEntity<>(points, HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/telemetry/stream")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<StreamingResponseBody> streamVehicleTelemetry(
+            @PathVariable Long id,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = TelemetryHistoryService.FORMAT_NDJSON) String format) {
+        if (!TelemetryHistoryService.isSupportedFormat(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        // Проверка до начала выгрузки, чтобы ошибка не оборвала уже начатый ответ
+        telemetryHistoryService.checkVehicleExists(id);
+
+        StreamingResponseBody body = out -> telemetryHistoryService.streamTelemetry(id, startDate, endDate, format, out);
+        MediaType contentType = TelemetryHistoryService.FORMAT_CSV.equals(format)
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    /**
+     * Упрощенный трек поездки для отрисовки: Encoded Polyline в JSON
+     */
+    @GetMapping("/{id}/track")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<TrackResponse> getVehicleTrack(
+            @PathVariable Long id,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "10") double tolerance,
+            @RequestParam(defaultValue = TrackService.ALGORITHM_DOUGLAS_PEUCKER) String algorithm) {
+        TrackResponse track = trackService.getTrack(id, startDate, endDate, tolerance, algorithm);
+        return new ResponseEntity<>(track, HttpStatus.OK);
+    }
+
+    /**
+     * Упрощенный трек поездки со временем точек в компактном двоичном формате
+     * (описание формата в TrackService.getTrackBinary)
+     */
+    @GetMapping(value = "/{id}/track/binary", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
+    public ResponseEntity<byte[]> getVehicleTrackBinary(
+            @PathVariable Long id,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "10") double tolerance,
+            @RequestParam(defaultValue = TrackService.ALGORITHM_DOUGLAS_PEUCKER) String algorithm) {
+        byte[] track = trackService.getTrackBinary(id, startDate, endDate, tolerance, algorithm);
+        return new ResponseEntity<>(track, HttpStatus.OK);
     }
 
     @GetMapping("/{id}/telemetry/latest")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT') or hasRole('DRIVER')")
-    public ResponseEntity<Telemetry> getLatestVehicleTelemetry(@PathVariable Long id) {
-        Telemetry telemetry = vehicleService.getLatestVehicleTelemetry(id);
+    public ResponseEntity<TelemetryPoint> getLatestVehicleTelemetry(@PathVariable Long id) {
+        TelemetryPoint telemetry = vehicleService.getLatestVehicleTelemetry(id);
         return new ResponseEntity<>(telemetry, HttpStatus.OK);
     }
 
+    @GetMapping("/positions")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<List<TelemetryPoint>> getFleetPositions(@RequestParam(required = false) Long companyId) {
+        List<TelemetryPoint> positions = vehicleService.getFleetPositions(companyId);
+        return new ResponseEntity<>(positions, HttpStatus.OK);
+    }
+
+    /**
+     * ТС в видимой области карты: прямоугольник (minLat, minLon, maxLat, maxLon)
+     * или круг (lat, lon, radiusMeters). На мелком масштабе возвращаются кластеры.
+     */
+    @GetMapping("/map")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<FleetMapResponse> getFleetMap(
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLon,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLon,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon,
+            @RequestParam(required = false) Double radiusMeters,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Long companyId) {
+        FleetMapResponse map;
+        if (minLat != null && minLon != null && maxLat != null && maxLon != null) {
+            map = fleetMapService.findInBox(minLat, minLon, maxLat, maxLon, zoom, companyId);
+        } else if (lat != null && lon != null && radiusMeters != null) {
+            map = fleetMapService.findInRadius(lat, lon, radiusMeters, zoom, companyId);
+        } else {
+            throw new IllegalArgumentException("Specify a bounding box or a center and radius");
+        }
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
     @GetMapping("/{id}/statistics")
     @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
-    public ResponseEntity<Map<String, Object>> getVehicleStatistics(
+    public ResponseEntity<VehicleStatisticsResponse> getVehicleStatistics(
             @PathVariable Long id,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        Map<String, Object> statistics = vehicleService.getVehicleStatistics(id, startDate, endDate);
+        VehicleStatisticsResponse statistics = vehicleService.getVehicleStatistics(id, startDate, endDate);
+        return new ResponseEntity<>(statistics, HttpStatus.OK);
+    }
+
+    /**
+     * Статистика за период по агрегатам fleet.vehicle_telemetry, из которых
+     * строятся отчеты: минутным, часовым или суточным в зависимости от границ
+     * периода. ID транспортного средства - из fleet.vehicles
+     */
+    @GetMapping("/{id}/statistics/rollup")
+    @PreAuthorize("hasRole('DIRECTOR') or hasRole('SUPPORT')")
+    public ResponseEntity<RollupStatisticsResponse> getVehicleRollupStatistics(
+            @PathVariable Long id,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        RollupStatisticsResponse statistics = statisticsRollupService.getVehicleStatistics(id, startDate, endDate);
         return new ResponseEntity<>(statistics, HttpStatus.OK);
     }
 }
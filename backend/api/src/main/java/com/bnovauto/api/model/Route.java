@@ -1,8 +1,11 @@
 package com.bnovauto.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 
@@ -37,7 +40,30 @@ public class Route {
     @Column(name = "path", columnDefinition = "geometry(LineString,4326)")
     private LineString path;
 
-    @ManyToOne
+    // Метрики геометрии, считаются при сохранении маршрута (RouteMetrics)
+    @Column(name = "length_meters")
+    private Double lengthMeters;
+
+    // Расстояние от начала маршрута до каждой вершины path, в метрах
+    @JsonIgnore
+    @Column(name = "cumulative_distances", columnDefinition = "double precision[]")
+    private double[] cumulativeDistances;
+
+    @Column(name = "min_latitude")
+    private Double minLatitude;
+
+    @Column(name = "min_longitude")
+    private Double minLongitude;
+
+    @Column(name = "max_latitude")
+    private Double maxLatitude;
+
+    @Column(name = "max_longitude")
+    private Double maxLongitude;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id", nullable = false)
     private Company company;
 
@@ -2,13 +2,15 @@ package com.bnovauto.api.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.locationtech.jts.geom.Point;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "telemetry")
+@Table(name = "telemetry", indexes = @Index(name = "idx_telemetry_vehicle_id_timestamp", columnList = "vehicle_id, timestamp"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,7 +19,9 @@ public class Telemetry {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicle_id", nullable = false)
     private Vehicle vehicle;
 
@@ -45,6 +49,16 @@ public class Telemetry {
     @Column(name = "error_code")
     private String errorCode;
 
+    // Привязка к назначенному маршруту (RouteMatchingService), если он был
+    @Column(name = "route_id")
+    private Long routeId;
+
+    @Column(name = "matched_location", columnDefinition = "geometry(Point,4326)")
+    private Point matchedLocation;
+
+    @Column(name = "route_offset_meters")
+    private Double routeOffsetMeters;
+
     @PrePersist
     protected void onCreate() {
         timestamp = LocalDateTime.now();
@@ -0,0 +1,56 @@
+package com.bnovauto.api.payload.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class GeofenceRequest {
+    @NotBlank
+    private String name;
+
+    // DEPOT, RESTRICTED, CUSTOMER_SITE
+    @NotBlank
+    private String type;
+
+    @NotNull
+    private Long companyId;
+
+    // Вершины многоугольника в формате [[lat1,lng1],[lat2,lng2],...]
+    @NotNull
+    @Size(min = 3)
+    private List<List<Double>> coordinates;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public void setCompanyId(Long companyId) {
+        this.companyId = companyId;
+    }
+
+    public List<List<Double>> getCoordinates() {
+        return coordinates;
+    }
+
+    public void setCoordinates(List<List<Double>> coordinates) {
+        this.coordinates = coordinates;
+    }
+}
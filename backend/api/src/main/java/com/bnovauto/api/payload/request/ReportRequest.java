@@ -0,0 +1,62 @@
+package com.bnovauto.api.payload.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public class ReportRequest {
+    // FUEL_CONSUMPTION, ROUTE_EFFICIENCY, VIOLATIONS
+    @NotBlank
+    private String reportType;
+
+    @NotNull
+    private Long companyId;
+
+    // Границы периода в формате ISO, конец не включается
+    @NotBlank
+    private String startDate;
+
+    @NotBlank
+    private String endDate;
+
+    private String name;
+
+    public String getReportType() {
+        return reportType;
+    }
+
+    public void setReportType(String reportType) {
+        this.reportType = reportType;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public void setCompanyId(Long companyId) {
+        this.companyId = companyId;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(String startDate) {
+        this.startDate = startDate;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(String endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,111 @@
+package com.bnovauto.api.payload.request;
+
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.NotNull;
+
+public class TelemetryRequest {
+    @NotNull
+    private Long vehicleId;
+
+    // Время снятия показаний трекером; если не указано, используется время приема
+    private LocalDateTime timestamp;
+
+    @NotNull
+    private Double latitude;
+
+    @NotNull
+    private Double longitude;
+
+    private Double speed;
+
+    private Double fuelLevel;
+
+    private Double engineTemperature;
+
+    private Integer engineRpm;
+
+    private Double batteryVoltage;
+
+    private String errorCode;
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(Long vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(Double speed) {
+        this.speed = speed;
+    }
+
+    public Double getFuelLevel() {
+        return fuelLevel;
+    }
+
+    public void setFuelLevel(Double fuelLevel) {
+        this.fuelLevel = fuelLevel;
+    }
+
+    public Double getEngineTemperature() {
+        return engineTemperature;
+    }
+
+    public void setEngineTemperature(Double engineTemperature) {
+        this.engineTemperature = engineTemperature;
+    }
+
+    public Integer getEngineRpm() {
+        return engineRpm;
+    }
+
+    public void setEngineRpm(Integer engineRpm) {
+        this.engineRpm = engineRpm;
+    }
+
+    public Double getBatteryVoltage() {
+        return batteryVoltage;
+    }
+
+    public void setBatteryVoltage(Double batteryVoltage) {
+        this.batteryVoltage = batteryVoltage;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+}
@@ -0,0 +1,37 @@
+package com.bnovauto.api.payload.response;
+
+import java.util.List;
+
+/**
+ * Ответ запроса карты: либо отдельные ТС, либо кластеры, если ТС в области
+ * слишком много для текущего масштаба
+ */
+public class FleetMapResponse {
+    private final int total;
+    private final boolean clustered;
+    private final List<MapVehicle> vehicles;
+    private final List<MapCluster> clusters;
+
+    public FleetMapResponse(int total, boolean clustered, List<MapVehicle> vehicles, List<MapCluster> clusters) {
+        this.total = total;
+        this.clustered = clustered;
+        this.vehicles = vehicles;
+        this.clusters = clusters;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    public List<MapVehicle> getVehicles() {
+        return vehicles;
+    }
+
+    public List<MapCluster> getClusters() {
+        return clusters;
+    }
+}
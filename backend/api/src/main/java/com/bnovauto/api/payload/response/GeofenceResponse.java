@@ -0,0 +1,60 @@
+package com.bnovauto.api.payload.response;
+
+import java.util.List;
+
+public class GeofenceResponse {
+    private Long id;
+    private String name;
+    private String type;
+    private Long companyId;
+    // Вершины внешнего кольца в формате [[lat1,lng1],[lat2,lng2],...]
+    private List<double[]> coordinates;
+
+    public GeofenceResponse(Long id, String name, String type, Long companyId, List<double[]> coordinates) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.companyId = companyId;
+        this.coordinates = coordinates;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public void setCompanyId(Long companyId) {
+        this.companyId = companyId;
+    }
+
+    public List<double[]> getCoordinates() {
+        return coordinates;
+    }
+
+    public void setCoordinates(List<double[]> coordinates) {
+        this.coordinates = coordinates;
+    }
+}
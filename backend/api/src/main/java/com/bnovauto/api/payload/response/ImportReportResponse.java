@@ -0,0 +1,63 @@
+package com.bnovauto.api.payload.response;
+
+import java.util.List;
+
+/**
+ * Итог массового импорта: сколько строк прочитано, записано и отклонено, и
+ * ошибки по строкам. Список ошибок ограничен, errorsTruncated показывает,
+ * что ошибок было больше.
+ */
+public class ImportReportResponse {
+    private final String entity;
+    private final String format;
+    private final int totalRows;
+    private final int importedRows;
+    private final int failedRows;
+    private final List<ImportRowError> errors;
+    private final boolean errorsTruncated;
+    private final long durationMs;
+
+    public ImportReportResponse(String entity, String format, int totalRows, int importedRows, int failedRows,
+                                List<ImportRowError> errors, boolean errorsTruncated, long durationMs) {
+        this.entity = entity;
+        this.format = format;
+        this.totalRows = totalRows;
+        this.importedRows = importedRows;
+        this.failedRows = failedRows;
+        this.errors = errors;
+        this.errorsTruncated = errorsTruncated;
+        this.durationMs = durationMs;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public int getImportedRows() {
+        return importedRows;
+    }
+
+    public int getFailedRows() {
+        return failedRows;
+    }
+
+    public List<ImportRowError> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+}
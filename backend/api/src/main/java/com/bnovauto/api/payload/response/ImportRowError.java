@@ -0,0 +1,23 @@
+package com.bnovauto.api.payload.response;
+
+/**
+ * Ошибка одной строки массового импорта
+ */
+public class ImportRowError {
+    // Номер строки файла (для GeoJSON номер объекта в features), начиная с 1
+    private final int row;
+    private final String message;
+
+    public ImportRowError(int row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,29 @@
+package com.bnovauto.api.payload.response;
+
+/**
+ * Группа транспортных средств в ячейке сетки на мелком масштабе карты.
+ * Координаты - среднее положение ТС группы.
+ */
+public class MapCluster {
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+
+    public MapCluster(double latitude, double longitude, int count) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
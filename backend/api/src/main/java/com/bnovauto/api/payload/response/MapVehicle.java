@@ -0,0 +1,45 @@
+package com.bnovauto.api.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Транспортное средство на карте: только то, что нужно для отрисовки маркера
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MapVehicle {
+    private final long vehicleId;
+    private final double latitude;
+    private final double longitude;
+    private final Double speed;
+    private final LocalDateTime timestamp;
+
+    public MapVehicle(long vehicleId, double latitude, double longitude, Double speed, LocalDateTime timestamp) {
+        this.vehicleId = vehicleId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.speed = speed;
+        this.timestamp = timestamp;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public Double getSpeed() {
+        return speed;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,85 @@
+package com.bnovauto.api.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Положение транспортного средства, привязанное к назначенному маршруту:
+ * проекция последней записи телеметрии на линию маршрута, пройденное вдоль
+ * маршрута расстояние и прогноз прибытия
+ */
+public class MatchedPosition {
+    private final long vehicleId;
+    private final long routeId;
+    private final LocalDateTime timestamp;
+    // Точка на линии маршрута
+    private final double latitude;
+    private final double longitude;
+    private final int segment;
+    private final double offsetMeters;
+    private final double remainingMeters;
+    private final double lengthMeters;
+    // Расстояние от исходной точки телеметрии до линии маршрута
+    private final double distanceFromRouteMeters;
+    // null, если скорость неизвестна или ТС стоит
+    private final Long etaSeconds;
+
+    public MatchedPosition(long vehicleId, long routeId, LocalDateTime timestamp, double latitude, double longitude,
+                           int segment, double offsetMeters, double remainingMeters, double lengthMeters,
+                           double distanceFromRouteMeters, Long etaSeconds) {
+        this.vehicleId = vehicleId;
+        this.routeId = routeId;
+        this.timestamp = timestamp;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.segment = segment;
+        this.offsetMeters = offsetMeters;
+        this.remainingMeters = remainingMeters;
+        this.lengthMeters = lengthMeters;
+        this.distanceFromRouteMeters = distanceFromRouteMeters;
+        this.etaSeconds = etaSeconds;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public long getRouteId() {
+        return routeId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getSegment() {
+        return segment;
+    }
+
+    public double getOffsetMeters() {
+        return offsetMeters;
+    }
+
+    public double getRemainingMeters() {
+        return remainingMeters;
+    }
+
+    public double getLengthMeters() {
+        return lengthMeters;
+    }
+
+    public double getDistanceFromRouteMeters() {
+        return distanceFromRouteMeters;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+}
@@ -0,0 +1,88 @@
+package com.bnovauto.api.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние задания на построение отчета
+ */
+public class ReportJobResponse {
+    private final long id;
+    private final String name;
+    private final String reportType;
+    private final Long companyId;
+    private final String startDate;
+    private final String endDate;
+    // PENDING, RUNNING, COMPLETED, FAILED
+    private final String status;
+    // Ход выполнения по отрезкам периода, null для заданий прошлых запусков приложения
+    private final Integer totalSlices;
+    private final Integer completedSlices;
+    private final String error;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime completedAt;
+
+    public ReportJobResponse(long id, String name, String reportType, Long companyId, String startDate,
+                             String endDate, String status, Integer totalSlices, Integer completedSlices,
+                             String error, LocalDateTime createdAt, LocalDateTime completedAt) {
+        this.id = id;
+        this.name = name;
+        this.reportType = reportType;
+        this.companyId = companyId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.status = status;
+        this.totalSlices = totalSlices;
+        this.completedSlices = completedSlices;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getReportType() {
+        return reportType;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getTotalSlices() {
+        return totalSlices;
+    }
+
+    public Integer getCompletedSlices() {
+        return completedSlices;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -0,0 +1,88 @@
+package com.bnovauto.api.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Статистика транспортного средства за период по агрегатам телеметрии
+ */
+public class RollupStatisticsResponse {
+    private final long vehicleId;
+    // Уровень агрегата, из которого получен ответ: MINUTE, HOUR или DAY
+    private final String granularity;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final long dataPointsCount;
+    private final Double avgSpeed;
+    private final Double maxSpeed;
+    private final Double avgFuelLevel;
+    private final Double minFuelLevel;
+    private final Double maxFuelLevel;
+    private final Double distanceTraveled;
+    private final Double avgFuelConsumption;
+
+    public RollupStatisticsResponse(long vehicleId, String granularity, LocalDateTime startDate, LocalDateTime endDate,
+                                    long dataPointsCount, Double avgSpeed, Double maxSpeed, Double avgFuelLevel,
+                                    Double minFuelLevel, Double maxFuelLevel, Double distanceTraveled,
+                                    Double avgFuelConsumption) {
+        this.vehicleId = vehicleId;
+        this.granularity = granularity;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.dataPointsCount = dataPointsCount;
+        this.avgSpeed = avgSpeed;
+        this.maxSpeed = maxSpeed;
+        this.avgFuelLevel = avgFuelLevel;
+        this.minFuelLevel = minFuelLevel;
+        this.maxFuelLevel = maxFuelLevel;
+        this.distanceTraveled = distanceTraveled;
+        this.avgFuelConsumption = avgFuelConsumption;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public long getDataPointsCount() {
+        return dataPointsCount;
+    }
+
+    public Double getAvgSpeed() {
+        return avgSpeed;
+    }
+
+    public Double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public Double getAvgFuelLevel() {
+        return avgFuelLevel;
+    }
+
+    public Double getMinFuelLevel() {
+        return minFuelLevel;
+    }
+
+    public Double getMaxFuelLevel() {
+        return maxFuelLevel;
+    }
+
+    public Double getDistanceTraveled() {
+        return distanceTraveled;
+    }
+
+    public Double getAvgFuelConsumption() {
+        return avgFuelConsumption;
+    }
+}
@@ -0,0 +1,56 @@
+package com.bnovauto.api.payload.response;
+
+/**
+ * Положение точки на маршруте: пройденное и оставшееся расстояние и прогноз
+ * времени прибытия
+ */
+public class RouteProgressResponse {
+    private final long routeId;
+    private final double lengthMeters;
+    private final double travelledMeters;
+    private final double remainingMeters;
+    // Расстояние от точки до ближайшего отрезка маршрута
+    private final double distanceFromRouteMeters;
+    private final int segment;
+    // null, если скорость не передана или равна нулю
+    private final Long etaSeconds;
+
+    public RouteProgressResponse(long routeId, double lengthMeters, double travelledMeters, double remainingMeters,
+                                 double distanceFromRouteMeters, int segment, Long etaSeconds) {
+        this.routeId = routeId;
+        this.lengthMeters = lengthMeters;
+        this.travelledMeters = travelledMeters;
+        this.remainingMeters = remainingMeters;
+        this.distanceFromRouteMeters = distanceFromRouteMeters;
+        this.segment = segment;
+        this.etaSeconds = etaSeconds;
+    }
+
+    public long getRouteId() {
+        return routeId;
+    }
+
+    public double getLengthMeters() {
+        return lengthMeters;
+    }
+
+    public double getTravelledMeters() {
+        return travelledMeters;
+    }
+
+    public double getRemainingMeters() {
+        return remainingMeters;
+    }
+
+    public double getDistanceFromRouteMeters() {
+        return distanceFromRouteMeters;
+    }
+
+    public int getSegment() {
+        return segment;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+}
@@ -0,0 +1,119 @@
+package com.bnovauto.api.payload.response;
+
+import com.bnovauto.api.model.Route;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+
+import java.time.LocalDateTime;
+
+/**
+ * Маршрут в ответах API. Компания передается только по ID. В списках линия
+ * маршрута не передается (path = null), ее возвращает запрос одного маршрута.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RouteResponse {
+    private final Long id;
+    private final String name;
+    private final Long companyId;
+    private final Point startPoint;
+    private final Point endPoint;
+    private final LineString path;
+    private final Double lengthMeters;
+    private final Double minLatitude;
+    private final Double minLongitude;
+    private final Double maxLatitude;
+    private final Double maxLongitude;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    /**
+     * Конструктор для проекций RouteRepository: все, кроме линии маршрута
+     */
+    public RouteResponse(Long id, String name, Long companyId, Point startPoint, Point endPoint,
+                         Double lengthMeters, Double minLatitude, Double minLongitude,
+                         Double maxLatitude, Double maxLongitude,
+                         LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, name, companyId, startPoint, endPoint, null, lengthMeters,
+                minLatitude, minLongitude, maxLatitude, maxLongitude, createdAt, updatedAt);
+    }
+
+    public RouteResponse(Long id, String name, Long companyId, Point startPoint, Point endPoint, LineString path,
+                         Double lengthMeters, Double minLatitude, Double minLongitude,
+                         Double maxLatitude, Double maxLongitude,
+                         LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.companyId = companyId;
+        this.startPoint = startPoint;
+        this.endPoint = endPoint;
+        this.path = path;
+        this.lengthMeters = lengthMeters;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public static RouteResponse from(Route route) {
+        return new RouteResponse(route.getId(), route.getName(),
+                route.getCompany() != null ? route.getCompany().getId() : null,
+                route.getStartPoint(), route.getEndPoint(), route.getPath(), route.getLengthMeters(),
+                route.getMinLatitude(), route.getMinLongitude(), route.getMaxLatitude(), route.getMaxLongitude(),
+                route.getCreatedAt(), route.getUpdatedAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public Point getStartPoint() {
+        return startPoint;
+    }
+
+    public Point getEndPoint() {
+        return endPoint;
+    }
+
+    public LineString getPath() {
+        return path;
+    }
+
+    public Double getLengthMeters() {
+        return lengthMeters;
+    }
+
+    public Double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public Double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public Double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public Double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
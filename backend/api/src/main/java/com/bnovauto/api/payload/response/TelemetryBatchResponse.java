@@ -0,0 +1,37 @@
+package com.bnovauto.api.payload.response;
+
+public class TelemetryBatchResponse {
+    private int accepted;
+    private int rejected;
+    private int queueDepth;
+
+    public TelemetryBatchResponse(int accepted, int rejected, int queueDepth) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.queueDepth = queueDepth;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(int accepted) {
+        this.accepted = accepted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+}
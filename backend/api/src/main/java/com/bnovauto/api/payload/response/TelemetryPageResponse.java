@@ -0,0 +1,31 @@
+package com.bnovauto.api.payload.response;
+
+import java.util.List;
+
+public class TelemetryPageResponse {
+    private List<TelemetryPoint> items;
+
+    // Курсор для запроса следующей страницы; null, если данных больше нет
+    private String nextCursor;
+
+    public TelemetryPageResponse(List<TelemetryPoint> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TelemetryPoint> getItems() {
+        return items;
+    }
+
+    public void setItems(List<TelemetryPoint> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,75 @@
+package com.bnovauto.api.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемый снимок одной записи телеметрии без ссылок на JPA-сущности.
+ * Используется конвейером приема и всеми потребителями свежих данных.
+ */
+public class TelemetryPoint {
+    private final long vehicleId;
+    private final LocalDateTime timestamp;
+    private final double latitude;
+    private final double longitude;
+    private final Double speed;
+    private final Double fuelLevel;
+    private final Double engineTemperature;
+    private final Integer engineRpm;
+    private final Double batteryVoltage;
+    private final String errorCode;
+
+    public TelemetryPoint(long vehicleId, LocalDateTime timestamp, double latitude, double longitude,
+                          Double speed, Double fuelLevel, Double engineTemperature,
+                          Integer engineRpm, Double batteryVoltage, String errorCode) {
+        this.vehicleId = vehicleId;
+        this.timestamp = timestamp;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.speed = speed;
+        this.fuelLevel = fuelLevel;
+        this.engineTemperature = engineTemperature;
+        this.engineRpm = engineRpm;
+        this.batteryVoltage = batteryVoltage;
+        this.errorCode = errorCode;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public Double getSpeed() {
+        return speed;
+    }
+
+    public Double getFuelLevel() {
+        return fuelLevel;
+    }
+
+    public Double getEngineTemperature() {
+        return engineTemperature;
+    }
+
+    public Integer getEngineRpm() {
+        return engineRpm;
+    }
+
+    public Double getBatteryVoltage() {
+        return batteryVoltage;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
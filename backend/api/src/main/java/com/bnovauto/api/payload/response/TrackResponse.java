@@ -0,0 +1,68 @@
+package com.bnovauto.api.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Упрощенный трек транспортного средства в формате Encoded Polyline
+ */
+public class TrackResponse {
+    private final long vehicleId;
+    private final String algorithm;
+    private final double toleranceMeters;
+    private final int originalPoints;
+    private final int points;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    // Точность кодирования: 5 знаков после запятой (1e5)
+    private final int precision;
+    private final String polyline;
+
+    public TrackResponse(long vehicleId, String algorithm, double toleranceMeters, int originalPoints, int points,
+                         LocalDateTime startTime, LocalDateTime endTime, int precision, String polyline) {
+        this.vehicleId = vehicleId;
+        this.algorithm = algorithm;
+        this.toleranceMeters = toleranceMeters;
+        this.originalPoints = originalPoints;
+        this.points = points;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.precision = precision;
+        this.polyline = polyline;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public double getToleranceMeters() {
+        return toleranceMeters;
+    }
+
+    public int getOriginalPoints() {
+        return originalPoints;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public String getPolyline() {
+        return polyline;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bnovauto.api.payload.response;
+
+import com.bnovauto.api.model.Vehicle;
+
+import java.time.LocalDateTime;
+
+/**
+ * Транспортное средство в ответах API. Компания передается только по ID,
+ * список выбирается проекцией VehicleRepository без загрузки сущностей.
+ */
+public class VehicleResponse {
+    private final Long id;
+    private final String name;
+    private final String model;
+    private final String licensePlate;
+    private final Integer year;
+    private final String status;
+    private final Long companyId;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public VehicleResponse(Long id, String name, String model, String licensePlate, Integer year, String status,
+                           Long companyId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.model = model;
+        this.licensePlate = licensePlate;
+        this.year = year;
+        this.status = status;
+        this.companyId = companyId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public static VehicleResponse from(Vehicle vehicle) {
+        return new VehicleResponse(vehicle.getId(), vehicle.getName(), vehicle.getModel(),
+                vehicle.getLicensePlate(), vehicle.getYear(), vehicle.getStatus(),
+                vehicle.getCompany() != null ? vehicle.getCompany().getId() : null,
+                vehicle.getCreatedAt(), vehicle.getUpdatedAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getLicensePlate() {
+        return licensePlate;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
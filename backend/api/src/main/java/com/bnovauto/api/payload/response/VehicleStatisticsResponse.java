@@ -0,0 +1,114 @@
+package com.bnovauto.api.payload.response;
+
+public class VehicleStatisticsResponse {
+    private long dataPointsCount;
+    private double avgSpeed;
+    private double avgFuelLevel;
+    private double maxSpeed;
+    private long errorCount;
+    // Поля ниже заполняются из агрегатов телеметрии, null - нет данных
+    private Double minFuelLevel;
+    private Double maxFuelLevel;
+    private Double minEngineTemperature;
+    private Double maxEngineTemperature;
+    private Double speedP50;
+    private Double speedP95;
+
+    public VehicleStatisticsResponse(Long dataPointsCount, Double avgSpeed, Double avgFuelLevel,
+                                     Double maxSpeed, Long errorCount) {
+        // Агрегаты по пустому диапазону возвращают NULL
+        this.dataPointsCount = dataPointsCount != null ? dataPointsCount : 0L;
+        this.avgSpeed = avgSpeed != null ? avgSpeed : 0.0;
+        this.avgFuelLevel = avgFuelLevel != null ? avgFuelLevel : 0.0;
+        this.maxSpeed = maxSpeed != null ? maxSpeed : 0.0;
+        this.errorCount = errorCount != null ? errorCount : 0L;
+    }
+
+    public long getDataPointsCount() {
+        return dataPointsCount;
+    }
+
+    public void setDataPointsCount(long dataPointsCount) {
+        this.dataPointsCount = dataPointsCount;
+    }
+
+    public double getAvgSpeed() {
+        return avgSpeed;
+    }
+
+    public void setAvgSpeed(double avgSpeed) {
+        this.avgSpeed = avgSpeed;
+    }
+
+    public double getAvgFuelLevel() {
+        return avgFuelLevel;
+    }
+
+    public void setAvgFuelLevel(double avgFuelLevel) {
+        this.avgFuelLevel = avgFuelLevel;
+    }
+
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public void setMaxSpeed(double maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public void setErrorCount(long errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    public Double getMinFuelLevel() {
+        return minFuelLevel;
+    }
+
+    public void setMinFuelLevel(Double minFuelLevel) {
+        this.minFuelLevel = minFuelLevel;
+    }
+
+    public Double getMaxFuelLevel() {
+        return maxFuelLevel;
+    }
+
+    public void setMaxFuelLevel(Double maxFuelLevel) {
+        this.maxFuelLevel = maxFuelLevel;
+    }
+
+    public Double getMinEngineTemperature() {
+        return minEngineTemperature;
+    }
+
+    public void setMinEngineTemperature(Double minEngineTemperature) {
+        this.minEngineTemperature = minEngineTemperature;
+    }
+
+    public Double getMaxEngineTemperature() {
+        return maxEngineTemperature;
+    }
+
+    public void setMaxEngineTemperature(Double maxEngineTemperature) {
+        this.maxEngineTemperature = maxEngineTemperature;
+    }
+
+    public Double getSpeedP50() {
+        return speedP50;
+    }
+
+    public void setSpeedP50(Double speedP50) {
+        this.speedP50 = speedP50;
+    }
+
+    public Double getSpeedP95() {
+        return speedP95;
+    }
+
+    public void setSpeedP95(Double speedP95) {
+        this.speedP95 = speedP95;
+    }
+}
@@ -0,0 +1,17 @@
+package com.bnovauto.api.repository;
+
+import com.bnovauto.api.model.Geofence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GeofenceRepository extends JpaRepository<Geofence, Long> {
+    List<Geofence> findByCompanyId(Long companyId);
+
+    // Тройки [id, companyId, area] для построения пространственного индекса
+    @Query("SELECT g.id, g.company.id, g.area FROM Geofence g")
+    List<Object[]> findAllAreas();
+}
@@ -0,0 +1,17 @@
+package com.bnovauto.api.repository;
+
+import com.bnovauto.api.model.RouteAssignment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RouteAssignmentRepository extends JpaRepository<RouteAssignment, Long> {
+    List<RouteAssignment> findByVehicleIdAndStatus(Long vehicleId, String status);
+
+    // Пары [vehicleId, routeId] без загрузки сущностей маршрутов и ТС
+    @Query("SELECT a.vehicle.id, a.route.id FROM RouteAssignment a WHERE a.status = :status")
+    List<Object[]> findVehicleRoutePairsByStatus(String status);
+}
@@ -1,6 +1,7 @@
 package com.bnovauto.api.repository;
 
 import com.bnovauto.api.model.Route;
+import com.bnovauto.api.payload.response.RouteResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -12,13 +13,30 @@ public interface RouteRepository extends JpaRepository<Route, Long> {
     List<Route> findByCompanyId(Long companyId);
     
     // Добавленные методы
-    @Query("SELECT r FROM Route r JOIN r.vehicles v WHERE v.id = ?1")
+    @Query("SELECT a.route FROM RouteAssignment a WHERE a.vehicle.id = ?1")
     List<Route> findByVehicleId(Long vehicleId);
     
-    @Query("SELECT r FROM Route r JOIN r.drivers d WHERE d.id = ?1")
-    List<Route> findByDriverId(Long driverId);
-    
-    @Query("SELECT r FROM Route r WHERE r.status = 'ACTIVE'")
-    List<Route> findByStatusActive();
+    // Пары [id, path] для построения пространственного индекса
+    @Query("SELECT r.id, r.path FROM Route r WHERE r.path IS NOT NULL")
+    List<Object[]> findAllPaths();
+
+    // Проекции для списков в ответах API: без линии маршрута и массива расстояний
+    String SUMMARY = "SELECT new com.bnovauto.api.payload.response.RouteResponse(r.id, r.name, r.company.id, "
+            + "r.startPoint, r.endPoint, r.lengthMeters, r.minLatitude, r.minLongitude, r.maxLatitude, "
+            + "r.maxLongitude, r.createdAt, r.updatedAt) ";
+
+    @Query(SUMMARY + "FROM Route r ORDER BY r.id")
+    List<RouteResponse> findAllSummaries();
+
+    @Query(SUMMARY + "FROM Route r WHERE r.company.id = ?1 ORDER BY r.id")
+    List<RouteResponse> findSummariesByCompanyId(Long companyId);
+
+    @Query(SUMMARY + "FROM RouteAssignment a JOIN a.route r WHERE a.vehicle.id = ?1")
+    List<RouteResponse> findSummariesByVehicleId(Long vehicleId);
+
+    // Маршруты, назначенные хотя бы одному ТС (назначение в статусе status)
+    @Query(SUMMARY + "FROM Route r WHERE r.id IN "
+            + "(SELECT a.route.id FROM RouteAssignment a WHERE a.status = ?1) ORDER BY r.id")
+    List<RouteResponse> findSummariesByAssignmentStatus(String status);
 }
 
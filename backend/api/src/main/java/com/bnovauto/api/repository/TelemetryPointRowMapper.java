@@ -0,0 +1,35 @@
+package com.bnovauto.api.repository;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Отображение строки таблицы telemetry в TelemetryPoint для запросов через JdbcTemplate.
+ * Координаты ожидаются в колонках latitude/longitude (ST_Y/ST_X от location).
+ */
+public class TelemetryPointRowMapper implements RowMapper<TelemetryPoint> {
+
+    public static final TelemetryPointRowMapper INSTANCE = new TelemetryPointRowMapper();
+
+    public static final String COLUMNS =
+            "vehicle_id, timestamp, ST_Y(location) AS latitude, ST_X(location) AS longitude, speed, fuel_level, "
+            + "engine_temperature, engine_rpm, battery_voltage, error_code";
+
+    @Override
+    public TelemetryPoint mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new TelemetryPoint(
+                rs.getLong("vehicle_id"),
+                rs.getTimestamp("timestamp").toLocalDateTime(),
+                rs.getDouble("latitude"),
+                rs.getDouble("longitude"),
+                rs.getObject("speed", Double.class),
+                rs.getObject("fuel_level", Double.class),
+                rs.getObject("engine_temperature", Double.class),
+                rs.getObject("engine_rpm", Integer.class),
+                rs.getObject("battery_voltage", Double.class),
+                rs.getString("error_code"));
+    }
+}
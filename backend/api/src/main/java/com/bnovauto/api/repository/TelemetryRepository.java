@@ -1,7 +1,9 @@
 package com.bnovauto.api.repository;
 
 import com.bnovauto.api.model.Telemetry;
+import com.bnovauto.api.payload.response.TelemetryPoint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -13,4 +15,17 @@ public interface TelemetryRepository extends JpaRepository<Telemetry, Long> {
     List<Telemetry> findByVehicleId(Long vehicleId);
     List<Telemetry> findByVehicleIdAndTimestampBetween(Long vehicleId, LocalDateTime startTime, LocalDateTime endTime);
     Optional<Telemetry> findTopByVehicleIdOrderByTimestampDesc(Long vehicleId);
+
+    // Проекции в TelemetryPoint: без загрузки Vehicle и Company на каждую запись.
+    // Координаты в TelemetryPoint примитивные, записи без location пропускаются
+    String POINT = "SELECT new com.bnovauto.api.payload.response.TelemetryPoint(t.vehicle.id, t.timestamp, "
+            + "cast(function('ST_Y', t.location) as double), cast(function('ST_X', t.location) as double), "
+            + "t.speed, t.fuelLevel, t.engineTemperature, t.engineRpm, t.batteryVoltage, t.errorCode) ";
+
+    @Query(POINT + "FROM Telemetry t WHERE t.vehicle.id = ?1 AND t.location IS NOT NULL ORDER BY t.timestamp")
+    List<TelemetryPoint> findPointsByVehicleId(Long vehicleId);
+
+    @Query(POINT + "FROM Telemetry t WHERE t.vehicle.id = ?1 AND t.location IS NOT NULL "
+            + "AND t.timestamp BETWEEN ?2 AND ?3 ORDER BY t.timestamp")
+    List<TelemetryPoint> findPointsByVehicleIdAndTimestampBetween(Long vehicleId, LocalDateTime startTime, LocalDateTime endTime);
 }
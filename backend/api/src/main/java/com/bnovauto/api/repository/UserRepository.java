@@ -3,6 +3,7 @@ package com.bnovauto.api.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,13 +12,27 @@ import com.bnovauto.api.model.User;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+  // Роли нужны при каждой аутентификации, поэтому загружаются тем же запросом
+  @EntityGraph(attributePaths = "roles")
   Optional<User> findByUsername(String username);
 
   Boolean existsByUsername(String username);
 
   Boolean existsByEmail(String email);
 
+  // Пользователи возвращаются в ответах API вместе с компанией и ролями:
+  // одним запросом вместо отдельного запроса на каждого пользователя
+  @Override
+  @EntityGraph(attributePaths = {"company", "roles"})
+  List<User> findAll();
+
+  @Override
+  @EntityGraph(attributePaths = {"company", "roles"})
+  Optional<User> findById(Long id);
+
+  @EntityGraph(attributePaths = {"company", "roles"})
   List<User> findByCompanyId(Long companyId);
 
+  @EntityGraph(attributePaths = {"company", "roles"})
   List<User> findByRolesContaining(Role role);
 }
\ No newline at end of file
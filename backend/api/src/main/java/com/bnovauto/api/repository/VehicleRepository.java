@@ -2,6 +2,7 @@ package com.bnovauto.api.repository;
 
 import com.bnovauto.api.model.Vehicle;
 import com.bnovauto.api.model.Company;
+import com.bnovauto.api.payload.response.VehicleResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -21,4 +22,14 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     
     @Query("SELECT v FROM Vehicle v JOIN v.company c WHERE c.id = :companyId AND v.status = :status")
     List<Vehicle> findByCompanyIdAndStatus(Long companyId, String status);
+
+    // Проекции для ответов API: только нужные колонки, компания по внешнему ключу без соединения
+    @Query("SELECT new com.bnovauto.api.payload.response.VehicleResponse(v.id, v.name, v.model, v.licensePlate, "
+            + "v.year, v.status, v.company.id, v.createdAt, v.updatedAt) FROM Vehicle v ORDER BY v.id")
+    List<VehicleResponse> findAllSummaries();
+
+    @Query("SELECT new com.bnovauto.api.payload.response.VehicleResponse(v.id, v.name, v.model, v.licensePlate, "
+            + "v.year, v.status, v.company.id, v.createdAt, v.updatedAt) FROM Vehicle v "
+            + "WHERE v.company.id = ?1 ORDER BY v.id")
+    List<VehicleResponse> findSummariesByCompanyId(Long companyId);
 }
@@ -1,12 +1,14 @@
 package com.bnovauto.api.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.bnovauto.api.config.CacheConfig;
 import com.bnovauto.api.model.User;
 import com.bnovauto.api.repository.UserRepository;
 
@@ -15,8 +17,13 @@ public class UserDetailsServiceImpl implements UserDetailsService {
   @Autowired
   UserRepository userRepository;
 
+  /**
+   * Результат кэшируется по имени пользователя; UserService сбрасывает запись
+   * при изменении пароля, ролей или удалении пользователя
+   */
   @Override
-  @Transactional
+  @Transactional(readOnly = true)
+  @Cacheable(cacheNames = CacheConfig.PRINCIPALS)
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
     User user = userRepository.findByUsername(username)
         .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + username));
@@ -62,6 +62,8 @@ public class WebSecurityConfig {
                     .requestMatchers("/api/driver/**").hasRole("DRIVER")
                     .requestMatchers("/api/director/**").hasRole("DIRECTOR")
                     .requestMatchers("/api/support/**").hasRole("SUPPORT")
+                    .requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+                    .requestMatchers("/actuator/**").hasAnyRole("DIRECTOR", "SUPPORT")
                     .anyRequest().authenticated()
             );
         
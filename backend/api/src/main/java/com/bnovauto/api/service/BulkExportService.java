@@ -0,0 +1,240 @@
+package com.bnovauto.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковая выгрузка транспортных средств и маршрутов в форматах массового
+ * импорта (BulkImportService). Строки пишутся по мере чтения через курсор
+ * пула аналитики, геометрию в GeoJSON и WKT готовит PostGIS.
+ */
+@Service
+public class BulkExportService {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int STREAM_FLUSH_ROWS = 1000;
+
+    private static final String VEHICLE_CSV_HEADER = "id,name,model,license_plate,year,status,company_id\n";
+    private static final String ROUTE_CSV_HEADER = "id,name,company_id,length_meters,path\n";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public BulkExportService(@Qualifier("analyticsDataSource") DataSource analyticsDataSource,
+                             @Qualifier("analyticsTransactionManager") PlatformTransactionManager analyticsTransactionManager,
+                             ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // PostgreSQL отдает строки порциями по fetchSize только внутри транзакции
+        this.streamingJdbcTemplate = new JdbcTemplate(analyticsDataSource);
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(analyticsTransactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public static MediaType getContentType(String format) {
+        if (BulkImportService.FORMAT_CSV.equals(format)) {
+            return new MediaType("text", "csv", StandardCharsets.UTF_8);
+        }
+        if (BulkImportService.FORMAT_GEOJSON.equals(format)) {
+            return new MediaType("application", "geo+json");
+        }
+        return MediaType.APPLICATION_NDJSON;
+    }
+
+    /**
+     * Выгрузка транспортных средств
+     *
+     * @param companyId ID компании или null для всего парка
+     * @param format csv или ndjson
+     * @param out Поток ответа
+     */
+    public void exportVehicles(Long companyId, String format, OutputStream out) throws IOException {
+        if (!BulkImportService.isSupportedVehicleFormat(format)) {
+            throw new IllegalArgumentException("Unsupported vehicle export format: " + format);
+        }
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, name, model, license_plate, year, status, company_id FROM vehicles");
+        List<Object> params = new ArrayList<>();
+        appendCompanyFilter(sql, params, companyId);
+
+        if (BulkImportService.FORMAT_CSV.equals(format)) {
+            Writer csv = newWriter(out);
+            csv.write(VEHICLE_CSV_HEADER);
+            stream(sql.toString(), params, csv::flush, rs -> {
+                csv.write(Long.toString(rs.getLong("id")));
+                CsvUtils.writeValue(csv, rs.getString("name"));
+                CsvUtils.writeValue(csv, rs.getString("model"));
+                CsvUtils.writeValue(csv, rs.getString("license_plate"));
+                CsvUtils.writeValue(csv, rs.getObject("year"));
+                CsvUtils.writeValue(csv, rs.getString("status"));
+                CsvUtils.writeValue(csv, rs.getObject("company_id"));
+                csv.write('\n');
+            });
+            csv.flush();
+            return;
+        }
+
+        JsonGenerator generator = newGenerator(out);
+        stream(sql.toString(), params, generator::flush, rs -> {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            generator.writeStringField("name", rs.getString("name"));
+            generator.writeStringField("model", rs.getString("model"));
+            generator.writeStringField("licensePlate", rs.getString("license_plate"));
+            writeNullableNumber(generator, "year", rs.getObject("year", Integer.class));
+            generator.writeStringField("status", rs.getString("status"));
+            generator.writeNumberField("companyId", rs.getLong("company_id"));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        });
+        generator.flush();
+    }
+
+    /**
+     * Выгрузка маршрутов
+     *
+     * @param companyId ID компании или null для всех маршрутов
+     * @param format geojson, ndjson или csv
+     * @param out Поток ответа
+     */
+    public void exportRoutes(Long companyId, String format, OutputStream out) throws IOException {
+        if (!BulkImportService.isSupportedRouteFormat(format)) {
+            throw new IllegalArgumentException("Unsupported route export format: " + format);
+        }
+        boolean csvFormat = BulkImportService.FORMAT_CSV.equals(format);
+        StringBuilder sql = new StringBuilder("SELECT id, name, company_id, length_meters, ")
+                .append(csvFormat ? "ST_AsText(path)" : "ST_AsGeoJSON(path)")
+                .append(" AS geometry FROM routes");
+        List<Object> params = new ArrayList<>();
+        appendCompanyFilter(sql, params, companyId);
+
+        if (csvFormat) {
+            Writer csv = newWriter(out);
+            csv.write(ROUTE_CSV_HEADER);
+            stream(sql.toString(), params, csv::flush, rs -> {
+                csv.write(Long.toString(rs.getLong("id")));
+                CsvUtils.writeValue(csv, rs.getString("name"));
+                CsvUtils.writeValue(csv, rs.getObject("company_id"));
+                CsvUtils.writeValue(csv, rs.getObject("length_meters"));
+                CsvUtils.writeValue(csv, rs.getString("geometry"));
+                csv.write('\n');
+            });
+            csv.flush();
+            return;
+        }
+
+        boolean collection = BulkImportService.FORMAT_GEOJSON.equals(format);
+        JsonGenerator generator = newGenerator(out);
+        if (collection) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "FeatureCollection");
+            generator.writeArrayFieldStart("features");
+        }
+        stream(sql.toString(), params, generator::flush, rs -> {
+            generator.writeStartObject();
+            generator.writeStringField("type", "Feature");
+            generator.writeNumberField("id", rs.getLong("id"));
+            // Геометрия уже в GeoJSON и вставляется без разбора
+            String geometry = rs.getString("geometry");
+            generator.writeFieldName("geometry");
+            if (geometry != null) {
+                generator.writeRawValue(geometry);
+            } else {
+                generator.writeNull();
+            }
+            generator.writeObjectFieldStart("properties");
+            generator.writeStringField("name", rs.getString("name"));
+            generator.writeNumberField("companyId", rs.getLong("company_id"));
+            writeNullableNumber(generator, "lengthMeters", rs.getObject("length_meters", Double.class));
+            generator.writeEndObject();
+            generator.writeEndObject();
+            if (!collection) {
+                generator.writeRaw('\n');
+            }
+        });
+        if (collection) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.flush();
+    }
+
+    private void stream(String sql, List<Object> params, Flusher flusher, RowWriter rowWriter) throws IOException {
+        int[] rows = new int[1];
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    streamingJdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                        try {
+                            rowWriter.write(rs);
+                            // Первая строка уходит клиенту сразу, дальше сбрасываем порциями
+                            if (++rows[0] % STREAM_FLUSH_ROWS == 1) {
+                                flusher.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, params.toArray()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void appendCompanyFilter(StringBuilder sql, List<Object> params, Long companyId) {
+        if (companyId != null) {
+            sql.append(" WHERE company_id = ?");
+            params.add(companyId);
+        }
+        sql.append(" ORDER BY id");
+    }
+
+    private static void writeNullableNumber(JsonGenerator generator, String field, Number value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else if (value instanceof Integer) {
+            generator.writeNumberField(field, value.intValue());
+        } else {
+            generator.writeNumberField(field, value.doubleValue());
+        }
+    }
+
+    private static Writer newWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private JsonGenerator newGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private interface Flusher {
+        void flush() throws IOException;
+    }
+}
@@ -0,0 +1,660 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.model.Company;
+import com.bnovauto.api.payload.response.ImportReportResponse;
+import com.bnovauto.api.payload.response.ImportRowError;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Массовый импорт транспортных средств и маршрутов компании. Вход читается
+ * потоком и обрабатывается порциями по chunkSize строк: уникальность номеров
+ * проверяется одним запросом на порцию, ID выделяются из последовательности
+ * одним запросом, запись идет пакетом JDBC в отдельной транзакции на порцию.
+ * Линии маршрутов разбираются и считаются параллельно. Ошибочные строки не
+ * прерывают импорт и попадают в отчет.
+ *
+ * Форматы: ТС - CSV (заголовок name,model,license_plate,year) и NDJSON
+ * ({"name","model","licensePlate","year"}); маршруты - GeoJSON FeatureCollection,
+ * NDJSON с одним Feature на строку и CSV (заголовок name,path, path в WKT).
+ * Выгрузки BulkExportService читаются импортом без изменений.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_GEOJSON = "geojson";
+
+    private static final String VEHICLE_INSERT_SQL =
+            "INSERT INTO vehicles (id, name, model, license_plate, year, status, company_id, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, 'ACTIVE', ?, ?, ?)";
+
+    private static final String ROUTE_INSERT_SQL =
+            "INSERT INTO routes (id, name, company_id, path, start_point, end_point, length_meters, "
+            + "cumulative_distances, min_latitude, min_longitude, max_latitude, max_longitude, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ST_GeomFromWKB(?, 4326), ST_SetSRID(ST_MakePoint(?, ?), 4326), "
+            + "ST_SetSRID(ST_MakePoint(?, ?), 4326), ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String EXISTING_PLATES_SQL =
+            "SELECT license_plate FROM vehicles WHERE license_plate = ANY(?)";
+
+    private static final String ALLOCATE_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence(?, 'id')) FROM generate_series(1, ?)";
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final ObjectMapper objectMapper;
+    private final ReferenceDataCache referenceCache;
+    private final VehiclePositionStore positionStore;
+    private final RouteGeometryIndex routeIndex;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    @Autowired
+    public BulkImportService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             ReferenceDataCache referenceCache,
+                             VehiclePositionStore positionStore,
+                             RouteGeometryIndex routeIndex,
+                             @Value("${bnovauto.import.chunkSize}") int chunkSize,
+                             @Value("${bnovauto.import.maxErrors}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.referenceCache = referenceCache;
+        this.positionStore = positionStore;
+        this.routeIndex = routeIndex;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public static boolean isSupportedVehicleFormat(String format) {
+        return FORMAT_CSV.equals(format) || FORMAT_NDJSON.equals(format);
+    }
+
+    public static boolean isSupportedRouteFormat(String format) {
+        return FORMAT_CSV.equals(format) || FORMAT_NDJSON.equals(format) || FORMAT_GEOJSON.equals(format);
+    }
+
+    /**
+     * Импорт транспортных средств компании
+     *
+     * @param companyId ID компании
+     * @param format csv или ndjson
+     * @param in Тело запроса
+     * @return Отчет об импорте
+     */
+    public ImportReportResponse importVehicles(Long companyId, String format, InputStream in) throws IOException {
+        if (!isSupportedVehicleFormat(format)) {
+            throw new IllegalArgumentException("Unsupported vehicle import format: " + format);
+        }
+        Company company = requireCompany(companyId);
+        ImportContext context = new ImportContext("vehicles", format, maxErrors);
+        List<VehicleRow> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = newReader(in);
+        if (FORMAT_CSV.equals(format)) {
+            Map<String, Integer> header = readCsvHeader(reader, "name", "license_plate");
+            Integer modelColumn = header.get("model");
+            Integer yearColumn = header.get("year");
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                context.totalRows++;
+                try {
+                    List<String> values = CsvUtils.parseLine(line);
+                    chunk.add(toVehicleRow(lineNumber, value(values, header.get("name")),
+                            value(values, modelColumn), value(values, header.get("license_plate")),
+                            value(values, yearColumn)));
+                } catch (IllegalArgumentException e) {
+                    context.fail(lineNumber, e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeVehicles(company, chunk, context);
+                }
+            }
+        } else {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                context.totalRows++;
+                try {
+                    JsonNode node = readJsonLine(line);
+                    chunk.add(toVehicleRow(lineNumber, text(node, "name"), text(node, "model"),
+                            text(node, "licensePlate"), text(node, "year")));
+                } catch (IllegalArgumentException e) {
+                    context.fail(lineNumber, e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeVehicles(company, chunk, context);
+                }
+            }
+        }
+        writeVehicles(company, chunk, context);
+        return context.toResponse();
+    }
+
+    /**
+     * Импорт маршрутов компании
+     *
+     * @param companyId ID компании
+     * @param format geojson, ndjson или csv
+     * @param in Тело запроса
+     * @return Отчет об импорте
+     */
+    public ImportReportResponse importRoutes(Long companyId, String format, InputStream in) throws IOException {
+        if (!isSupportedRouteFormat(format)) {
+            throw new IllegalArgumentException("Unsupported route import format: " + format);
+        }
+        Company company = requireCompany(companyId);
+        ImportContext context = new ImportContext("routes", format, maxErrors);
+        List<RouteRow> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = newReader(in);
+        if (FORMAT_GEOJSON.equals(format)) {
+            readFeatureCollection(reader, company, chunk, context);
+        } else if (FORMAT_NDJSON.equals(format)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                context.totalRows++;
+                try {
+                    chunk.add(toRouteRow(lineNumber, readJsonLine(line)));
+                } catch (IllegalArgumentException e) {
+                    context.fail(lineNumber, e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeRoutes(company, chunk, context);
+                }
+            }
+        } else {
+            Map<String, Integer> header = readCsvHeader(reader, "name", "path");
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                context.totalRows++;
+                try {
+                    List<String> values = CsvUtils.parseLine(line);
+                    String wkt = value(values, header.get("path"));
+                    if (wkt == null) {
+                        throw new IllegalArgumentException("path is required");
+                    }
+                    chunk.add(new RouteRow(lineNumber, requireName(value(values, header.get("name"))), null, wkt));
+                } catch (IllegalArgumentException e) {
+                    context.fail(lineNumber, e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeRoutes(company, chunk, context);
+                }
+            }
+        }
+        writeRoutes(company, chunk, context);
+        return context.toResponse();
+    }
+
+    // GeoJSON читается потоком: в памяти одновременно только один Feature
+    private void readFeatureCollection(BufferedReader reader, Company company, List<RouteRow> chunk,
+                                       ImportContext context) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("GeoJSON FeatureCollection expected");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (!"features".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (token != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("GeoJSON features must be an array");
+                }
+                int featureNumber = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    featureNumber++;
+                    context.totalRows++;
+                    JsonNode feature = parser.readValueAsTree();
+                    try {
+                        chunk.add(toRouteRow(featureNumber, feature));
+                    } catch (IllegalArgumentException e) {
+                        context.fail(featureNumber, e.getMessage());
+                    }
+                    if (chunk.size() >= chunkSize) {
+                        writeRoutes(company, chunk, context);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeVehicles(Company company, List<VehicleRow> chunk, ImportContext context) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<VehicleRow> rows = new ArrayList<>(chunk.size());
+        List<String> plates = new ArrayList<>(chunk.size());
+        for (VehicleRow row : chunk) {
+            if (context.seenKeys.add(row.licensePlate())) {
+                rows.add(row);
+                plates.add(row.licensePlate());
+            } else {
+                context.fail(row.row(), "Duplicate license plate in file: " + row.licensePlate());
+            }
+        }
+        chunk.clear();
+
+        // Номера, уже зарегистрированные в системе, одним запросом на порцию
+        Set<String> existing = findExistingPlates(plates);
+        if (!existing.isEmpty()) {
+            List<VehicleRow> unique = new ArrayList<>(rows.size());
+            for (VehicleRow row : rows) {
+                if (existing.contains(row.licensePlate())) {
+                    context.fail(row.row(), "License plate is already registered: " + row.licensePlate());
+                } else {
+                    unique.add(row);
+                }
+            }
+            rows = unique;
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        final List<VehicleRow> toInsert = rows;
+        final List<Long> ids;
+        try {
+            ids = allocateIds("vehicles", toInsert.size());
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            chunkTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(VEHICLE_INSERT_SQL, new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            VehicleRow row = toInsert.get(i);
+                            ps.setLong(1, ids.get(i));
+                            ps.setString(2, row.name());
+                            ps.setString(3, row.model());
+                            ps.setString(4, row.licensePlate());
+                            ps.setObject(5, row.year(), Types.INTEGER);
+                            ps.setLong(6, company.getId());
+                            ps.setTimestamp(7, now);
+                            ps.setTimestamp(8, now);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return toInsert.size();
+                        }
+                    }));
+        } catch (DataAccessException e) {
+            failChunk(toInsert.stream().map(VehicleRow::row).toList(), e, context);
+            return;
+        }
+
+        for (Long id : ids) {
+            positionStore.registerVehicle(id, company.getId());
+        }
+        context.importedRows += toInsert.size();
+    }
+
+    private void writeRoutes(Company company, List<RouteRow> chunk, ImportContext context) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // Разбор геометрии и расчет метрик линии не зависят друг от друга
+        List<PreparedRoute> prepared = chunk.parallelStream()
+                .map(BulkImportService::prepareRoute)
+                .toList();
+        chunk.clear();
+
+        List<PreparedRoute> rows = new ArrayList<>(prepared.size());
+        for (PreparedRoute route : prepared) {
+            if (route.error() != null) {
+                context.fail(route.row(), route.error());
+            } else {
+                rows.add(route);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        final List<PreparedRoute> toInsert = rows;
+        final List<Long> ids;
+        try {
+            ids = allocateIds("routes", toInsert.size());
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            chunkTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(ROUTE_INSERT_SQL, new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            PreparedRoute route = toInsert.get(i);
+                            RouteMetrics metrics = route.metrics();
+                            Coordinate start = route.path().getCoordinateN(0);
+                            Coordinate end = route.path().getCoordinateN(route.path().getNumPoints() - 1);
+                            ps.setLong(1, ids.get(i));
+                            ps.setString(2, route.name());
+                            ps.setLong(3, company.getId());
+                            ps.setBytes(4, route.wkb());
+                            ps.setDouble(5, start.x);
+                            ps.setDouble(6, start.y);
+                            ps.setDouble(7, end.x);
+                            ps.setDouble(8, end.y);
+                            ps.setDouble(9, metrics.getLengthMeters());
+                            ps.setArray(10, toSqlArray(ps, metrics.getCumulativeDistances()));
+                            ps.setDouble(11, metrics.getMinLatitude());
+                            ps.setDouble(12, metrics.getMinLongitude());
+                            ps.setDouble(13, metrics.getMaxLatitude());
+                            ps.setDouble(14, metrics.getMaxLongitude());
+                            ps.setTimestamp(15, now);
+                            ps.setTimestamp(16, now);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return toInsert.size();
+                        }
+                    }));
+        } catch (DataAccessException e) {
+            failChunk(toInsert.stream().map(PreparedRoute::row).toList(), e, context);
+            return;
+        }
+
+        Map<Long, LineString> paths = new HashMap<>(toInsert.size() * 2);
+        for (int i = 0; i < toInsert.size(); i++) {
+            paths.put(ids.get(i), toInsert.get(i).path());
+        }
+        routeIndex.refreshAll(paths);
+        context.importedRows += toInsert.size();
+    }
+
+    private static PreparedRoute prepareRoute(RouteRow row) {
+        try {
+            LineString path = row.geometry() != null ? parseGeoJsonLine(row.geometry()) : parseWktLine(row.wkt());
+            if (path.getNumPoints() < 2) {
+                throw new IllegalArgumentException("Route path must have at least 2 points");
+            }
+            RouteMetrics metrics = RouteMetrics.compute(path);
+            byte[] wkb = new WKBWriter().write(path);
+            return new PreparedRoute(row.row(), row.name(), path, metrics, wkb, null);
+        } catch (IllegalArgumentException e) {
+            return new PreparedRoute(row.row(), row.name(), null, null, null, e.getMessage());
+        }
+    }
+
+    private static LineString parseGeoJsonLine(JsonNode geometry) {
+        if (!"LineString".equals(geometry.path("type").asText())) {
+            throw new IllegalArgumentException("Geometry must be a LineString");
+        }
+        JsonNode coordinatesNode = geometry.get("coordinates");
+        if (coordinatesNode == null || !coordinatesNode.isArray()) {
+            throw new IllegalArgumentException("LineString coordinates must be an array");
+        }
+        // Порядок координат GeoJSON: [долгота, широта], как и в JTS
+        Coordinate[] coordinates = new Coordinate[coordinatesNode.size()];
+        for (int i = 0; i < coordinates.length; i++) {
+            JsonNode position = coordinatesNode.get(i);
+            if (!position.isArray() || position.size() < 2
+                    || !position.get(0).isNumber() || !position.get(1).isNumber()) {
+                throw new IllegalArgumentException("Invalid position at index " + i);
+            }
+            coordinates[i] = validCoordinate(position.get(0).asDouble(), position.get(1).asDouble());
+        }
+        return GeometryUtils.GEOMETRY_FACTORY.createLineString(coordinates);
+    }
+
+    private static LineString parseWktLine(String wkt) {
+        Geometry geometry;
+        try {
+            // WKTReader хранит состояние разбора, поэтому свой на каждый вызов
+            geometry = new WKTReader(GeometryUtils.GEOMETRY_FACTORY).read(wkt);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid WKT: " + e.getMessage());
+        }
+        if (!(geometry instanceof LineString line)) {
+            throw new IllegalArgumentException("Geometry must be a LineString");
+        }
+        for (Coordinate coordinate : line.getCoordinates()) {
+            validCoordinate(coordinate.x, coordinate.y);
+        }
+        return line;
+    }
+
+    private static Coordinate validCoordinate(double longitude, double latitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinate out of range: " + longitude + " " + latitude);
+        }
+        return new Coordinate(longitude, latitude);
+    }
+
+    private VehicleRow toVehicleRow(int row, String name, String model, String licensePlate, String year) {
+        if (licensePlate == null || licensePlate.isBlank()) {
+            throw new IllegalArgumentException("License plate is required");
+        }
+        Integer parsedYear = null;
+        if (year != null && !year.isBlank()) {
+            try {
+                parsedYear = Integer.valueOf(year.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid year: " + year);
+            }
+        }
+        return new VehicleRow(row, requireName(name), model, licensePlate.trim(), parsedYear);
+    }
+
+    private RouteRow toRouteRow(int row, JsonNode feature) {
+        if (!feature.isObject() || !"Feature".equals(feature.path("type").asText())) {
+            throw new IllegalArgumentException("GeoJSON Feature expected");
+        }
+        JsonNode geometry = feature.get("geometry");
+        if (geometry == null || !geometry.isObject()) {
+            throw new IllegalArgumentException("Feature geometry is required");
+        }
+        return new RouteRow(row, requireName(text(feature.path("properties"), "name")), geometry, null);
+    }
+
+    private static String requireName(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Name is too long");
+        }
+        return name.trim();
+    }
+
+    private Company requireCompany(Long companyId) {
+        Company company = referenceCache.getCompany(companyId);
+        if (company == null) {
+            throw new IllegalArgumentException("Company not found with id: " + companyId);
+        }
+        return company;
+    }
+
+    private Set<String> findExistingPlates(List<String> plates) {
+        Set<String> existing = new HashSet<>();
+        if (plates.isEmpty()) {
+            return existing;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXISTING_PLATES_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", plates.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            existing.add(rs.getString(1));
+        });
+        return existing;
+    }
+
+    // ID выделяются заранее, чтобы пакетная вставка обошлась без RETURNING
+    private List<Long> allocateIds(String table, int count) {
+        return jdbcTemplate.queryForList(ALLOCATE_IDS_SQL, Long.class, table, count);
+    }
+
+    private static Array toSqlArray(PreparedStatement ps, double[] values) throws SQLException {
+        Double[] boxed = new Double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return ps.getConnection().createArrayOf("float8", boxed);
+    }
+
+    private static void failChunk(List<Integer> rows, DataAccessException e, ImportContext context) {
+        // Порция откатывается целиком, например при гонке с параллельной регистрацией номера
+        String message = "Chunk rejected: " + e.getMostSpecificCause().getMessage();
+        logger.warn("Import chunk of {} {} rejected: {}", rows.size(), context.entity, message);
+        for (Integer row : rows) {
+            context.fail(row, message);
+        }
+    }
+
+    private BufferedReader newReader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private JsonNode readJsonLine(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> readCsvHeader(BufferedReader reader, String... required) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        // Отметка порядка байтов, которую добавляют табличные редакторы
+        if (!line.isEmpty() && line.charAt(0) == '\uFEFF') {
+            line = line.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = CsvUtils.parseLine(line);
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i) != null) {
+                columns.put(names.get(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+        for (String column : required) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("CSV column is missing: " + column);
+            }
+        }
+        return columns;
+    }
+
+    private static String value(List<String> values, Integer column) {
+        return column == null || column >= values.size() ? null : values.get(column);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private record VehicleRow(int row, String name, String model, String licensePlate, Integer year) {
+    }
+
+    // geometry для GeoJSON и NDJSON, wkt для CSV
+    private record RouteRow(int row, String name, JsonNode geometry, String wkt) {
+    }
+
+    private record PreparedRoute(int row, String name, LineString path, RouteMetrics metrics, byte[] wkb,
+                                 String error) {
+    }
+
+    private static final class ImportContext {
+        private final String entity;
+        private final String format;
+        private final int maxErrors;
+        private final long startedAt = System.nanoTime();
+        private final List<ImportRowError> errors = new ArrayList<>();
+        // Ключи уже прочитанных строк для поиска дубликатов внутри файла
+        private final Set<String> seenKeys = new HashSet<>();
+        private int totalRows;
+        private int importedRows;
+        private int failedRows;
+
+        private ImportContext(String entity, String format, int maxErrors) {
+            this.entity = entity;
+            this.format = format;
+            this.maxErrors = maxErrors;
+        }
+
+        private void fail(int row, String message) {
+            failedRows++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportRowError(row, message));
+            }
+        }
+
+        private ImportReportResponse toResponse() {
+            long durationMs = (System.nanoTime() - startedAt) / 1_000_000;
+            logger.info("Imported {} of {} {} ({} failed) in {} ms",
+                    importedRows, totalRows, entity, failedRows, durationMs);
+            return new ImportReportResponse(entity, format, totalRows, importedRows, failedRows,
+                    errors, failedRows > errors.size(), durationMs);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.bnovauto.api.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение и запись CSV (RFC 4180 без переносов строк внутри значений)
+ * для выгрузок и массового импорта
+ */
+final class CsvUtils {
+
+    private CsvUtils() {
+    }
+
+    /**
+     * Пишет значение с предшествующей запятой. Значения с запятой, кавычкой
+     * или переводом строки берутся в кавычки.
+     */
+    static void writeValue(Writer csv, Object value) throws IOException {
+        csv.write(',');
+        writeFirstValue(csv, value);
+    }
+
+    static void writeFirstValue(Writer csv, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+            csv.write('"');
+            csv.write(text.replace("\"", "\"\""));
+            csv.write('"');
+        } else {
+            csv.write(text);
+        }
+    }
+
+    /**
+     * Разбирает строку CSV на значения. Пустое значение возвращается как null.
+     *
+     * @throws IllegalArgumentException Если кавычка не закрыта
+     */
+    static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                values.add(toValue(value, wasQuoted));
+                value.setLength(0);
+                wasQuoted = false;
+            } else if (c != '\r') {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(toValue(value, wasQuoted));
+        return values;
+    }
+
+    private static String toValue(StringBuilder value, boolean wasQuoted) {
+        String text = wasQuoted ? value.toString() : value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+}
@@ -0,0 +1,141 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.FleetMapResponse;
+import com.bnovauto.api.payload.response.MapCluster;
+import com.bnovauto.api.payload.response.MapVehicle;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запросы карты парка по последним положениям из VehiclePositionStore:
+ * прямоугольник видимой области или круг вокруг точки. На мелком масштабе
+ * или при большом числе ТС в области ответ сворачивается в кластеры по сетке,
+ * размер ячейки которой зависит от масштаба.
+ */
+@Service
+public class FleetMapService {
+
+    private static final int MAX_ZOOM = 22;
+
+    // Ячейка кластеризации - четверть тайла карты по каждой оси (около 64 пикселей)
+    private static final int CLUSTER_CELLS_PER_TILE = 4;
+
+    private final VehiclePositionStore positionStore;
+    private final int clusterMaxZoom;
+    private final int maxVehicles;
+    private final Timer queryTimer;
+
+    @Autowired
+    public FleetMapService(VehiclePositionStore positionStore,
+                           MeterRegistry meterRegistry,
+                           @Value("${bnovauto.map.clusterMaxZoom}") int clusterMaxZoom,
+                           @Value("${bnovauto.map.maxVehicles}") int maxVehicles) {
+        this.positionStore = positionStore;
+        this.clusterMaxZoom = clusterMaxZoom;
+        this.maxVehicles = maxVehicles;
+        this.queryTimer = Timer.builder("fleet.map.query").register(meterRegistry);
+    }
+
+    /**
+     * ТС в прямоугольнике видимой области карты
+     *
+     * @param zoom Масштаб карты (необязательно, по умолчанию оценивается по ширине области)
+     * @param companyId ID компании (необязательно)
+     */
+    public FleetMapResponse findInBox(double minLat, double minLon, double maxLat, double maxLon,
+                                      Integer zoom, Long companyId) {
+        validateBox(minLat, minLon, maxLat, maxLon);
+        return queryTimer.record(() -> {
+            List<TelemetryPoint> points = new ArrayList<>();
+            positionStore.forEachInBox(minLat, minLon, maxLat, maxLon, companyId, points::add);
+            return toResponse(points, zoom != null ? zoom : estimateZoom(minLon, maxLon));
+        });
+    }
+
+    /**
+     * ТС в круге заданного радиуса вокруг точки
+     *
+     * @param radiusMeters Радиус в метрах
+     * @param zoom Масштаб карты (необязательно, по умолчанию оценивается по радиусу)
+     * @param companyId ID компании (необязательно)
+     */
+    public FleetMapResponse findInRadius(double latitude, double longitude, double radiusMeters,
+                                         Integer zoom, Long companyId) {
+        if (radiusMeters <= 0) {
+            throw new IllegalArgumentException("Radius must be positive");
+        }
+        // Описанный прямоугольник по сетке, затем точная проверка расстояния
+        double latDelta = radiusMeters / GeometryUtils.METERS_PER_DEGREE;
+        double cosLatitude = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        double lonDelta = latDelta / cosLatitude;
+        double minLat = Math.max(latitude - latDelta, -90);
+        double maxLat = Math.min(latitude + latDelta, 90);
+        double minLon = Math.max(longitude - lonDelta, -180);
+        double maxLon = Math.min(longitude + lonDelta, 180);
+
+        return queryTimer.record(() -> {
+            List<TelemetryPoint> points = new ArrayList<>();
+            positionStore.forEachInBox(minLat, minLon, maxLat, maxLon, companyId, point -> {
+                if (GeometryUtils.distanceMeters(latitude, longitude, point.getLatitude(), point.getLongitude()) <= radiusMeters) {
+                    points.add(point);
+                }
+            });
+            return toResponse(points, zoom != null ? zoom : estimateZoom(minLon, maxLon));
+        });
+    }
+
+    private FleetMapResponse toResponse(List<TelemetryPoint> points, int zoom) {
+        if (zoom >= clusterMaxZoom && points.size() <= maxVehicles) {
+            List<MapVehicle> vehicles = new ArrayList<>(points.size());
+            for (TelemetryPoint point : points) {
+                vehicles.add(new MapVehicle(point.getVehicleId(), point.getLatitude(), point.getLongitude(),
+                        point.getSpeed(), point.getTimestamp()));
+            }
+            return new FleetMapResponse(points.size(), false, vehicles, Collections.emptyList());
+        }
+        return new FleetMapResponse(points.size(), true, Collections.emptyList(), cluster(points, zoom));
+    }
+
+    private static List<MapCluster> cluster(List<TelemetryPoint> points, int zoom) {
+        double cellDegrees = 360.0 / (1L << Math.max(0, Math.min(zoom, MAX_ZOOM))) / CLUSTER_CELLS_PER_TILE;
+
+        // На ячейку: сумма широт, сумма долгот, количество
+        Map<Long, double[]> cells = new HashMap<>();
+        for (TelemetryPoint point : points) {
+            long x = (long) Math.floor(point.getLongitude() / cellDegrees);
+            long y = (long) Math.floor(point.getLatitude() / cellDegrees);
+            double[] cell = cells.computeIfAbsent((y << 32) | (x & 0xffffffffL), key -> new double[3]);
+            cell[0] += point.getLatitude();
+            cell[1] += point.getLongitude();
+            cell[2]++;
+        }
+
+        List<MapCluster> clusters = new ArrayList<>(cells.size());
+        for (double[] cell : cells.values()) {
+            clusters.add(new MapCluster(cell[0] / cell[2], cell[1] / cell[2], (int) cell[2]));
+        }
+        return clusters;
+    }
+
+    // Масштаб, при котором область такой ширины помещается примерно в один тайл
+    private static int estimateZoom(double minLon, double maxLon) {
+        double width = Math.max(maxLon - minLon, 1e-6);
+        return (int) Math.max(0, Math.min(MAX_ZOOM, Math.floor(Math.log(360.0 / width) / Math.log(2))));
+    }
+
+    private static void validateBox(double minLat, double minLon, double maxLat, double maxLon) {
+        if (minLat > maxLat || minLon > maxLon) {
+            throw new IllegalArgumentException("Invalid bounding box");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.bnovauto.api.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие входа транспортного средства в геозону или выхода из нее.
+ * Публикуется через ApplicationEventPublisher.
+ */
+public class GeofenceEvent {
+
+    private final long vehicleId;
+    private final long geofenceId;
+    private final boolean entered;
+    private final LocalDateTime timestamp;
+    private final double latitude;
+    private final double longitude;
+
+    public GeofenceEvent(long vehicleId, long geofenceId, boolean entered, LocalDateTime timestamp,
+                         double latitude, double longitude) {
+        this.vehicleId = vehicleId;
+        this.geofenceId = geofenceId;
+        this.entered = entered;
+        this.timestamp = timestamp;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public long getGeofenceId() {
+        return geofenceId;
+    }
+
+    /**
+     * @return true при входе в геозону, false при выходе
+     */
+    public boolean isEntered() {
+        return entered;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+}
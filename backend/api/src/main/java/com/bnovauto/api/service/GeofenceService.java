@@ -0,0 +1,337 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.model.Company;
+import com.bnovauto.api.model.Geofence;
+import com.bnovauto.api.payload.request.GeofenceRequest;
+import com.bnovauto.api.payload.response.GeofenceResponse;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.repository.GeofenceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Геозоны компаний (депо, запретные зоны, площадки клиентов) и определение
+ * входа и выхода транспортных средств по принятой телеметрии. Многоугольники
+ * хранятся подготовленными (PreparedGeometry) в STRtree. Крупные пакеты
+ * разбиваются по транспортным средствам и проверяются параллельно на всех
+ * ядрах, порядок записей одного ТС при этом сохраняется. Текущие геозоны
+ * каждого ТС хранятся в памяти, поэтому переходы определяются без запросов
+ * к истории.
+ */
+@Service
+public class GeofenceService implements TelemetryListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeofenceService.class);
+
+    private static final Set<String> TYPES = Set.of("DEPOT", "RESTRICTED", "CUSTOMER_SITE");
+
+    private final GeofenceRepository geofenceRepository;
+    private final ReferenceDataCache referenceCache;
+    private final VehiclePositionStore positionStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int parallelThreshold;
+    private final ForkJoinPool evaluationPool;
+
+    private final Map<Long, GeofenceEntry> entries = new ConcurrentHashMap<>();
+    private volatile STRtree tree = new STRtree();
+
+    // Геозоны, в которых сейчас находится каждое ТС, по его последней проверенной записи
+    private final Map<Long, VehicleState> vehicleStates = new ConcurrentHashMap<>();
+
+    private final Counter evaluationsCounter;
+    private final Counter enterCounter;
+    private final Counter exitCounter;
+    private final Timer batchTimer;
+
+    @Autowired
+    public GeofenceService(GeofenceRepository geofenceRepository,
+                           ReferenceDataCache referenceCache,
+                           VehiclePositionStore positionStore,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${bnovauto.geofence.parallelThreshold}") int parallelThreshold,
+                           @Value("${bnovauto.geofence.parallelism:0}") int parallelism) {
+        this.geofenceRepository = geofenceRepository;
+        this.referenceCache = referenceCache;
+        this.positionStore = positionStore;
+        this.eventPublisher = eventPublisher;
+        this.parallelThreshold = parallelThreshold;
+        this.evaluationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+
+        this.evaluationsCounter = meterRegistry.counter("geofence.evaluations");
+        this.enterCounter = meterRegistry.counter("geofence.events", "type", "enter");
+        this.exitCounter = meterRegistry.counter("geofence.events", "type", "exit");
+        this.batchTimer = Timer.builder("geofence.batch.duration").register(meterRegistry);
+        meterRegistry.gauge("geofence.count", entries, Map::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Object[] row : geofenceRepository.findAllAreas()) {
+            Long id = (Long) row[0];
+            entries.put(id, new GeofenceEntry(id, (Long) row[1], (Polygon) row[2]));
+        }
+        rebuildTree();
+        logger.info("Geofence index loaded: {} geofences", entries.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        evaluationPool.shutdown();
+    }
+
+    public List<GeofenceResponse> getGeofencesByCompany(Long companyId) {
+        List<GeofenceResponse> responses = new ArrayList<>();
+        for (Geofence geofence : geofenceRepository.findByCompanyId(companyId)) {
+            responses.add(toResponse(geofence));
+        }
+        return responses;
+    }
+
+    public GeofenceResponse getGeofenceById(Long id) {
+        return toResponse(findGeofence(id));
+    }
+
+    @Transactional
+    public GeofenceResponse createGeofence(GeofenceRequest request) {
+        Geofence geofence = new Geofence();
+        apply(geofence, request);
+        Geofence saved = geofenceRepository.save(geofence);
+        refreshAfterCommit(saved);
+        return toResponse(saved);
+    }
+
+    @Transactional
+    public GeofenceResponse updateGeofence(Long id, GeofenceRequest request) {
+        Geofence geofence = findGeofence(id);
+        apply(geofence, request);
+        Geofence saved = geofenceRepository.save(geofence);
+        refreshAfterCommit(saved);
+        return toResponse(saved);
+    }
+
+    @Transactional
+    public void deleteGeofence(Long id) {
+        geofenceRepository.deleteById(id);
+        TransactionUtils.afterCommit(() -> remove(id));
+    }
+
+    /**
+     * Геозоны, в которых транспортное средство находилось по последней записи
+     *
+     * @param vehicleId ID транспортного средства
+     * @return ID геозон
+     */
+    public Set<Long> getVehicleGeofences(Long vehicleId) {
+        VehicleState state = vehicleStates.get(vehicleId);
+        return state == null ? Collections.emptySet() : state.geofences;
+    }
+
+    @Override
+    public void onTelemetry(List<TelemetryPoint> points) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        STRtree snapshot = tree;
+        batchTimer.record(() -> {
+            if (points.size() < parallelThreshold) {
+                for (TelemetryPoint point : points) {
+                    evaluate(snapshot, point);
+                }
+            } else {
+                // Записи одного ТС обрабатываются одной задачей по порядку,
+                // иначе переходы между геозонами могли бы перепутаться
+                Map<Long, List<TelemetryPoint>> byVehicle = new LinkedHashMap<>();
+                for (TelemetryPoint point : points) {
+                    byVehicle.computeIfAbsent(point.getVehicleId(), id -> new ArrayList<>()).add(point);
+                }
+                evaluationPool.submit(() -> byVehicle.values().parallelStream().forEach(vehiclePoints -> {
+                    for (TelemetryPoint point : vehiclePoints) {
+                        evaluate(snapshot, point);
+                    }
+                })).join();
+            }
+        });
+        evaluationsCounter.increment(points.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void evaluate(STRtree snapshot, TelemetryPoint point) {
+        long vehicleId = point.getVehicleId();
+        Long companyId = positionStore.getCompanyId(vehicleId);
+        if (companyId == null) {
+            return;
+        }
+
+        Set<Long> inside = Collections.emptySet();
+        List<GeofenceEntry> candidates = snapshot.query(new Envelope(new Coordinate(point.getLongitude(), point.getLatitude())));
+        if (!candidates.isEmpty()) {
+            Point location = GeometryUtils.createPoint(point.getLatitude(), point.getLongitude());
+            for (GeofenceEntry candidate : candidates) {
+                if (candidate.companyId.equals(companyId) && candidate.area.covers(location)) {
+                    if (inside.isEmpty()) {
+                        inside = new HashSet<>();
+                    }
+                    inside.add(candidate.id);
+                }
+            }
+        }
+
+        // Сравнение с прежним состоянием и его замена выполняются атомарно:
+        // записи одного ТС могут одновременно проверять поток пакетной записи
+        // и поток запроса. Записи старее уже проверенной пропускаются, пакеты
+        // от трекеров приходят не по порядку
+        Set<Long> current = inside;
+        Set<Long>[] transition = new Set[1];
+        vehicleStates.compute(vehicleId, (id, state) -> {
+            if (state != null && point.getTimestamp().isBefore(state.timestamp)) {
+                return state;
+            }
+            // Первая запись ТС после запуска только задает исходное состояние
+            if (state != null && !state.geofences.equals(current)) {
+                transition[0] = state.geofences;
+            }
+            return new VehicleState(point.getTimestamp(), current);
+        });
+        Set<Long> previous = transition[0];
+        if (previous == null) {
+            return;
+        }
+        for (Long geofenceId : inside) {
+            if (!previous.contains(geofenceId)) {
+                enterCounter.increment();
+                eventPublisher.publishEvent(new GeofenceEvent(vehicleId, geofenceId, true, point.getTimestamp(),
+                        point.getLatitude(), point.getLongitude()));
+            }
+        }
+        for (Long geofenceId : previous) {
+            if (!inside.contains(geofenceId) && entries.containsKey(geofenceId)) {
+                exitCounter.increment();
+                eventPublisher.publishEvent(new GeofenceEvent(vehicleId, geofenceId, false, point.getTimestamp(),
+                        point.getLatitude(), point.getLongitude()));
+            }
+        }
+    }
+
+    private Geofence findGeofence(Long id) {
+        return geofenceRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Geofence not found with id: " + id));
+    }
+
+    private void apply(Geofence geofence, GeofenceRequest request) {
+        if (!TYPES.contains(request.getType())) {
+            throw new IllegalArgumentException("Unknown geofence type: " + request.getType());
+        }
+        Company company = referenceCache.getCompany(request.getCompanyId());
+        if (company == null) {
+            throw new IllegalArgumentException("Company not found with id: " + request.getCompanyId());
+        }
+
+        geofence.setName(request.getName());
+        geofence.setType(request.getType());
+        geofence.setCompany(company);
+        geofence.setArea(GeometryUtils.createPolygon(request.getCoordinates()));
+    }
+
+    // Индекс обновляется только после фиксации: при откате он не должен
+    // содержать геозону, которой нет в базе
+    private void refreshAfterCommit(Geofence geofence) {
+        Long id = geofence.getId();
+        Long companyId = geofence.getCompany().getId();
+        Polygon area = geofence.getArea();
+        TransactionUtils.afterCommit(() -> {
+            entries.put(id, new GeofenceEntry(id, companyId, area));
+            rebuildTree();
+        });
+    }
+
+    private void remove(Long id) {
+        if (entries.remove(id) != null) {
+            rebuildTree();
+        }
+        for (Long vehicleId : vehicleStates.keySet()) {
+            vehicleStates.computeIfPresent(vehicleId, (key, state) -> {
+                if (!state.geofences.contains(id)) {
+                    return state;
+                }
+                Set<Long> updated = new HashSet<>(state.geofences);
+                updated.remove(id);
+                return new VehicleState(state.timestamp, updated);
+            });
+        }
+    }
+
+    // STRtree после построения не изменяется, поэтому дерево собирается
+    // заново из подготовленных записей и подменяется целиком
+    private synchronized void rebuildTree() {
+        STRtree rebuilt = new STRtree();
+        for (GeofenceEntry entry : entries.values()) {
+            rebuilt.insert(entry.envelope, entry);
+        }
+        rebuilt.build();
+        tree = rebuilt;
+    }
+
+    private static GeofenceResponse toResponse(Geofence geofence) {
+        Coordinate[] ring = geofence.getArea().getExteriorRing().getCoordinates();
+        List<double[]> coordinates = new ArrayList<>(ring.length);
+        for (Coordinate coordinate : ring) {
+            coordinates.add(new double[] {coordinate.y, coordinate.x});
+        }
+        return new GeofenceResponse(geofence.getId(), geofence.getName(), geofence.getType(),
+                geofence.getCompany().getId(), coordinates);
+    }
+
+    private static final class VehicleState {
+        private final LocalDateTime timestamp;
+        private final Set<Long> geofences;
+
+        private VehicleState(LocalDateTime timestamp, Set<Long> geofences) {
+            this.timestamp = timestamp;
+            this.geofences = geofences;
+        }
+    }
+
+    private static final class GeofenceEntry {
+        private final Long id;
+        private final Long companyId;
+        private final PreparedGeometry area;
+        private final Envelope envelope;
+
+        private GeofenceEntry(Long id, Long companyId, Polygon area) {
+            this.id = id;
+            this.companyId = companyId;
+            this.area = PreparedGeometryFactory.prepare(area);
+            this.envelope = area.getEnvelopeInternal();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.bnovauto.api.service;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.List;
+
+/**
+ * Построение геометрий в системе координат WGS 84 (SRID 4326).
+ * GeometryFactory неизменяема и потокобезопасна, поэтому общая на все сервисы.
+ */
+public final class GeometryUtils {
+
+    public static final int SRID = 4326;
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    // Длина одного градуса широты в метрах
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180.0;
+
+    public static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), SRID);
+
+    private GeometryUtils() {
+    }
+
+    /**
+     * Создает точку. В JTS первой координатой идет долгота, второй широта.
+     *
+     * @param latitude Широта
+     * @param longitude Долгота
+     * @return Точка
+     */
+    public static Point createPoint(double latitude, double longitude) {
+        return GEOMETRY_FACTORY.createPoint(new Coordinate(longitude, latitude));
+    }
+
+    /**
+     * Создает линию маршрута от начальной до конечной точки через промежуточные
+     *
+     * @param startLat Широта начальной точки
+     * @param startLng Долгота начальной точки
+     * @param endLat Широта конечной точки
+     * @param endLng Долгота конечной точки
+     * @param waypoints Промежуточные точки в формате [lat1,lng1,lat2,lng2,...] (необязательно)
+     * @return Линия маршрута
+     */
+    public static LineString createPath(double startLat, double startLng, double endLat, double endLng,
+                                        List<Double> waypoints) {
+        boolean hasWaypoints = waypoints != null && waypoints.size() >= 2 && waypoints.size() % 2 == 0;
+        int waypointCount = hasWaypoints ? waypoints.size() / 2 : 0;
+
+        // Массив нужного размера сразу, без промежуточного списка
+        Coordinate[] coordinates = new Coordinate[waypointCount + 2];
+        coordinates[0] = new Coordinate(startLng, startLat);
+        for (int i = 0; i < waypointCount; i++) {
+            coordinates[i + 1] = new Coordinate(waypoints.get(2 * i + 1), waypoints.get(2 * i));
+        }
+        coordinates[coordinates.length - 1] = new Coordinate(endLng, endLat);
+
+        return GEOMETRY_FACTORY.createLineString(coordinates);
+    }
+
+    /**
+     * Создает многоугольник по вершинам. Кольцо замыкается автоматически, если
+     * последняя вершина не совпадает с первой.
+     *
+     * @param vertices Вершины в формате [[lat1,lng1],[lat2,lng2],...]
+     * @return Многоугольник
+     * @throws IllegalArgumentException если вершин меньше трех или контур самопересекается
+     */
+    public static Polygon createPolygon(List<List<Double>> vertices) {
+        if (vertices == null || vertices.size() < 3) {
+            throw new IllegalArgumentException("Polygon requires at least 3 vertices");
+        }
+        List<Double> first = vertices.get(0);
+        List<Double> last = vertices.get(vertices.size() - 1);
+        boolean closed = first.equals(last);
+
+        Coordinate[] ring = new Coordinate[closed ? vertices.size() : vertices.size() + 1];
+        for (int i = 0; i < vertices.size(); i++) {
+            List<Double> vertex = vertices.get(i);
+            if (vertex == null || vertex.size() != 2) {
+                throw new IllegalArgumentException("Vertex must be [lat, lng]: " + vertex);
+            }
+            ring[i] = new Coordinate(vertex.get(1), vertex.get(0));
+        }
+        if (!closed) {
+            ring[ring.length - 1] = new Coordinate(ring[0]);
+        }
+
+        Polygon polygon = GEOMETRY_FACTORY.createPolygon(ring);
+        if (!polygon.isValid()) {
+            throw new IllegalArgumentException("Polygon is not valid (self-intersecting or degenerate)");
+        }
+        return polygon;
+    }
+
+    /**
+     * Расстояние по большому кругу (формула гаверсинусов)
+     *
+     * @return Расстояние в метрах
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
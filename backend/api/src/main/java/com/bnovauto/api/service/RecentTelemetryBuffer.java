@@ -0,0 +1,431 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Телеметрия последних часов в памяти: для каждого ТС кольцевой буфер из
+ * массивов примитивов по полям (время, координаты, показатели датчиков во
+ * float, маска отсутствующих значений). Запись занимает около 50 байт вместо
+ * 200+ у Telemetry, и объекты на запись не создаются, поэтому окно в несколько
+ * часов по всему парку не нагружает сборщик мусора. Буфер наполняется
+ * конвейером приема телеметрии с момента запуска.
+ *
+ * Коды ошибок хранятся номерами в общем словаре ограниченного размера; после
+ * его заполнения новые коды хранятся строками в отдельном массиве кольца,
+ * который создается только при первой такой записи.
+ *
+ * Для каждого ТС известна граница, начиная с которой в буфере есть все
+ * принятые записи: время запуска, сдвигаемое при вытеснении старых записей.
+ * Запросы, начинающиеся не раньше этой границы, обслуживаются без БД.
+ */
+@Service
+public class RecentTelemetryBuffer implements TelemetryListener {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Показатели хранятся во float; при чтении округляются до этой точности,
+    // чтобы не выдавать шум младших разрядов
+    private static final double SENSOR_PRECISION = 1000.0;
+
+    private static final int NO_SPEED = 1;
+    private static final int NO_FUEL_LEVEL = 1 << 1;
+    private static final int NO_ENGINE_TEMPERATURE = 1 << 2;
+    private static final int NO_ENGINE_RPM = 1 << 3;
+    private static final int NO_BATTERY_VOLTAGE = 1 << 4;
+
+    // Номер кода ошибки для записей, код которых не поместился в словарь
+    private static final int RAW_ERROR_CODE = -1;
+
+    private final long windowMillis;
+    private final int maxSamplesPerVehicle;
+    private final long startedAt;
+    private final int maxErrorCodes;
+    private final Map<Long, VehicleRing> rings = new ConcurrentHashMap<>();
+
+    // Коды ошибок хранятся номерами в словаре: набор кодов трекеров (OBD-II)
+    // конечен, но трекер с ошибкой в прошивке может слать произвольные строки
+    private final Map<String, Integer> errorCodeIds = new ConcurrentHashMap<>();
+    private final List<String> errorCodes = new ArrayList<>();
+
+    @Autowired
+    public RecentTelemetryBuffer(@Value("${bnovauto.recent.windowHours}") int windowHours,
+                                 @Value("${bnovauto.recent.maxSamplesPerVehicle}") int maxSamplesPerVehicle,
+                                 @Value("${bnovauto.recent.maxErrorCodes}") int maxErrorCodes,
+                                 MeterRegistry meterRegistry) {
+        this.windowMillis = windowHours * 3_600_000L;
+        // Емкость кольца - степень двойки, индекс считается маской
+        this.maxSamplesPerVehicle = Integer.highestOneBit(Math.max(maxSamplesPerVehicle - 1, INITIAL_CAPACITY)) << 1;
+        this.startedAt = toMillis(LocalDateTime.now());
+        this.maxErrorCodes = maxErrorCodes;
+        this.errorCodes.add(null);
+
+        meterRegistry.gauge("telemetry.recent.vehicles", rings, Map::size);
+        meterRegistry.gauge("telemetry.recent.samples", this, RecentTelemetryBuffer::getSampleCount);
+        meterRegistry.gauge("telemetry.recent.errorCodes", errorCodeIds, Map::size);
+    }
+
+    @Override
+    public void onTelemetry(List<TelemetryPoint> points) {
+        for (TelemetryPoint point : points) {
+            VehicleRing ring = rings.computeIfAbsent(point.getVehicleId(), id -> new VehicleRing(startedAt));
+            int errorCodeId = errorCodeId(point.getErrorCode());
+            synchronized (ring) {
+                ring.append(point, toMillis(point.getTimestamp()), errorCodeId, windowMillis, maxSamplesPerVehicle);
+            }
+        }
+    }
+
+    /**
+     * Вытесняет записи старше окна у ТС, от которых давно нет данных, и
+     * освобождает их массивы
+     */
+    @Scheduled(fixedDelayString = "${bnovauto.recent.trimIntervalMs}",
+            initialDelayString = "${bnovauto.recent.trimIntervalMs}")
+    public void trim() {
+        long cutoff = toMillis(LocalDateTime.now()) - windowMillis;
+        for (VehicleRing ring : rings.values()) {
+            synchronized (ring) {
+                ring.evictBefore(cutoff);
+            }
+        }
+    }
+
+    /**
+     * Добавляет в накопитель записи ТС за период одним последовательным
+     * проходом по массивам
+     *
+     * @param from Начало периода (включительно)
+     * @param to Конец периода или null - до последней записи
+     * @param inclusiveEnd Включать ли записи на конце периода
+     * @return false, если буфер не покрывает период; накопитель тогда не изменяется
+     */
+    public boolean accumulate(TelemetryAccumulator accumulator, long vehicleId, LocalDateTime from,
+                              LocalDateTime to, boolean inclusiveEnd) {
+        if (from == null) {
+            return false;
+        }
+        long fromMillis = toMillis(from);
+        long toMillis = to == null ? Long.MAX_VALUE : toMillis(to);
+        VehicleRing ring = rings.get(vehicleId);
+        if (ring == null) {
+            return fromMillis >= startedAt;
+        }
+        synchronized (ring) {
+            if (fromMillis < ring.coveredFrom) {
+                return false;
+            }
+            int mask = ring.timestamps.length - 1;
+            for (int i = ring.lowerBound(fromMillis); i < ring.size; i++) {
+                int slot = (ring.head + i) & mask;
+                long timestamp = ring.timestamps[slot];
+                if (timestamp > toMillis || (!inclusiveEnd && timestamp == toMillis)) {
+                    break;
+                }
+                int nulls = ring.nulls[slot];
+                accumulator.addSample(
+                        (nulls & NO_SPEED) != 0 ? Double.NaN : restore(ring.speeds[slot]),
+                        (nulls & NO_FUEL_LEVEL) != 0 ? Double.NaN : restore(ring.fuelLevels[slot]),
+                        (nulls & NO_ENGINE_TEMPERATURE) != 0 ? Double.NaN : restore(ring.engineTemperatures[slot]),
+                        ring.errorCodes[slot] != 0);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Последние записи ТС начиная с момента from, от новых к старым
+     *
+     * @param from Начало периода (включительно)
+     * @param limit Максимальное число записей
+     * @return Записи или null, если буфер не покрывает период
+     */
+    public List<TelemetryPoint> getRecent(long vehicleId, LocalDateTime from, int limit) {
+        long fromMillis = toMillis(from);
+        VehicleRing ring = rings.get(vehicleId);
+        if (ring == null) {
+            return fromMillis >= startedAt ? new ArrayList<>() : null;
+        }
+        synchronized (ring) {
+            if (fromMillis < ring.coveredFrom) {
+                return null;
+            }
+            int first = ring.lowerBound(fromMillis);
+            List<TelemetryPoint> points = new ArrayList<>(Math.min(ring.size - first, limit));
+            for (int i = ring.size - 1; i >= first && points.size() < limit; i--) {
+                points.add(toPoint(vehicleId, ring, (ring.head + i) & (ring.timestamps.length - 1)));
+            }
+            return points;
+        }
+    }
+
+    public long getSampleCount() {
+        long count = 0;
+        for (VehicleRing ring : rings.values()) {
+            count += ring.size;
+        }
+        return count;
+    }
+
+    private TelemetryPoint toPoint(long vehicleId, VehicleRing ring, int slot) {
+        int nulls = ring.nulls[slot];
+        return new TelemetryPoint(
+                vehicleId,
+                toDateTime(ring.timestamps[slot]),
+                ring.latitudes[slot],
+                ring.longitudes[slot],
+                (nulls & NO_SPEED) != 0 ? null : restore(ring.speeds[slot]),
+                (nulls & NO_FUEL_LEVEL) != 0 ? null : restore(ring.fuelLevels[slot]),
+                (nulls & NO_ENGINE_TEMPERATURE) != 0 ? null : restore(ring.engineTemperatures[slot]),
+                (nulls & NO_ENGINE_RPM) != 0 ? null : ring.engineRpms[slot],
+                (nulls & NO_BATTERY_VOLTAGE) != 0 ? null : restore(ring.batteryVoltages[slot]),
+                errorCode(ring, slot));
+    }
+
+    private int errorCodeId(String errorCode) {
+        if (errorCode == null) {
+            return 0;
+        }
+        Integer id = errorCodeIds.get(errorCode);
+        if (id != null) {
+            return id;
+        }
+        synchronized (errorCodes) {
+            id = errorCodeIds.get(errorCode);
+            if (id != null) {
+                return id;
+            }
+            if (errorCodes.size() > maxErrorCodes) {
+                return RAW_ERROR_CODE;
+            }
+            errorCodes.add(errorCode);
+            errorCodeIds.put(errorCode, errorCodes.size() - 1);
+            return errorCodes.size() - 1;
+        }
+    }
+
+    private String errorCode(VehicleRing ring, int slot) {
+        int id = ring.errorCodes[slot];
+        if (id == 0) {
+            return null;
+        }
+        if (id == RAW_ERROR_CODE) {
+            return ring.rawErrorCodes[slot];
+        }
+        synchronized (errorCodes) {
+            return errorCodes.get(id);
+        }
+    }
+
+    private static double restore(float value) {
+        return Math.round(value * SENSOR_PRECISION) / SENSOR_PRECISION;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Кольцо записей одного ТС, упорядоченных по времени. Логический индекс 0 -
+     * самая старая запись. Не потокобезопасно, доступ под монитором кольца.
+     */
+    private static final class VehicleRing {
+        private long[] timestamps = new long[0];
+        private double[] latitudes = new double[0];
+        private double[] longitudes = new double[0];
+        private float[] speeds = new float[0];
+        private float[] fuelLevels = new float[0];
+        private float[] engineTemperatures = new float[0];
+        private float[] batteryVoltages = new float[0];
+        private int[] engineRpms = new int[0];
+        private int[] errorCodes = new int[0];
+        private byte[] nulls = new byte[0];
+
+        // Коды, не поместившиеся в словарь; null, пока таких записей не было
+        private String[] rawErrorCodes;
+        private int head;
+        private volatile int size;
+
+        // Все принятые записи с временем не раньше этой границы есть в кольце
+        private long coveredFrom;
+
+        private VehicleRing(long coveredFrom) {
+            this.coveredFrom = coveredFrom;
+        }
+
+        private void append(TelemetryPoint point, long timestamp, int errorCodeId, long windowMillis,
+                            int maxCapacity) {
+            if (size > 0 && timestamp < newest() - windowMillis) {
+                // Запоздавшая запись старше окна не хранится
+                drop(timestamp);
+                return;
+            }
+            if (size == timestamps.length) {
+                if (timestamps.length < maxCapacity) {
+                    resize(Math.max(INITIAL_CAPACITY, timestamps.length * 2));
+                } else if (timestamp < this.timestamps[head]) {
+                    drop(timestamp);
+                    return;
+                } else {
+                    evictOldest();
+                }
+            }
+
+            // Записи приходят почти по порядку: запоздавшая вставляется со сдвигом хвоста
+            int position = size;
+            int mask = timestamps.length - 1;
+            while (position > 0 && timestamps[(head + position - 1) & mask] > timestamp) {
+                move((head + position - 1) & mask, (head + position) & mask);
+                position--;
+            }
+            int slot = (head + position) & mask;
+
+            timestamps[slot] = timestamp;
+            latitudes[slot] = point.getLatitude();
+            longitudes[slot] = point.getLongitude();
+            int missing = 0;
+            if (point.getSpeed() != null) {
+                speeds[slot] = point.getSpeed().floatValue();
+            } else {
+                missing |= NO_SPEED;
+            }
+            if (point.getFuelLevel() != null) {
+                fuelLevels[slot] = point.getFuelLevel().floatValue();
+            } else {
+                missing |= NO_FUEL_LEVEL;
+            }
+            if (point.getEngineTemperature() != null) {
+                engineTemperatures[slot] = point.getEngineTemperature().floatValue();
+            } else {
+                missing |= NO_ENGINE_TEMPERATURE;
+            }
+            if (point.getEngineRpm() != null) {
+                engineRpms[slot] = point.getEngineRpm();
+            } else {
+                missing |= NO_ENGINE_RPM;
+            }
+            if (point.getBatteryVoltage() != null) {
+                batteryVoltages[slot] = point.getBatteryVoltage().floatValue();
+            } else {
+                missing |= NO_BATTERY_VOLTAGE;
+            }
+            nulls[slot] = (byte) missing;
+            errorCodes[slot] = errorCodeId;
+            if (errorCodeId == RAW_ERROR_CODE) {
+                if (rawErrorCodes == null) {
+                    rawErrorCodes = new String[timestamps.length];
+                }
+                rawErrorCodes[slot] = point.getErrorCode();
+            } else if (rawErrorCodes != null) {
+                rawErrorCodes[slot] = null;
+            }
+            size++;
+
+            evictBefore(newest() - windowMillis);
+        }
+
+        private void evictBefore(long cutoff) {
+            while (size > 0 && timestamps[head] < cutoff) {
+                evictOldest();
+            }
+            if (size == 0 && timestamps.length > 0) {
+                resize(0);
+            }
+        }
+
+        /**
+         * Логический индекс первой записи с временем не раньше from
+         */
+        private int lowerBound(long from) {
+            int mask = timestamps.length - 1;
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timestamps[(head + middle) & mask] < from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private long newest() {
+            return timestamps[(head + size - 1) & (timestamps.length - 1)];
+        }
+
+        private void evictOldest() {
+            drop(timestamps[head]);
+            if (rawErrorCodes != null) {
+                rawErrorCodes[head] = null;
+            }
+            head = (head + 1) & (timestamps.length - 1);
+            size--;
+        }
+
+        private void drop(long timestamp) {
+            coveredFrom = Math.max(coveredFrom, timestamp + 1);
+        }
+
+        private void move(int from, int to) {
+            timestamps[to] = timestamps[from];
+            latitudes[to] = latitudes[from];
+            longitudes[to] = longitudes[from];
+            speeds[to] = speeds[from];
+            fuelLevels[to] = fuelLevels[from];
+            engineTemperatures[to] = engineTemperatures[from];
+            batteryVoltages[to] = batteryVoltages[from];
+            engineRpms[to] = engineRpms[from];
+            errorCodes[to] = errorCodes[from];
+            nulls[to] = nulls[from];
+            if (rawErrorCodes != null) {
+                rawErrorCodes[to] = rawErrorCodes[from];
+            }
+        }
+
+        private void resize(int capacity) {
+            int oldCapacity = timestamps.length;
+            timestamps = unwrap(timestamps, new long[capacity], oldCapacity);
+            latitudes = unwrap(latitudes, new double[capacity], oldCapacity);
+            longitudes = unwrap(longitudes, new double[capacity], oldCapacity);
+            speeds = unwrap(speeds, new float[capacity], oldCapacity);
+            fuelLevels = unwrap(fuelLevels, new float[capacity], oldCapacity);
+            engineTemperatures = unwrap(engineTemperatures, new float[capacity], oldCapacity);
+            batteryVoltages = unwrap(batteryVoltages, new float[capacity], oldCapacity);
+            engineRpms = unwrap(engineRpms, new int[capacity], oldCapacity);
+            errorCodes = unwrap(errorCodes, new int[capacity], oldCapacity);
+            nulls = unwrap(nulls, new byte[capacity], oldCapacity);
+            if (rawErrorCodes != null) {
+                rawErrorCodes = capacity > 0 ? unwrap(rawErrorCodes, new String[capacity], oldCapacity) : null;
+            }
+            head = 0;
+        }
+
+        // Копирует записи по порядку в начало нового массива
+        private <T> T unwrap(T source, T target, int capacity) {
+            if (size > 0) {
+                int firstPart = Math.min(size, capacity - head);
+                System.arraycopy(source, head, target, 0, firstPart);
+                System.arraycopy(source, 0, target, firstPart, size - firstPart);
+            }
+            return target;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.config.CacheConfig;
+import com.bnovauto.api.model.Company;
+import com.bnovauto.api.model.ERole;
+import com.bnovauto.api.model.Role;
+import com.bnovauto.api.model.Route;
+import com.bnovauto.api.model.Vehicle;
+import com.bnovauto.api.repository.CompanyRepository;
+import com.bnovauto.api.repository.RoleRepository;
+import com.bnovauto.api.repository.RouteRepository;
+import com.bnovauto.api.repository.VehicleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Кэш справочных сущностей (транспорт, компании, маршруты, роли) для
+ * проверок и ссылок при записи. Чтение идет напрямую в Caffeine с заранее
+ * созданными функциями загрузки, без обертки Spring Cache на каждый вызов.
+ * Сброс идет через Spring Cache, поэтому при активной транзакции выполняется
+ * после ее фиксации. Статистика кэшей публикуется Actuator как cache.*.
+ *
+ * Транспорт и маршруты сбрасываются сервисами при изменении. Компании API не
+ * изменяет, их записи обновляются только по истечении
+ * bnovauto.cache.reference.ttlSeconds: правка компании в БД видна в
+ * приложении с этой задержкой.
+ *
+ * Возвращаемые объекты отсоединены и общие для всех потоков: их можно
+ * использовать для чтения и как ссылку при сохранении других сущностей, но
+ * не изменять. Для изменения сущность загружается из репозитория. Связи
+ * ManyToOne ленивые и не загружены: у связанной сущности доступен только ID.
+ */
+@Service
+public class ReferenceDataCache {
+
+    private final VehicleRepository vehicleRepository;
+
+    private final Cache vehicles;
+    private final Cache companies;
+    private final Cache routes;
+    private final Cache roles;
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> vehicleStore;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> companyStore;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> routeStore;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> roleStore;
+
+    private final Function<Object, Object> vehicleLoader;
+    private final Function<Object, Object> companyLoader;
+    private final Function<Object, Object> routeLoader;
+    private final Function<Object, Object> roleLoader;
+
+    @Autowired
+    public ReferenceDataCache(CacheManager cacheManager, VehicleRepository vehicleRepository,
+                              CompanyRepository companyRepository, RouteRepository routeRepository,
+                              RoleRepository roleRepository) {
+        this.vehicleRepository = vehicleRepository;
+        this.vehicles = cacheManager.getCache(CacheConfig.VEHICLES);
+        this.companies = cacheManager.getCache(CacheConfig.COMPANIES);
+        this.routes = cacheManager.getCache(CacheConfig.ROUTES);
+        this.roles = cacheManager.getCache(CacheConfig.ROLES);
+        this.vehicleStore = nativeCache(vehicles);
+        this.companyStore = nativeCache(companies);
+        this.routeStore = nativeCache(routes);
+        this.roleStore = nativeCache(roles);
+
+        // Отсутствующие сущности не кэшируются: Caffeine не сохраняет null
+        this.vehicleLoader = id -> vehicleRepository.findById((Long) id).orElse(null);
+        this.companyLoader = id -> companyRepository.findById((Long) id).orElse(null);
+        this.routeLoader = id -> routeRepository.findById((Long) id).orElse(null);
+        this.roleLoader = name -> roleRepository.findByName((ERole) name).orElse(null);
+    }
+
+    /**
+     * @return Транспортное средство или null, если его нет
+     */
+    public Vehicle getVehicle(Long id) {
+        return id == null ? null : (Vehicle) vehicleStore.get(id, vehicleLoader);
+    }
+
+    /**
+     * Отбирает ID существующих транспортных средств. Отсутствующие в кэше
+     * загружаются одним запросом на весь набор и кэшируются
+     */
+    public Set<Long> findExistingVehicleIds(Set<Long> ids) {
+        Set<Long> existing = new HashSet<>(ids.size() * 2);
+        List<Long> missing = null;
+        for (Long id : ids) {
+            if (vehicleStore.getIfPresent(id) != null) {
+                existing.add(id);
+            } else {
+                if (missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(id);
+            }
+        }
+        if (missing != null) {
+            for (Vehicle vehicle : vehicleRepository.findAllById(missing)) {
+                vehicleStore.put(vehicle.getId(), vehicle);
+                existing.add(vehicle.getId());
+            }
+        }
+        return existing;
+    }
+
+    public Company getCompany(Long id) {
+        return id == null ? null : (Company) companyStore.get(id, companyLoader);
+    }
+
+    public Route getRoute(Long id) {
+        return id == null ? null : (Route) routeStore.get(id, routeLoader);
+    }
+
+    public Role getRole(ERole name) {
+        return name == null ? null : (Role) roleStore.get(name, roleLoader);
+    }
+
+    public void evictVehicle(Long id) {
+        vehicles.evict(id);
+    }
+
+    public void evictRoute(Long id) {
+        routes.evict(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(Cache cache) {
+        if (cache == null) {
+            throw new IllegalStateException("Reference data cache is not configured");
+        }
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+    }
+}
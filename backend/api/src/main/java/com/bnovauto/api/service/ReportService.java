@@ -0,0 +1,334 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.config.CacheConfig;
+import com.bnovauto.api.config.ExecutorConfig;
+import com.bnovauto.api.payload.request.ReportRequest;
+import com.bnovauto.api.payload.response.ReportJobResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронное построение тяжелых отчетов analytics.generate_*_report.
+ * Задание записывается в analytics.reports и сразу возвращает ID, отчет
+ * строится в фоне на отдельном пуле reportTaskExecutor. Аддитивные отчеты считаются по
+ * суткам параллельно, результат каждых завершенных суток кэшируется по
+ * (тип отчета, компания, сутки), поэтому пересекающиеся по периоду запросы
+ * считают заново только недостающие сутки.
+ */
+@Service
+public class ReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO analytics.reports (name, report_type, parameters, company_id, status) "
+            + "VALUES (?, ?, ?::jsonb, ?, ?) RETURNING id, created_at";
+
+    private static final String FINISH_SQL =
+            "UPDATE analytics.reports SET status = ?, result = ?::jsonb, error = ?, completed_at = CURRENT_TIMESTAMP, "
+            + "updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String FAIL_INTERRUPTED_SQL =
+            "UPDATE analytics.reports SET status = ?, error = ?, completed_at = CURRENT_TIMESTAMP, "
+            + "updated_at = CURRENT_TIMESTAMP WHERE status = ?";
+
+    private static final String SELECT_SQL =
+            "SELECT id, name, report_type, company_id, status, error, parameters->>'startDate' AS start_date, "
+            + "parameters->>'endDate' AS end_date, created_at, completed_at FROM analytics.reports WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate analyticsJdbcTemplate;
+    private final ExecutorService executor;
+    private final Cache sliceCache;
+    private final ObjectMapper objectMapper;
+
+    // Запросы отчетов ограничены размером пула аналитики, чтобы задачи ждали
+    // здесь, а не получали отказ по таймауту соединения
+    private final Semaphore querySlots;
+
+    // Выполняющиеся задания; завершенные читаются из analytics.reports
+    private final Map<Long, ReportJob> runningJobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReportService(JdbcTemplate jdbcTemplate,
+                         @Qualifier("analyticsJdbcTemplate") JdbcTemplate analyticsJdbcTemplate,
+                         @Qualifier(ExecutorConfig.REPORT_TASK_EXECUTOR) ExecutorService executor,
+                         CacheManager cacheManager,
+                         ObjectMapper objectMapper,
+                         @Value("${bnovauto.datasource.analytics.maximumPoolSize}") int analyticsPoolSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.analyticsJdbcTemplate = analyticsJdbcTemplate;
+        this.executor = executor;
+        this.sliceCache = cacheManager.getCache(CacheConfig.REPORT_SLICES);
+        this.objectMapper = objectMapper;
+        this.querySlots = new Semaphore(analyticsPoolSize);
+    }
+
+    /**
+     * Задания в статусе RUNNING, оставшиеся от предыдущего запуска, уже
+     * никто не выполняет: они переводятся в FAILED, чтобы клиенты не ждали
+     * их бесконечно
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        int updated = jdbcTemplate.update(FAIL_INTERRUPTED_SQL, STATUS_FAILED,
+                "Interrupted by application restart", STATUS_RUNNING);
+        if (updated > 0) {
+            logger.warn("Marked {} interrupted reports as failed", updated);
+        }
+    }
+
+    /**
+     * Создает задание на построение отчета и запускает его в фоне
+     *
+     * @return Задание со статусом RUNNING
+     * @throws RejectedExecutionException если очередь отчетов заполнена
+     */
+    public ReportJobResponse submit(ReportRequest request) {
+        ReportType type = parseType(request.getReportType());
+        LocalDateTime start = parseDate(request.getStartDate());
+        LocalDateTime end = parseDate(request.getEndDate());
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("startDate must be before endDate");
+        }
+        String name = request.getName() != null && !request.getName().isBlank()
+                ? request.getName() : type.name() + " " + request.getStartDate() + " - " + request.getEndDate();
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("startDate", request.getStartDate());
+        parameters.put("endDate", request.getEndDate());
+        List<Slice> slices = type.isSliceable()
+                ? daySlices(request.getCompanyId(), start, end)
+                : List.of(new Slice(request.getCompanyId(), start, end));
+        ReportJob job = jdbcTemplate.queryForObject(INSERT_SQL, (rs, rowNum) -> new ReportJob(
+                        rs.getLong("id"), name, type, request.getCompanyId(), request.getStartDate(),
+                        request.getEndDate(), slices.size(), rs.getTimestamp("created_at").toLocalDateTime()),
+                name, type.name(), toJson(parameters), request.getCompanyId(), STATUS_RUNNING);
+        runningJobs.put(job.id, job);
+
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>(slices.size());
+        try {
+            for (Slice slice : slices) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    List<Map<String, Object>> rows = loadSlice(type, slice);
+                    job.completedSlices.incrementAndGet();
+                    return rows;
+                }, executor));
+            }
+        } catch (RejectedExecutionException e) {
+            // Уже поставленные части отменяются и не будут выполнены. Сборка
+            // результата к ним еще не подключена, задание завершается здесь
+            for (CompletableFuture<List<Map<String, Object>>> future : futures) {
+                future.cancel(false);
+            }
+            finish(job, null, new RejectedExecutionException("Report queue is full"));
+            throw e;
+        }
+        // Ожидание частей не занимает поток пула: сборка выполняется тем
+        // потоком, который завершил последнюю часть
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<List<Map<String, Object>>> results = new ArrayList<>(futures.size());
+                    for (CompletableFuture<List<Map<String, Object>>> future : futures) {
+                        results.add(future.join());
+                    }
+                    return type.merge(results);
+                })
+                .whenComplete((rows, error) -> finish(job, rows, error));
+
+        return job.toResponse();
+    }
+
+    public ReportJobResponse getJob(Long id) {
+        ReportJob job = runningJobs.get(id);
+        if (job != null) {
+            return job.toResponse();
+        }
+        try {
+            return jdbcTemplate.queryForObject(SELECT_SQL, (rs, rowNum) -> new ReportJobResponse(
+                    rs.getLong("id"),
+                    rs.getString("name"),
+                    rs.getString("report_type"),
+                    rs.getObject("company_id", Long.class),
+                    rs.getString("start_date"),
+                    rs.getString("end_date"),
+                    rs.getString("status"),
+                    null,
+                    null,
+                    rs.getString("error"),
+                    rs.getTimestamp("created_at").toLocalDateTime(),
+                    rs.getTimestamp("completed_at") != null ? rs.getTimestamp("completed_at").toLocalDateTime() : null), id);
+        } catch (EmptyResultDataAccessException e) {
+            throw new IllegalArgumentException("Report not found with id: " + id);
+        }
+    }
+
+    /**
+     * Строки готового отчета в виде JSON-массива, как они сохранены в
+     * analytics.reports, без повторного разбора
+     *
+     * @return JSON или null, если отчет еще не готов или построить его не удалось
+     */
+    public String getResultJson(Long id) {
+        if (runningJobs.containsKey(id)) {
+            return null;
+        }
+        List<String> results = jdbcTemplate.queryForList(
+                "SELECT result::text FROM analytics.reports WHERE id = ? AND status = ?", String.class, id, STATUS_COMPLETED);
+        if (results.isEmpty()) {
+            // Проверка существования задания
+            getJob(id);
+            return null;
+        }
+        return results.get(0);
+    }
+
+    private List<Map<String, Object>> loadSlice(ReportType type, Slice slice) {
+        // Кэшируются только завершенные отрезки: по текущим суткам данные еще идут
+        if (sliceCache != null && slice.to().isBefore(LocalDateTime.now())) {
+            return sliceCache.get(new SliceKey(type, slice.companyId(), slice.from(), slice.to()), () -> queryReport(type, slice));
+        }
+        return queryReport(type, slice);
+    }
+
+    private List<Map<String, Object>> queryReport(ReportType type, Slice slice) {
+        try {
+            querySlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Report query interrupted", e);
+        }
+        try {
+            // Функции отчетов фильтруют по BETWEEN, конец отрезка не включается
+            return analyticsJdbcTemplate.queryForList("SELECT * FROM " + type.getFunction() + "(?, ?, ?)",
+                    slice.companyId(), Timestamp.valueOf(slice.from()), Timestamp.valueOf(slice.to().minusNanos(1000)));
+        } finally {
+            querySlots.release();
+        }
+    }
+
+    private void finish(ReportJob job, List<Map<String, Object>> rows, Throwable error) {
+        // Задание сохраняется один раз, даже если завершение пришло повторно
+        if (!job.finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (error == null) {
+                jdbcTemplate.update(FINISH_SQL, STATUS_COMPLETED, toJson(rows), null, job.id);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.error("Report {} ({}) failed", job.id, job.type, cause);
+                jdbcTemplate.update(FINISH_SQL, STATUS_FAILED, null, cause.getMessage(), job.id);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to save report {}", job.id, e);
+        } finally {
+            runningJobs.remove(job.id);
+        }
+    }
+
+    /**
+     * Делит период на отрезки по границам суток. Крайние отрезки могут быть
+     * неполными, внутренние совпадают между запросами и берутся из кэша.
+     */
+    private static List<Slice> daySlices(Long companyId, LocalDateTime start, LocalDateTime end) {
+        List<Slice> slices = new ArrayList<>();
+        LocalDateTime from = start;
+        while (from.isBefore(end)) {
+            LocalDateTime nextDay = from.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            LocalDateTime to = nextDay.isBefore(end) ? nextDay : end;
+            slices.add(new Slice(companyId, from, to));
+            from = to;
+        }
+        return slices;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize report", e);
+        }
+    }
+
+    private static ReportType parseType(String type) {
+        try {
+            return ReportType.valueOf(type);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unknown report type: " + type);
+        }
+    }
+
+    private static LocalDateTime parseDate(String date) {
+        return LocalDateTime.parse(date, DateTimeFormatter.ISO_DATE_TIME);
+    }
+
+    private record Slice(Long companyId, LocalDateTime from, LocalDateTime to) {
+    }
+
+    private record SliceKey(ReportType type, Long companyId, LocalDateTime from, LocalDateTime to) {
+    }
+
+    private static final class ReportJob {
+        private final long id;
+        private final String name;
+        private final ReportType type;
+        private final Long companyId;
+        private final String startDate;
+        private final String endDate;
+        private final int totalSlices;
+        private final LocalDateTime createdAt;
+        private final AtomicInteger completedSlices = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private ReportJob(long id, String name, ReportType type, Long companyId, String startDate, String endDate,
+                          int totalSlices, LocalDateTime createdAt) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.companyId = companyId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.totalSlices = totalSlices;
+            this.createdAt = createdAt;
+        }
+
+        private ReportJobResponse toResponse() {
+            return new ReportJobResponse(id, name, type.name(), companyId, startDate, endDate, STATUS_RUNNING,
+                    totalSlices, completedSlices.get(), null, createdAt, null);
+        }
+    }
+}
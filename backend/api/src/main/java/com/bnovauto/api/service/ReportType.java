@@ -0,0 +1,111 @@
+package com.bnovauto.api.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчеты analytics.generate_*_report. Для аддитивных отчетов задано, как
+ * складывать строки, посчитанные по отдельным отрезкам периода: такие
+ * отчеты считаются по суткам параллельно, а сутки кэшируются.
+ */
+public enum ReportType {
+
+    FUEL_CONSUMPTION("analytics.generate_fuel_consumption_report",
+            List.of("vehicle_id"),
+            List.of("total_distance", "total_fuel_consumed", "total_refills", "total_refill_amount", "total_refill_cost")) {
+        @Override
+        void finish(Map<String, Object> row) {
+            // Средний расход пересчитывается по сложенным итогам, л/100 км
+            BigDecimal distance = toDecimal(row.get("total_distance"));
+            BigDecimal fuel = toDecimal(row.get("total_fuel_consumed"));
+            row.put("avg_consumption", distance.signum() > 0
+                    ? fuel.multiply(BigDecimal.valueOf(100)).divide(distance, 4, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO);
+        }
+    },
+
+    // Средние по назначениям не складываются из средних по отрезкам, поэтому
+    // отчет считается одним запросом за весь период
+    ROUTE_EFFICIENCY("analytics.generate_route_efficiency_report", null, null),
+
+    VIOLATIONS("analytics.generate_violations_report",
+            List.of("vehicle_id", "driver_id", "route_id"),
+            List.of("violation_count", "speeding_violations", "route_deviation_violations",
+                    "unauthorized_stops", "other_violations"));
+
+    private final String function;
+    private final List<String> keyColumns;
+    private final List<String> sumColumns;
+
+    ReportType(String function, List<String> keyColumns, List<String> sumColumns) {
+        this.function = function;
+        this.keyColumns = keyColumns;
+        this.sumColumns = sumColumns;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    /**
+     * Отчет можно считать по отрезкам периода и складывать результаты
+     */
+    public boolean isSliceable() {
+        return keyColumns != null;
+    }
+
+    /**
+     * Складывает строки отчета, посчитанные по отрезкам периода. Исходные
+     * строки не изменяются, они могут лежать в кэше.
+     */
+    public List<Map<String, Object>> merge(List<List<Map<String, Object>>> slices) {
+        if (!isSliceable()) {
+            if (slices.size() != 1) {
+                throw new IllegalStateException(name() + " cannot be merged from slices");
+            }
+            return slices.get(0);
+        }
+        Map<List<Object>, Map<String, Object>> merged = new LinkedHashMap<>();
+        for (List<Map<String, Object>> slice : slices) {
+            for (Map<String, Object> row : slice) {
+                List<Object> key = new ArrayList<>(keyColumns.size());
+                for (String column : keyColumns) {
+                    key.add(row.get(column));
+                }
+                Map<String, Object> target = merged.get(key);
+                if (target == null) {
+                    merged.put(key, new LinkedHashMap<>(row));
+                    continue;
+                }
+                for (String column : sumColumns) {
+                    target.put(column, toDecimal(target.get(column)).add(toDecimal(row.get(column))));
+                }
+            }
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(merged.values());
+        for (Map<String, Object> row : rows) {
+            finish(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Пересчет производных колонок после сложения
+     */
+    void finish(Map<String, Object> row) {
+    }
+
+    static BigDecimal toDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        return new BigDecimal(value.toString());
+    }
+}
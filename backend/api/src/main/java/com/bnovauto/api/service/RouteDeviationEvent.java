@@ -0,0 +1,60 @@
+package com.bnovauto.api.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие схода транспортного средства с назначенного маршрута или
+ * возврата на него. Публикуется через ApplicationEventPublisher.
+ */
+public class RouteDeviationEvent {
+
+    private final long vehicleId;
+    private final long routeId;
+    private final boolean deviated;
+    private final LocalDateTime timestamp;
+    private final double latitude;
+    private final double longitude;
+    private final double distanceMeters;
+
+    public RouteDeviationEvent(long vehicleId, long routeId, boolean deviated, LocalDateTime timestamp,
+                               double latitude, double longitude, double distanceMeters) {
+        this.vehicleId = vehicleId;
+        this.routeId = routeId;
+        this.deviated = deviated;
+        this.timestamp = timestamp;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceMeters = distanceMeters;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public long getRouteId() {
+        return routeId;
+    }
+
+    /**
+     * @return true при сходе с маршрута, false при возврате на маршрут
+     */
+    public boolean isDeviated() {
+        return deviated;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+}
@@ -0,0 +1,136 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.model.RouteAssignment;
+import com.bnovauto.api.payload.response.MatchedPosition;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.repository.RouteAssignmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Проверка каждой принятой записи телеметрии на отклонение от назначенного
+ * маршрута по расстоянию до маршрута, которое считает RouteMatchingService,
+ * без обращения к БД. Порог берется из RouteGeometryIndex. Событие
+ * RouteDeviationEvent публикуется только при смене состояния: сход с
+ * маршрута или возврат на него.
+ */
+@Service
+public class RouteDeviationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteDeviationService.class);
+
+    private final RouteGeometryIndex routeIndex;
+    private final RouteAssignmentRepository assignmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Активное назначение: ID ТС -> ID маршрута
+    private final Map<Long, Long> vehicleRoutes = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> deviatedVehicles = new ConcurrentHashMap<>();
+
+    private final Counter checksCounter;
+    private final Counter deviationCounter;
+    private final Counter returnCounter;
+
+    @Autowired
+    public RouteDeviationService(RouteGeometryIndex routeIndex,
+                                 RouteAssignmentRepository assignmentRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry) {
+        this.routeIndex = routeIndex;
+        this.assignmentRepository = assignmentRepository;
+        this.eventPublisher = eventPublisher;
+
+        this.checksCounter = meterRegistry.counter("route.deviation.checks");
+        this.deviationCounter = meterRegistry.counter("route.deviation.events", "type", "deviated");
+        this.returnCounter = meterRegistry.counter("route.deviation.events", "type", "returned");
+        meterRegistry.gauge("route.deviation.vehicles", deviatedVehicles, Map::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAssignments() {
+        for (Object[] row : assignmentRepository.findVehicleRoutePairsByStatus(RouteAssignment.STATUS_ASSIGNED)) {
+            vehicleRoutes.put((Long) row[0], (Long) row[1]);
+        }
+        logger.info("Route deviation monitoring loaded {} assignments", vehicleRoutes.size());
+    }
+
+    /**
+     * Проверяет запись, привязанную к маршруту RouteMatchingService
+     *
+     * @param point Запись телеметрии
+     * @param position Привязанное положение этой записи
+     */
+    public void onMatched(TelemetryPoint point, MatchedPosition position) {
+        Long routeId = vehicleRoutes.get(point.getVehicleId());
+        if (routeId == null || routeId != position.getRouteId()) {
+            return;
+        }
+        checksCounter.increment();
+        double distance = position.getDistanceFromRouteMeters();
+        updateState(point, routeId, distance > routeIndex.getThresholdMeters(), distance);
+    }
+
+    public void assignRoute(Long vehicleId, Long routeId) {
+        vehicleRoutes.put(vehicleId, routeId);
+        deviatedVehicles.remove(vehicleId);
+    }
+
+    public void unassignRoute(Long vehicleId) {
+        vehicleRoutes.remove(vehicleId);
+        deviatedVehicles.remove(vehicleId);
+    }
+
+    /**
+     * Снимает назначения удаленного маршрута
+     */
+    public void removeRoute(Long routeId) {
+        vehicleRoutes.entrySet().removeIf(entry -> {
+            if (entry.getValue().equals(routeId)) {
+                deviatedVehicles.remove(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public Long getAssignedRouteId(Long vehicleId) {
+        return vehicleRoutes.get(vehicleId);
+    }
+
+    /**
+     * @return ID маршрутов, назначенных хотя бы одному ТС
+     */
+    public Set<Long> getActiveRouteIds() {
+        return new HashSet<>(vehicleRoutes.values());
+    }
+
+    public boolean isDeviated(Long vehicleId) {
+        return deviatedVehicles.containsKey(vehicleId);
+    }
+
+    private void updateState(TelemetryPoint point, Long routeId, boolean deviated, double distance) {
+        long vehicleId = point.getVehicleId();
+        boolean changed = deviated
+                ? deviatedVehicles.putIfAbsent(vehicleId, Boolean.TRUE) == null
+                : deviatedVehicles.remove(vehicleId) != null;
+        if (!changed) {
+            return;
+        }
+
+        (deviated ? deviationCounter : returnCounter).increment();
+        eventPublisher.publishEvent(new RouteDeviationEvent(vehicleId, routeId, deviated, point.getTimestamp(),
+                point.getLatitude(), point.getLongitude(), distance));
+    }
+}
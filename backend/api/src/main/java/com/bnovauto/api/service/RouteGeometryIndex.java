@@ -0,0 +1,209 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.repository.RouteRepository;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.operation.distance.DistanceOp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Геометрии маршрутов в памяти для проверки отклонения от маршрута.
+ * Для каждого маршрута заранее строятся два подготовленных буфера вокруг
+ * линии: внутренний (точка в нем точно в пределах порога) и внешний (точка
+ * вне его точно за порогом). Точное расстояние считается только для точек
+ * между буферами. Все маршруты также лежат в STRtree для поиска по точке.
+ */
+@Service
+public class RouteGeometryIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteGeometryIndex.class);
+
+    private static final int BUFFER_QUADRANT_SEGMENTS = 8;
+
+    // Многоугольник буфера вписан в окружность, внешний буфер немного расширяется с запасом
+    private static final double OUTER_BUFFER_MARGIN = 1.05;
+
+    private final RouteRepository routeRepository;
+    private final double thresholdMeters;
+    private final Map<Long, RouteEntry> entries = new ConcurrentHashMap<>();
+
+    // STRtree после построения не изменяется, поэтому при изменении маршрута
+    // собирается новое дерево из уже подготовленных записей и подменяется целиком
+    private volatile STRtree tree = new STRtree();
+
+    @Autowired
+    public RouteGeometryIndex(RouteRepository routeRepository,
+                              @Value("${bnovauto.route.deviationThresholdMeters}") double thresholdMeters) {
+        this.routeRepository = routeRepository;
+        this.thresholdMeters = thresholdMeters;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Object[] row : routeRepository.findAllPaths()) {
+            Long routeId = (Long) row[0];
+            entries.put(routeId, new RouteEntry(routeId, (LineString) row[1], thresholdMeters));
+        }
+        rebuildTree();
+        logger.info("Route geometry index loaded: {} routes", entries.size());
+    }
+
+    /**
+     * Обновляет геометрию одного маршрута. Буферы пересчитываются только для него.
+     *
+     * @param routeId ID маршрута
+     * @param path Линия маршрута или null, если у маршрута нет геометрии
+     */
+    public void refresh(Long routeId, LineString path) {
+        if (path == null || path.isEmpty()) {
+            remove(routeId);
+            return;
+        }
+        entries.put(routeId, new RouteEntry(routeId, path, thresholdMeters));
+        rebuildTree();
+    }
+
+    /**
+     * Добавляет или обновляет несколько маршрутов с одной перестройкой дерева
+     * (массовый импорт)
+     *
+     * @param paths Линии маршрутов по ID
+     */
+    public void refreshAll(Map<Long, LineString> paths) {
+        for (Map.Entry<Long, LineString> path : paths.entrySet()) {
+            if (path.getValue() == null || path.getValue().isEmpty()) {
+                entries.remove(path.getKey());
+            } else {
+                entries.put(path.getKey(), new RouteEntry(path.getKey(), path.getValue(), thresholdMeters));
+            }
+        }
+        rebuildTree();
+    }
+
+    public void remove(Long routeId) {
+        if (entries.remove(routeId) != null) {
+            rebuildTree();
+        }
+    }
+
+    public boolean containsRoute(Long routeId) {
+        return entries.containsKey(routeId);
+    }
+
+    public double getThresholdMeters() {
+        return thresholdMeters;
+    }
+
+    /**
+     * Проверяет, находится ли точка в пределах порога от линии маршрута
+     *
+     * @return true или false; null, если геометрия маршрута неизвестна
+     */
+    public Boolean isOnRoute(Long routeId, double latitude, double longitude) {
+        RouteEntry entry = entries.get(routeId);
+        if (entry == null) {
+            return null;
+        }
+        return entry.isOnRoute(latitude, longitude, thresholdMeters);
+    }
+
+    /**
+     * Расстояние от точки до ближайшей точки линии маршрута
+     *
+     * @return Расстояние в метрах или null, если геометрия маршрута неизвестна
+     */
+    public Double distanceMeters(Long routeId, double latitude, double longitude) {
+        RouteEntry entry = entries.get(routeId);
+        if (entry == null) {
+            return null;
+        }
+        return entry.distanceMeters(GeometryUtils.createPoint(latitude, longitude));
+    }
+
+    /**
+     * Маршруты, проходящие в пределах порога от точки
+     *
+     * @return ID маршрутов
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> findRoutesNear(double latitude, double longitude) {
+        List<RouteEntry> candidates = tree.query(new Envelope(new Coordinate(longitude, latitude)));
+        List<Long> routeIds = new ArrayList<>(candidates.size());
+        for (RouteEntry candidate : candidates) {
+            if (candidate.isOnRoute(latitude, longitude, thresholdMeters)) {
+                routeIds.add(candidate.routeId);
+            }
+        }
+        return routeIds;
+    }
+
+    private synchronized void rebuildTree() {
+        STRtree rebuilt = new STRtree();
+        for (RouteEntry entry : entries.values()) {
+            rebuilt.insert(entry.outerEnvelope, entry);
+        }
+        rebuilt.build();
+        tree = rebuilt;
+    }
+
+    private static final class RouteEntry {
+        private final Long routeId;
+        private final LineString path;
+        private final PreparedGeometry innerBuffer;
+        private final PreparedGeometry outerBuffer;
+        private final Envelope outerEnvelope;
+
+        private RouteEntry(Long routeId, LineString path, double thresholdMeters) {
+            this.routeId = routeId;
+            this.path = path;
+
+            // В градусах по долготе метры зависят от широты: внутренний буфер
+            // считается по градусу широты (самый узкий), внешний по градусу
+            // долготы в самой северной точке маршрута (самый широкий)
+            Envelope envelope = path.getEnvelopeInternal();
+            double maxAbsLatitude = Math.max(Math.abs(envelope.getMinY()), Math.abs(envelope.getMaxY()));
+            double cosLatitude = Math.max(Math.cos(Math.toRadians(maxAbsLatitude)), 0.01);
+            double innerDegrees = thresholdMeters / GeometryUtils.METERS_PER_DEGREE;
+            double outerDegrees = innerDegrees / cosLatitude * OUTER_BUFFER_MARGIN;
+
+            this.innerBuffer = PreparedGeometryFactory.prepare(path.buffer(innerDegrees, BUFFER_QUADRANT_SEGMENTS));
+            this.outerBuffer = PreparedGeometryFactory.prepare(path.buffer(outerDegrees, BUFFER_QUADRANT_SEGMENTS));
+            this.outerEnvelope = outerBuffer.getGeometry().getEnvelopeInternal();
+        }
+
+        private boolean isOnRoute(double latitude, double longitude, double thresholdMeters) {
+            if (!outerEnvelope.contains(longitude, latitude)) {
+                return false;
+            }
+            Point point = GeometryUtils.createPoint(latitude, longitude);
+            if (innerBuffer.covers(point)) {
+                return true;
+            }
+            if (!outerBuffer.covers(point)) {
+                return false;
+            }
+            return distanceMeters(point) <= thresholdMeters;
+        }
+
+        private double distanceMeters(Point point) {
+            Coordinate nearest = DistanceOp.nearestPoints(path, point)[0];
+            return GeometryUtils.distanceMeters(point.getY(), point.getX(), nearest.y, nearest.x);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.MatchedPosition;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Привязка телеметрии к назначенному маршруту (map-matching). Каждая точка
+ * проецируется на линию маршрута, начиная с отрезка, на котором ТС было в
+ * прошлый раз: курсор сдвигается вперед, пока проекция приближается, поэтому
+ * шаг в среднем O(1). Полный поиск по дереву отрезков выполняется только для
+ * первой точки рейса и при потере привязки. Привязанная точка и пройденное
+ * расстояние записываются в telemetry вместе с записью, последнее положение
+ * хранится в памяти, и прогресс рейса, пройденное расстояние и прогноз
+ * прибытия читаются без пространственных запросов.
+ */
+@Service
+public class RouteMatchingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteMatchingService.class);
+
+    // Ниже этой скорости (км/ч) ТС считается стоящим и прогноз не строится
+    private static final double MIN_ETA_SPEED_KMH = 1.0;
+
+    private final RouteDeviationService deviationService;
+    private final RouteMetricsService metricsService;
+    private final int lookaheadSegments;
+    private final double relockMeters;
+
+    // Последнее привязанное положение по ID ТС, обновляется после записи
+    // телеметрии в БД; читатели получают неизменяемые снимки
+    private final Map<Long, MatchedPosition> positions = new ConcurrentHashMap<>();
+    private final Map<Long, RouteMetrics> routeMetrics = new ConcurrentHashMap<>();
+
+    private final Counter matchedCounter;
+    private final Counter relockCounter;
+
+    @Autowired
+    public RouteMatchingService(RouteDeviationService deviationService,
+                                RouteMetricsService metricsService,
+                                MeterRegistry meterRegistry,
+                                @Value("${bnovauto.route.matching.lookaheadSegments}") int lookaheadSegments,
+                                @Value("${bnovauto.route.matching.relockMeters}") double relockMeters) {
+        this.deviationService = deviationService;
+        this.metricsService = metricsService;
+        this.lookaheadSegments = lookaheadSegments;
+        this.relockMeters = relockMeters;
+
+        this.matchedCounter = meterRegistry.counter("route.matching.points");
+        this.relockCounter = meterRegistry.counter("route.matching.relocks");
+        meterRegistry.gauge("route.matching.vehicles", positions, Map::size);
+    }
+
+    /**
+     * Привязывает записи к назначенным маршрутам, не меняя сохраненных
+     * положений: результат пишется в БД вместе с записями, а положения
+     * обновляются методом apply после фиксации транзакции
+     *
+     * @param points Записи телеметрии
+     * @return Привязанные положения в порядке записей; null для записей ТС без
+     *         маршрута, по маршруту без линии и для записей, пришедших не по порядку
+     */
+    public List<MatchedPosition> match(List<TelemetryPoint> points) {
+        List<MatchedPosition> matches = new ArrayList<>(points.size());
+        // Следующая запись того же ТС в пакете продолжает от привязки предыдущей
+        Map<Long, MatchedPosition> batchPositions = new HashMap<>();
+        for (TelemetryPoint point : points) {
+            matches.add(matchPoint(point, batchPositions));
+        }
+        return matches;
+    }
+
+    /**
+     * Сохраняет привязанные положения после записи телеметрии в БД и передает
+     * расстояние до маршрута в RouteDeviationService
+     *
+     * @param points Записанные записи телеметрии
+     * @param matches Результат match для тех же записей
+     */
+    public void apply(List<TelemetryPoint> points, List<MatchedPosition> matches) {
+        int matched = 0;
+        for (int i = 0; i < points.size(); i++) {
+            TelemetryPoint point = points.get(i);
+            MatchedPosition position = matches.get(i);
+            if (position == null) {
+                if (deviationService.getAssignedRouteId(point.getVehicleId()) == null) {
+                    positions.remove(point.getVehicleId());
+                }
+                continue;
+            }
+            positions.put(point.getVehicleId(), position);
+            deviationService.onMatched(point, position);
+            matched++;
+        }
+        matchedCounter.increment(matched);
+    }
+
+    /**
+     * Последнее привязанное к маршруту положение транспортного средства
+     *
+     * @return Положение или null, если у ТС нет назначенного маршрута или телеметрии по нему
+     */
+    public MatchedPosition getMatchedPosition(Long vehicleId) {
+        MatchedPosition position = positions.get(vehicleId);
+        if (position == null) {
+            return null;
+        }
+        Long routeId = deviationService.getAssignedRouteId(vehicleId);
+        return routeId != null && routeId == position.getRouteId() ? position : null;
+    }
+
+    /**
+     * Сбрасывает привязку к измененному или удаленному маршруту
+     */
+    public void resetRoute(Long routeId) {
+        routeMetrics.remove(routeId);
+        positions.values().removeIf(position -> position.getRouteId() == routeId);
+    }
+
+    /**
+     * Освобождает метрики маршрутов, на которые больше не назначено ни одно
+     * ТС, и положения ТС, снятых с маршрута
+     */
+    @Scheduled(fixedDelayString = "${bnovauto.route.matching.evictIntervalMs}",
+            initialDelayString = "${bnovauto.route.matching.evictIntervalMs}")
+    public void evictInactiveRoutes() {
+        Set<Long> activeRoutes = deviationService.getActiveRouteIds();
+        routeMetrics.keySet().retainAll(activeRoutes);
+        positions.values().removeIf(position -> {
+            Long routeId = deviationService.getAssignedRouteId(position.getVehicleId());
+            return routeId == null || routeId != position.getRouteId();
+        });
+    }
+
+    private MatchedPosition matchPoint(TelemetryPoint point, Map<Long, MatchedPosition> batchPositions) {
+        Long routeId = deviationService.getAssignedRouteId(point.getVehicleId());
+        if (routeId == null) {
+            return null;
+        }
+        RouteMetrics metrics = getRouteMetrics(routeId);
+        if (metrics == null) {
+            return null;
+        }
+        MatchedPosition previous = batchPositions.get(point.getVehicleId());
+        if (previous == null) {
+            previous = positions.get(point.getVehicleId());
+        }
+        if (previous != null && previous.getRouteId() != routeId) {
+            previous = null;
+        }
+        // Записи одного ТС могут прийти не по порядку, старые пропускаются
+        if (previous != null && point.getTimestamp().isBefore(previous.getTimestamp())) {
+            return null;
+        }
+        MatchedPosition position = match(point, routeId, metrics, previous);
+        batchPositions.put(point.getVehicleId(), position);
+        return position;
+    }
+
+    private RouteMetrics getRouteMetrics(Long routeId) {
+        RouteMetrics metrics = routeMetrics.get(routeId);
+        if (metrics == null) {
+            try {
+                metrics = metricsService.getMetrics(routeId);
+            } catch (IllegalArgumentException e) {
+                logger.debug("Route {} is not available for matching: {}", routeId, e.getMessage());
+                return null;
+            }
+            if (metrics == null || metrics.getSegmentCount() == 0) {
+                return null;
+            }
+            routeMetrics.put(routeId, metrics);
+        }
+        return metrics;
+    }
+
+    private MatchedPosition match(TelemetryPoint point, long routeId, RouteMetrics metrics, MatchedPosition previous) {
+        double lat = point.getLatitude();
+        double lon = point.getLongitude();
+
+        RouteMetrics.Projection projection = null;
+        if (previous != null) {
+            projection = advanceCursor(metrics, previous.getSegment(), lat, lon);
+        }
+        boolean relocked = false;
+        if (projection == null || projection.getDistanceMeters() > relockMeters) {
+            projection = metrics.project(lat, lon);
+            relocked = previous != null;
+            if (relocked) {
+                relockCounter.increment();
+            }
+        }
+
+        // Дрожание GPS назад вдоль маршрута не уменьшает пройденное расстояние.
+        // После полного поиска привязка принимается как есть
+        double offset = projection.getOffsetMeters();
+        double matchedLat = projection.getLatitude();
+        double matchedLon = projection.getLongitude();
+        int segment = projection.getSegment();
+        if (previous != null && !relocked && offset < previous.getOffsetMeters()) {
+            offset = previous.getOffsetMeters();
+            matchedLat = previous.getLatitude();
+            matchedLon = previous.getLongitude();
+            segment = previous.getSegment();
+        }
+
+        double remaining = Math.max(metrics.getLengthMeters() - offset, 0);
+        Long etaSeconds = null;
+        if (point.getSpeed() != null && point.getSpeed() >= MIN_ETA_SPEED_KMH) {
+            etaSeconds = Math.round(remaining / (point.getSpeed() / 3.6));
+        }
+        return new MatchedPosition(point.getVehicleId(), routeId, point.getTimestamp(), matchedLat, matchedLon,
+                segment, offset, remaining, metrics.getLengthMeters(), projection.getDistanceMeters(), etaSeconds);
+    }
+
+    /**
+     * Ищет ближайший отрезок, начиная с курсора: один отрезок назад на случай
+     * дрожания и вперед, пока в окне lookaheadSegments находится более близкий
+     */
+    private RouteMetrics.Projection advanceCursor(RouteMetrics metrics, int cursor, double lat, double lon) {
+        int lastSegment = metrics.getSegmentCount() - 1;
+        int start = Math.max(cursor - 1, 0);
+        RouteMetrics.Projection best = metrics.projectOnSegment(start, lat, lon);
+        int bestSegment = start;
+        for (int i = start + 1; i <= lastSegment && i <= bestSegment + lookaheadSegments; i++) {
+            RouteMetrics.Projection candidate = metrics.projectOnSegment(i, lat, lon);
+            if (candidate.getDistanceMeters() < best.getDistanceMeters()) {
+                best = candidate;
+                bestSegment = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,265 @@
+package com.bnovauto.api.service;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.Arrays;
+
+/**
+ * Метрики линии маршрута: геодезическая длина, накопленное расстояние до
+ * каждой вершины и охватывающий прямоугольник. По накопленным расстояниям
+ * положение на маршруте и остаток пути находятся за O(log n): ближайший
+ * отрезок ищется по STRtree отрезков, отрезок по пройденному расстоянию -
+ * двоичным поиском. Экземпляр неизменяем и потокобезопасен.
+ */
+public final class RouteMetrics {
+
+    private final Coordinate[] vertices;
+    private final double[] cumulativeDistances;
+    private final Envelope envelope;
+
+    // Масштаб долготы по средней широте маршрута: дерево отрезков строится в
+    // плоскости (долгота * xScale, широта), где расстояния близки к метрам
+    private final double xScale;
+
+    // Дерево отрезков нужно только для поиска по точке, строится при первом запросе
+    private volatile STRtree segmentTree;
+
+    private RouteMetrics(Coordinate[] vertices, double[] cumulativeDistances) {
+        this.vertices = vertices;
+        this.cumulativeDistances = cumulativeDistances;
+        this.envelope = new Envelope();
+        for (Coordinate vertex : vertices) {
+            envelope.expandToInclude(vertex);
+        }
+        this.xScale = envelope.isNull() ? 1 : Math.cos(Math.toRadians(envelope.centre().y));
+    }
+
+    /**
+     * Считает метрики линии маршрута
+     */
+    public static RouteMetrics compute(LineString path) {
+        Coordinate[] vertices = path.getCoordinates();
+        double[] cumulative = new double[vertices.length];
+        for (int i = 1; i < vertices.length; i++) {
+            cumulative[i] = cumulative[i - 1] + GeometryUtils.distanceMeters(
+                    vertices[i - 1].y, vertices[i - 1].x, vertices[i].y, vertices[i].x);
+        }
+        return new RouteMetrics(vertices, cumulative);
+    }
+
+    /**
+     * Восстанавливает метрики из сохраненных накопленных расстояний. Если они
+     * не соответствуют линии (маршрут сохранен до появления метрик или линия
+     * изменена в обход сервиса), метрики считаются заново.
+     */
+    public static RouteMetrics of(LineString path, double[] cumulativeDistances) {
+        if (cumulativeDistances == null || cumulativeDistances.length != path.getNumPoints()) {
+            return compute(path);
+        }
+        return new RouteMetrics(path.getCoordinates(), cumulativeDistances);
+    }
+
+    public double getLengthMeters() {
+        return cumulativeDistances.length == 0 ? 0 : cumulativeDistances[cumulativeDistances.length - 1];
+    }
+
+    public double[] getCumulativeDistances() {
+        return Arrays.copyOf(cumulativeDistances, cumulativeDistances.length);
+    }
+
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    public int getSegmentCount() {
+        return Math.max(vertices.length - 1, 0);
+    }
+
+    public double getMinLatitude() {
+        return envelope.getMinY();
+    }
+
+    public double getMinLongitude() {
+        return envelope.getMinX();
+    }
+
+    public double getMaxLatitude() {
+        return envelope.getMaxY();
+    }
+
+    public double getMaxLongitude() {
+        return envelope.getMaxX();
+    }
+
+    /**
+     * Отрезок, на котором лежит точка, пройдя offsetMeters от начала маршрута
+     *
+     * @return Индекс отрезка (от вершины i к вершине i + 1)
+     */
+    public int segmentAt(double offsetMeters) {
+        int index = Arrays.binarySearch(cumulativeDistances, offsetMeters);
+        int segment = index >= 0 ? index : -index - 2;
+        return Math.max(0, Math.min(segment, getSegmentCount() - 1));
+    }
+
+    /**
+     * Проекция точки на ближайший отрезок маршрута
+     */
+    public Projection project(double latitude, double longitude) {
+        if (vertices.length == 0) {
+            throw new IllegalArgumentException("Route path is empty");
+        }
+        if (vertices.length < 2) {
+            Coordinate vertex = vertices[0];
+            return new Projection(0, 0, GeometryUtils.distanceMeters(latitude, longitude, vertex.y, vertex.x),
+                    vertex.y, vertex.x);
+        }
+        return projectOnSegment(nearestSegment(latitude, longitude), latitude, longitude);
+    }
+
+    /**
+     * Проекция точки на заданный отрезок маршрута
+     *
+     * @param segment Индекс отрезка
+     */
+    public Projection projectOnSegment(int segment, double latitude, double longitude) {
+        Coordinate a = vertices[segment];
+        Coordinate b = vertices[segment + 1];
+        double fraction = segmentFraction(a, b, latitude, longitude, Math.cos(Math.toRadians(latitude)));
+        double matchedLat = a.y + (b.y - a.y) * fraction;
+        double matchedLon = a.x + (b.x - a.x) * fraction;
+        double segmentLength = cumulativeDistances[segment + 1] - cumulativeDistances[segment];
+        double offset = cumulativeDistances[segment] + segmentLength * fraction;
+        double distance = GeometryUtils.distanceMeters(latitude, longitude, matchedLat, matchedLon);
+        return new Projection(segment, offset, distance, matchedLat, matchedLon);
+    }
+
+    /**
+     * Остаток пути до конца маршрута от ближайшей к точке позиции на маршруте
+     *
+     * @return Расстояние в метрах
+     */
+    public double remainingFrom(double latitude, double longitude) {
+        return getLengthMeters() - project(latitude, longitude).getOffsetMeters();
+    }
+
+    private int nearestSegment(double latitude, double longitude) {
+        double x = longitude * xScale;
+        Object nearest = getSegmentTree().nearestNeighbour(
+                new Envelope(x, x, latitude, latitude),
+                new double[] {latitude, longitude},
+                new SegmentDistance());
+        return (Integer) nearest;
+    }
+
+    private STRtree getSegmentTree() {
+        STRtree tree = segmentTree;
+        if (tree == null) {
+            synchronized (this) {
+                tree = segmentTree;
+                if (tree == null) {
+                    tree = new STRtree();
+                    for (int i = 0; i < vertices.length - 1; i++) {
+                        tree.insert(new Envelope(vertices[i].x * xScale, vertices[i + 1].x * xScale,
+                                vertices[i].y, vertices[i + 1].y), i);
+                    }
+                    tree.build();
+                    segmentTree = tree;
+                }
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Положение точки на отрезке [a, b] от 0 до 1. Считается в локальной
+     * равнопромежуточной проекции, чтобы градусы долготы и широты были
+     * сопоставимы.
+     *
+     * @param cosLatitude Масштаб градуса долготы относительно градуса широты
+     */
+    private static double segmentFraction(Coordinate a, Coordinate b, double latitude, double longitude,
+                                          double cosLatitude) {
+        double dx = (b.x - a.x) * cosLatitude;
+        double dy = b.y - a.y;
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            return 0;
+        }
+        double px = (longitude - a.x) * cosLatitude;
+        double py = latitude - a.y;
+        return Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+    }
+
+    /**
+     * Расстояние до отрезка в той же плоскости, что и прямоугольники дерева,
+     * иначе расстояние до прямоугольника перестает быть нижней оценкой и
+     * поиск может отбросить ближайший отрезок
+     */
+    private final class SegmentDistance implements ItemDistance {
+        @Override
+        public double distance(ItemBoundable item1, ItemBoundable item2) {
+            double[] point = (double[]) (item1.getItem() instanceof double[] ? item1.getItem() : item2.getItem());
+            int segment = (Integer) (item1.getItem() instanceof Integer ? item1.getItem() : item2.getItem());
+            Coordinate a = vertices[segment];
+            Coordinate b = vertices[segment + 1];
+            double fraction = segmentFraction(a, b, point[0], point[1], xScale);
+            double dx = (a.x + (b.x - a.x) * fraction - point[1]) * xScale;
+            double dy = a.y + (b.y - a.y) * fraction - point[0];
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /**
+     * Положение точки относительно маршрута
+     */
+    public static final class Projection {
+        private final int segment;
+        private final double offsetMeters;
+        private final double distanceMeters;
+        private final double latitude;
+        private final double longitude;
+
+        private Projection(int segment, double offsetMeters, double distanceMeters, double latitude, double longitude) {
+            this.segment = segment;
+            this.offsetMeters = offsetMeters;
+            this.distanceMeters = distanceMeters;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        /**
+         * @return Индекс отрезка маршрута
+         */
+        public int getSegment() {
+            return segment;
+        }
+
+        /**
+         * @return Пройденное расстояние вдоль маршрута до проекции, в метрах
+         */
+        public double getOffsetMeters() {
+            return offsetMeters;
+        }
+
+        /**
+         * @return Расстояние от точки до маршрута, в метрах
+         */
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.config.CacheConfig;
+import com.bnovauto.api.model.Route;
+import com.bnovauto.api.repository.RouteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Метрики геометрии маршрутов. Считаются один раз при записи маршрута и
+ * сохраняются вместе с ним, при чтении берутся из кэша, поэтому запросы
+ * остатка пути и прогноза прибытия не пересчитывают линию.
+ */
+@Service
+public class RouteMetricsService {
+
+    private final RouteRepository routeRepository;
+
+    @Autowired
+    public RouteMetricsService(RouteRepository routeRepository) {
+        this.routeRepository = routeRepository;
+    }
+
+    /**
+     * Считает метрики линии маршрута и записывает их в сущность
+     *
+     * @param route Маршрут, у которого задана линия
+     */
+    public void apply(Route route) {
+        if (route.getPath() == null || route.getPath().isEmpty()) {
+            route.setLengthMeters(null);
+            route.setCumulativeDistances(null);
+            route.setMinLatitude(null);
+            route.setMinLongitude(null);
+            route.setMaxLatitude(null);
+            route.setMaxLongitude(null);
+            return;
+        }
+        RouteMetrics metrics = RouteMetrics.compute(route.getPath());
+        route.setLengthMeters(metrics.getLengthMeters());
+        route.setCumulativeDistances(metrics.getCumulativeDistances());
+        route.setMinLatitude(metrics.getMinLatitude());
+        route.setMinLongitude(metrics.getMinLongitude());
+        route.setMaxLatitude(metrics.getMaxLatitude());
+        route.setMaxLongitude(metrics.getMaxLongitude());
+    }
+
+    /**
+     * Считает метрики набора маршрутов параллельно в общем ForkJoinPool.
+     * Линии независимы, поэтому при массовом импорте расчет масштабируется
+     * по числу ядер.
+     */
+    public void applyAll(List<Route> routes) {
+        routes.parallelStream().forEach(this::apply);
+    }
+
+    /**
+     * Метрики маршрута из кэша
+     *
+     * @param routeId ID маршрута
+     * @return Метрики или null, если у маршрута нет линии или она пустая
+     */
+    @Cacheable(cacheNames = CacheConfig.ROUTE_METRICS, unless = "#result == null")
+    public RouteMetrics getMetrics(Long routeId) {
+        Route route = routeRepository.findById(routeId)
+                .orElseThrow(() -> new IllegalArgumentException("Route not found with id: " + routeId));
+        if (route.getPath() == null || route.getPath().isEmpty()) {
+            return null;
+        }
+        return RouteMetrics.of(route.getPath(), route.getCumulativeDistances());
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.ROUTE_METRICS)
+    public void evict(Long routeId) {
+    }
+}
@@ -2,57 +2,106 @@ package com.bnovauto.api.service;
 
 import com.bnovauto.api.model.Company;
 import com.bnovauto.api.model.Route;
-import com.bnovauto.api.repository.CompanyRepository;
+import com.bnovauto.api.model.RouteAssignment;
+import com.bnovauto.api.model.Vehicle;
+import com.bnovauto.api.payload.response.RouteProgressResponse;
+import com.bnovauto.api.payload.response.RouteResponse;
+import com.bnovauto.api.repository.RouteAssignmentRepository;
 import com.bnovauto.api.repository.RouteRepository;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.geom.PrecisionModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class RouteService {
 
     private final RouteRepository routeRepository;
-    private final CompanyRepository companyRepository;
-    private final GeometryFactory geometryFactory;
+    private final ReferenceDataCache referenceCache;
+    private final RouteAssignmentRepository assignmentRepository;
+    private final RouteGeometryIndex routeIndex;
+    private final RouteDeviationService deviationService;
+    private final RouteMetricsService metricsService;
+    private final RouteMatchingService matchingService;
 
     @Autowired
-    public RouteService(RouteRepository routeRepository, CompanyRepository companyRepository) {
+    public RouteService(RouteRepository routeRepository, ReferenceDataCache referenceCache,
+                        RouteAssignmentRepository assignmentRepository,
+                        RouteGeometryIndex routeIndex, RouteDeviationService deviationService,
+                        RouteMetricsService metricsService, RouteMatchingService matchingService) {
         this.routeRepository = routeRepository;
-        this.companyRepository = companyRepository;
-        this.geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+        this.referenceCache = referenceCache;
+        this.assignmentRepository = assignmentRepository;
+        this.routeIndex = routeIndex;
+        this.deviationService = deviationService;
+        this.metricsService = metricsService;
+        this.matchingService = matchingService;
     }
 
-    public List<Route> getAllRoutes() {
-        return routeRepository.findAll();
+    public List<RouteResponse> getAllRoutes() {
+        return routeRepository.findAllSummaries();
     }
 
     public Optional<Route> getRouteById(Long id) {
         return routeRepository.findById(id);
     }
 
-    public List<Route> getRoutesByCompanyId(Long companyId) {
-        return routeRepository.findByCompanyId(companyId);
+    public List<RouteResponse> getRoutesByCompanyId(Long companyId) {
+        return routeRepository.findSummariesByCompanyId(companyId);
     }
 
     public Route createRoute(Route route) {
         // Проверка существования компании
         if (route.getCompany() != null && route.getCompany().getId() != null) {
-            Optional<Company> companyOptional = companyRepository.findById(route.getCompany().getId());
-            if (!companyOptional.isPresent()) {
+            Company company = referenceCache.getCompany(route.getCompany().getId());
+            if (company == null) {
                 throw new IllegalArgumentException("Company not found with id: " + route.getCompany().getId());
             }
-            route.setCompany(companyOptional.get());
+            route.setCompany(company);
         }
         
-        return routeRepository.save(route);
+        metricsService.apply(route);
+        Route saved = routeRepository.save(route);
+        routeIndex.refresh(saved.getId(), saved.getPath());
+        return saved;
+    }
+
+    /**
+     * Массовое создание маршрутов. Метрики линий считаются параллельно до
+     * сохранения, маршруты сохраняются одним вызовом.
+     *
+     * @param routes Новые маршруты
+     * @return Сохраненные маршруты
+     */
+    @Transactional
+    public List<Route> createRoutes(List<Route> routes) {
+        for (Route route : routes) {
+            if (route.getCompany() != null && route.getCompany().getId() != null) {
+                Company company = referenceCache.getCompany(route.getCompany().getId());
+                if (company == null) {
+                    throw new IllegalArgumentException("Company not found with id: " + route.getCompany().getId());
+                }
+                route.setCompany(company);
+            }
+        }
+
+        metricsService.applyAll(routes);
+        List<Route> saved = new ArrayList<>(routeRepository.saveAll(routes));
+        // Индекс линий пополняется после фиксации, при откате маршрутов в нем нет
+        TransactionUtils.afterCommit(() -> {
+            for (Route route : saved) {
+                routeIndex.refresh(route.getId(), route.getPath());
+            }
+        });
+        return saved;
     }
 
     public Route updateRoute(Long id, Route routeDetails) {
@@ -69,11 +118,11 @@ public class RouteService {
         // Проверка и обновление компании
         if (routeDetails.getCompany() != null && routeDetails.getCompany().getId() != null) {
             if (route.getCompany() == null || !route.getCompany().getId().equals(routeDetails.getCompany().getId())) {
-                Optional<Company> companyOptional = companyRepository.findById(routeDetails.getCompany().getId());
-                if (!companyOptional.isPresent()) {
+                Company company = referenceCache.getCompany(routeDetails.getCompany().getId());
+                if (company == null) {
                     throw new IllegalArgumentException("Company not found with id: " + routeDetails.getCompany().getId());
                 }
-                route.setCompany(companyOptional.get());
+                route.setCompany(company);
             }
         }
         
@@ -86,15 +135,108 @@ public class RouteService {
             route.setEndPoint(routeDetails.getEndPoint());
         }
         
+        boolean pathChanged = false;
         if (routeDetails.getPath() != null) {
             route.setPath(routeDetails.getPath());
+            pathChanged = true;
         }
         
-        return routeRepository.save(route);
+        // Метрики и буферы пересчитываются, только если изменилась геометрия
+        if (pathChanged) {
+            metricsService.apply(route);
+        }
+        Route saved = routeRepository.save(route);
+        referenceCache.evictRoute(id);
+        if (pathChanged) {
+            metricsService.evict(id);
+            matchingService.resetRoute(id);
+            routeIndex.refresh(saved.getId(), saved.getPath());
+        }
+        return saved;
     }
 
     public void deleteRoute(Long id) {
         routeRepository.deleteById(id);
+        referenceCache.evictRoute(id);
+        metricsService.evict(id);
+        routeIndex.remove(id);
+        deviationService.removeRoute(id);
+        matchingService.resetRoute(id);
+    }
+
+    public List<RouteResponse> getRoutesByVehicle(Long vehicleId) {
+        return routeRepository.findSummariesByVehicleId(vehicleId);
+    }
+
+    /**
+     * Маршруты с активным назначением на транспортное средство
+     */
+    public List<RouteResponse> getActiveRoutes() {
+        return routeRepository.findSummariesByAssignmentStatus(RouteAssignment.STATUS_ASSIGNED);
+    }
+
+    /**
+     * Назначает маршрут транспортному средству. Предыдущее активное назначение
+     * этого ТС завершается.
+     *
+     * @param id ID маршрута
+     * @param assignmentDetails Параметры назначения: vehicleId
+     * @return Сведения о назначении
+     */
+    @Transactional
+    public Map<String, Object> assignRoute(Long id, Map<String, Object> assignmentDetails) {
+        Object vehicleIdValue = assignmentDetails.get("vehicleId");
+        if (vehicleIdValue == null) {
+            throw new IllegalArgumentException("vehicleId is required");
+        }
+        Long vehicleId = Long.valueOf(vehicleIdValue.toString());
+
+        Route route = referenceCache.getRoute(id);
+        if (route == null) {
+            throw new IllegalArgumentException("Route not found with id: " + id);
+        }
+        Vehicle vehicle = referenceCache.getVehicle(vehicleId);
+        if (vehicle == null) {
+            throw new IllegalArgumentException("Vehicle not found with id: " + vehicleId);
+        }
+
+        completeActiveAssignments(vehicleId);
+
+        RouteAssignment assignment = new RouteAssignment();
+        assignment.setRoute(route);
+        assignment.setVehicle(vehicle);
+        assignment.setStatus(RouteAssignment.STATUS_ASSIGNED);
+        assignment = assignmentRepository.save(assignment);
+        // Проверка отклонений переключается на новый маршрут после фиксации назначения
+        TransactionUtils.afterCommit(() -> deviationService.assignRoute(vehicleId, id));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("assignmentId", assignment.getId());
+        result.put("routeId", id);
+        result.put("vehicleId", vehicleId);
+        result.put("status", assignment.getStatus());
+        result.put("assignedAt", assignment.getAssignedAt());
+        return result;
+    }
+
+    /**
+     * Завершает активное назначение маршрута транспортного средства
+     *
+     * @param vehicleId ID транспортного средства
+     */
+    @Transactional
+    public void completeAssignment(Long vehicleId) {
+        completeActiveAssignments(vehicleId);
+        TransactionUtils.afterCommit(() -> deviationService.unassignRoute(vehicleId));
+    }
+
+    private void completeActiveAssignments(Long vehicleId) {
+        LocalDateTime now = LocalDateTime.now();
+        for (RouteAssignment active : assignmentRepository.findByVehicleIdAndStatus(vehicleId, RouteAssignment.STATUS_ASSIGNED)) {
+            active.setStatus(RouteAssignment.STATUS_COMPLETED);
+            active.setCompletedAt(now);
+            assignmentRepository.save(active);
+        }
     }
 
     /**
@@ -115,31 +257,17 @@ public class RouteService {
                                         List<Double> waypoints) {
         
         // Проверка существования компании
-        Optional<Company> companyOptional = companyRepository.findById(companyId);
-        if (!companyOptional.isPresent()) {
+        Company company = referenceCache.getCompany(companyId);
+        if (company == null) {
             throw new IllegalArgumentException("Company not found with id: " + companyId);
         }
-        Company company = companyOptional.get();
         
         // Создание начальной и конечной точек
-        Point startPoint = geometryFactory.createPoint(new Coordinate(startLng, startLat));
-        Point endPoint = geometryFactory.createPoint(new Coordinate(endLng, endLat));
+        Point startPoint = GeometryUtils.createPoint(startLat, startLng);
+        Point endPoint = GeometryUtils.createPoint(endLat, endLng);
         
-        // Создание списка координат для линии маршрута
-        List<Coordinate> coordinates = new ArrayList<>();
-        coordinates.add(new Coordinate(startLng, startLat));
-        
-        // Добавление промежуточных точек
-        if (waypoints != null && waypoints.size() >= 2 && waypoints.size() % 2 == 0) {
-            for (int i = 0; i < waypoints.size(); i += 2) {
-                coordinates.add(new Coordinate(waypoints.get(i+1), waypoints.get(i)));
-            }
-        }
-        
-        coordinates.add(new Coordinate(endLng, endLat));
-        
-        // Создание линии маршрута
-        LineString path = geometryFactory.createLineString(coordinates.toArray(new Coordinate[0]));
+        // Создание линии маршрута с промежуточными точками
+        LineString path = GeometryUtils.createPath(startLat, startLng, endLat, endLng, waypoints);
         
         // Создание и сохранение маршрута
         Route route = new Route();
@@ -148,8 +276,34 @@ public class RouteService {
         route.setStartPoint(startPoint);
         route.setEndPoint(endPoint);
         route.setPath(path);
+        metricsService.apply(route);
         
-        return routeRepository.save(route);
+        Route saved = routeRepository.save(route);
+        routeIndex.refresh(saved.getId(), saved.getPath());
+        return saved;
+    }
+
+    /**
+     * Положение точки на маршруте и прогноз прибытия
+     *
+     * @param id ID маршрута
+     * @param latitude Широта точки
+     * @param longitude Долгота точки
+     * @param speedKmh Скорость для прогноза, км/ч; null - без прогноза
+     * @return Пройденное и оставшееся расстояние
+     */
+    public RouteProgressResponse getRouteProgress(Long id, double latitude, double longitude, Double speedKmh) {
+        RouteMetrics metrics = metricsService.getMetrics(id);
+        if (metrics == null) {
+            throw new IllegalArgumentException("Route has no path: " + id);
+        }
+        RouteMetrics.Projection projection = metrics.project(latitude, longitude);
+        double remaining = metrics.getLengthMeters() - projection.getOffsetMeters();
+        Long etaSeconds = null;
+        if (speedKmh != null && speedKmh > 0) {
+            etaSeconds = Math.round(remaining / (speedKmh / 3.6));
+        }
+        return new RouteProgressResponse(id, metrics.getLengthMeters(), projection.getOffsetMeters(), remaining,
+                projection.getDistanceMeters(), projection.getSegment(), etaSeconds);
     }
-    
 }
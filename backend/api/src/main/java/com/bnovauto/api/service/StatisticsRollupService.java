@@ -0,0 +1,205 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.RollupStatisticsResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Статистика телеметрии по непрерывным агрегатам TimescaleDB
+ * (analytics.vehicle_stats_1m, _1h, _1d) над гипертаблицей
+ * fleet.vehicle_telemetry. Из суточного агрегата строится
+ * analytics.daily_vehicle_stats, которую читают отчеты
+ * analytics.generate_*_report (ReportService). Телеметрия, принимаемая
+ * приложением в таблицу telemetry, сводится отдельно в telemetry_rollups
+ * (TelemetryAggregationService). Приложение по расписанию обновляет
+ * агрегаты за последние bnovauto.rollup.lateDataHours часов: TimescaleDB
+ * пересчитывает в этом окне только интервалы, куда пришли новые или
+ * опоздавшие данные. Запрос статистики читает самый крупный агрегат, границы
+ * которого совпадают с границами периода.
+ */
+@Service
+public class StatisticsRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsRollupService.class);
+
+    private static final String REFRESH_SQL =
+            "CALL refresh_continuous_aggregate(?::regclass, ?::timestamptz, ?::timestamptz)";
+
+    /**
+     * Уровни агрегации от мелкого к крупному. Порядок важен: каждый следующий
+     * агрегат строится из предыдущего и обновляется после него.
+     */
+    public enum Granularity {
+        MINUTE("analytics.vehicle_stats_1m", ChronoUnit.MINUTES),
+        HOUR("analytics.vehicle_stats_1h", ChronoUnit.HOURS),
+        DAY("analytics.vehicle_stats_1d", ChronoUnit.DAYS);
+
+        private final String view;
+        private final ChronoUnit unit;
+
+        Granularity(String view, ChronoUnit unit) {
+            this.view = view;
+            this.unit = unit;
+        }
+
+        public String getView() {
+            return view;
+        }
+
+        /**
+         * Начало и конец периода совпадают с границами корзин. Корзины
+         * time_bucket выровнены по UTC.
+         */
+        boolean isAligned(Instant from, Instant to) {
+            return from.truncatedTo(unit).equals(from) && to.truncatedTo(unit).equals(to);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate analyticsJdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean refreshEnabled;
+    private final Duration lateDataWindow;
+
+    @Autowired
+    public StatisticsRollupService(JdbcTemplate jdbcTemplate,
+                                   @Qualifier("analyticsJdbcTemplate") JdbcTemplate analyticsJdbcTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${bnovauto.rollup.refreshEnabled}") boolean refreshEnabled,
+                                   @Value("${bnovauto.rollup.lateDataHours}") long lateDataHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.analyticsJdbcTemplate = analyticsJdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.refreshEnabled = refreshEnabled;
+        this.lateDataWindow = Duration.ofHours(lateDataHours);
+    }
+
+    /**
+     * Обновляет агрегаты от минутного к суточному. В окно попадают только
+     * закрытые корзины, незавершенная текущая корзина не материализуется.
+     * Вызов refresh_continuous_aggregate нельзя выполнять в транзакции,
+     * поэтому используется основной пул в режиме автофиксации.
+     */
+    @Scheduled(fixedDelayString = "${bnovauto.rollup.refreshIntervalMs}",
+            initialDelayString = "${bnovauto.rollup.refreshIntervalMs}")
+    public void refresh() {
+        if (!refreshEnabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (Granularity granularity : Granularity.values()) {
+            Instant end = now.truncatedTo(granularity.unit);
+            Instant start = end.minus(lateDataWindow).truncatedTo(granularity.unit);
+            if (!start.isBefore(end)) {
+                start = end.minus(1, granularity.unit);
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                jdbcTemplate.update(REFRESH_SQL, granularity.view, Timestamp.from(start), Timestamp.from(end));
+            } catch (DataAccessException e) {
+                logger.warn("Failed to refresh {}: {}", granularity.view, e.getMessage());
+                // Следующие уровни строятся из этого, обновлять их сейчас бессмысленно
+                return;
+            } finally {
+                sample.stop(meterRegistry.timer("statistics.rollup.refresh", "granularity", granularity.name()));
+            }
+        }
+    }
+
+    /**
+     * Самый крупный агрегат, способный ответить на запрос за период
+     *
+     * @param from Начало периода (включительно)
+     * @param to Конец периода (не включительно)
+     */
+    public static Granularity chooseGranularity(Instant from, Instant to) {
+        if (Granularity.DAY.isAligned(from, to)) {
+            return Granularity.DAY;
+        }
+        if (Granularity.HOUR.isAligned(from, to)) {
+            return Granularity.HOUR;
+        }
+        return Granularity.MINUTE;
+    }
+
+    /**
+     * Статистика транспортного средства fleet.vehicles за период по
+     * агрегатам. Границы, не
+     * совпадающие с минутой, расширяются до целых минут. Данные последней
+     * незавершенной минуты и данные, пришедшие после последнего обновления,
+     * в результат не попадают.
+     *
+     * @param vehicleId ID транспортного средства
+     * @param startDate Начало периода в формате ISO
+     * @param endDate Конец периода в формате ISO (не включительно)
+     */
+    public RollupStatisticsResponse getVehicleStatistics(Long vehicleId, String startDate, String endDate) {
+        checkFleetVehicleExists(vehicleId);
+        Instant from = toInstant(startDate).truncatedTo(ChronoUnit.MINUTES);
+        Instant to = toInstant(endDate);
+        if (!to.truncatedTo(ChronoUnit.MINUTES).equals(to)) {
+            to = to.truncatedTo(ChronoUnit.MINUTES).plus(1, ChronoUnit.MINUTES);
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("startDate must be before endDate");
+        }
+
+        Granularity granularity = chooseGranularity(from, to);
+        String sql = "SELECT SUM(samples) AS samples, SUM(speed_sum) / NULLIF(SUM(speed_count), 0) AS avg_speed, "
+                + "MAX(max_speed) AS max_speed, SUM(fuel_level_sum) / NULLIF(SUM(fuel_level_count), 0) AS avg_fuel_level, "
+                + "MIN(min_fuel_level) AS min_fuel_level, MAX(max_fuel_level) AS max_fuel_level, "
+                + "MAX(max_odometer) - MIN(min_odometer) AS distance_traveled, "
+                + "SUM(fuel_consumption_sum) / NULLIF(SUM(fuel_consumption_count), 0) AS avg_fuel_consumption "
+                + "FROM " + granularity.view + " WHERE vehicle_id = ? AND bucket >= ? AND bucket < ?";
+
+        Instant periodEnd = to;
+        return analyticsJdbcTemplate.queryForObject(sql, (rs, rowNum) -> new RollupStatisticsResponse(
+                vehicleId, granularity.name(), toLocalDateTime(from), toLocalDateTime(periodEnd),
+                rs.getLong("samples"),
+                rs.getObject("avg_speed", Double.class),
+                rs.getObject("max_speed", Double.class),
+                rs.getObject("avg_fuel_level", Double.class),
+                rs.getObject("min_fuel_level", Double.class),
+                rs.getObject("max_fuel_level", Double.class),
+                rs.getObject("distance_traveled", Double.class),
+                rs.getObject("avg_fuel_consumption", Double.class)),
+                vehicleId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    // Агрегаты ведутся по ID из fleet.vehicles, а не из таблицы vehicles приложения
+    private void checkFleetVehicleExists(Long vehicleId) {
+        Boolean exists = analyticsJdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM fleet.vehicles WHERE id = ?)", Boolean.class, vehicleId);
+        if (!Boolean.TRUE.equals(exists)) {
+            throw new RuntimeException("Vehicle not found with id: " + vehicleId);
+        }
+    }
+
+    private static Instant toInstant(String date) {
+        if (date == null || date.isEmpty()) {
+            throw new IllegalArgumentException("startDate and endDate are required");
+        }
+        return LocalDateTime.parse(date, DateTimeFormatter.ISO_DATE_TIME).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
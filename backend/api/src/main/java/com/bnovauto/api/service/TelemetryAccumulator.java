@@ -0,0 +1,135 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.VehicleStatisticsResponse;
+
+/**
+ * Накопитель статистики телеметрии на примитивах: количество, суммы,
+ * минимумы и максимумы, а также гистограмма скорости с фиксированными
+ * корзинами для перцентилей. Накопители складываются, поэтому статистика
+ * за период собирается из статистики его частей. Не потокобезопасен.
+ */
+public final class TelemetryAccumulator {
+
+    // Ширина корзины гистограммы скорости, км/ч. Последняя корзина - все выше
+    public static final int SPEED_BIN_KMH = 5;
+    public static final int SPEED_BINS = 51;
+
+    long samples;
+    long speedCount;
+    double speedSum;
+    double speedMax = Double.NEGATIVE_INFINITY;
+    long fuelCount;
+    double fuelSum;
+    double fuelMin = Double.POSITIVE_INFINITY;
+    double fuelMax = Double.NEGATIVE_INFINITY;
+    double engineTemperatureMin = Double.POSITIVE_INFINITY;
+    double engineTemperatureMax = Double.NEGATIVE_INFINITY;
+    long errorCount;
+    final int[] speedHistogram = new int[SPEED_BINS];
+
+    public void add(Double speed, Double fuelLevel, Double engineTemperature, String errorCode) {
+        addSample(speed != null ? speed : Double.NaN,
+                fuelLevel != null ? fuelLevel : Double.NaN,
+                engineTemperature != null ? engineTemperature : Double.NaN,
+                errorCode != null && !errorCode.isEmpty());
+    }
+
+    /**
+     * Добавление записи без упаковки значений; отсутствующий показатель - NaN
+     */
+    public void addSample(double speed, double fuelLevel, double engineTemperature, boolean error) {
+        samples++;
+        if (!Double.isNaN(speed)) {
+            speedCount++;
+            speedSum += speed;
+            speedMax = Math.max(speedMax, speed);
+            speedHistogram[speedBin(speed)]++;
+        }
+        if (!Double.isNaN(fuelLevel)) {
+            fuelCount++;
+            fuelSum += fuelLevel;
+            fuelMin = Math.min(fuelMin, fuelLevel);
+            fuelMax = Math.max(fuelMax, fuelLevel);
+        }
+        if (!Double.isNaN(engineTemperature)) {
+            engineTemperatureMin = Math.min(engineTemperatureMin, engineTemperature);
+            engineTemperatureMax = Math.max(engineTemperatureMax, engineTemperature);
+        }
+        if (error) {
+            errorCount++;
+        }
+    }
+
+    public void merge(TelemetryAccumulator other) {
+        samples += other.samples;
+        speedCount += other.speedCount;
+        speedSum += other.speedSum;
+        speedMax = Math.max(speedMax, other.speedMax);
+        fuelCount += other.fuelCount;
+        fuelSum += other.fuelSum;
+        fuelMin = Math.min(fuelMin, other.fuelMin);
+        fuelMax = Math.max(fuelMax, other.fuelMax);
+        engineTemperatureMin = Math.min(engineTemperatureMin, other.engineTemperatureMin);
+        engineTemperatureMax = Math.max(engineTemperatureMax, other.engineTemperatureMax);
+        errorCount += other.errorCount;
+        for (int i = 0; i < SPEED_BINS; i++) {
+            speedHistogram[i] += other.speedHistogram[i];
+        }
+    }
+
+    public boolean isEmpty() {
+        return samples == 0;
+    }
+
+    /**
+     * Перцентиль скорости с точностью до ширины корзины гистограммы
+     *
+     * @param quantile Доля от 0 до 1
+     * @return Верхняя граница корзины или null, если скорости нет
+     */
+    public Double speedPercentile(double quantile) {
+        long total = 0;
+        for (int count : speedHistogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return null;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < SPEED_BINS; i++) {
+            seen += speedHistogram[i];
+            if (seen >= rank && speedHistogram[i] > 0) {
+                // Для открытой последней корзины известен только максимум
+                return i == SPEED_BINS - 1 ? speedMax : Math.min((double) (i + 1) * SPEED_BIN_KMH, speedMax);
+            }
+        }
+        return speedMax;
+    }
+
+    public VehicleStatisticsResponse toResponse() {
+        VehicleStatisticsResponse response = new VehicleStatisticsResponse(samples,
+                speedCount > 0 ? speedSum / speedCount : null,
+                fuelCount > 0 ? fuelSum / fuelCount : null,
+                speedCount > 0 ? speedMax : null,
+                errorCount);
+        response.setMinFuelLevel(orNull(fuelMin));
+        response.setMaxFuelLevel(orNull(fuelMax));
+        response.setMinEngineTemperature(orNull(engineTemperatureMin));
+        response.setMaxEngineTemperature(orNull(engineTemperatureMax));
+        response.setSpeedP50(speedPercentile(0.5));
+        response.setSpeedP95(speedPercentile(0.95));
+        return response;
+    }
+
+    static int speedBin(double speed) {
+        if (speed <= 0) {
+            return 0;
+        }
+        return Math.min((int) (speed / SPEED_BIN_KMH), SPEED_BINS - 1);
+    }
+
+    private static Double orNull(double value) {
+        return Double.isInfinite(value) ? null : value;
+    }
+}
@@ -0,0 +1,257 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.payload.response.VehicleStatisticsResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Статистика телеметрии, накапливаемая при приеме. Для каждого ТС и часа
+ * ведется строка таблицы telemetry_rollups (db/telemetry_rollups.sql), которая
+ * обновляется в одной транзакции со вставкой записей в telemetry.
+ * Статистика за период собирается из часовых строк, а неполные часы на
+ * краях периода дочитываются из telemetry, поэтому объем чтения зависит от
+ * числа часов, а не записей.
+ */
+@Service
+public class TelemetryAggregationService {
+
+    private static final ChronoUnit BUCKET = ChronoUnit.HOURS;
+
+    // Строки обновляются в одном порядке, чтобы параллельные транзакции не ждали друг друга по кругу
+    private static final Comparator<BucketKey> KEY_ORDER =
+            Comparator.comparingLong(BucketKey::vehicleId).thenComparing(BucketKey::bucketStart);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO telemetry_rollups (vehicle_id, bucket_start, samples, speed_count, speed_sum, speed_max, "
+            + "fuel_count, fuel_sum, fuel_min, fuel_max, engine_temperature_min, engine_temperature_max, "
+            + "error_count, speed_histogram) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (vehicle_id, bucket_start) DO UPDATE SET "
+            + "samples = telemetry_rollups.samples + EXCLUDED.samples, "
+            + "speed_count = telemetry_rollups.speed_count + EXCLUDED.speed_count, "
+            + "speed_sum = telemetry_rollups.speed_sum + EXCLUDED.speed_sum, "
+            + "speed_max = GREATEST(telemetry_rollups.speed_max, EXCLUDED.speed_max), "
+            + "fuel_count = telemetry_rollups.fuel_count + EXCLUDED.fuel_count, "
+            + "fuel_sum = telemetry_rollups.fuel_sum + EXCLUDED.fuel_sum, "
+            + "fuel_min = LEAST(telemetry_rollups.fuel_min, EXCLUDED.fuel_min), "
+            + "fuel_max = GREATEST(telemetry_rollups.fuel_max, EXCLUDED.fuel_max), "
+            + "engine_temperature_min = LEAST(telemetry_rollups.engine_temperature_min, EXCLUDED.engine_temperature_min), "
+            + "engine_temperature_max = GREATEST(telemetry_rollups.engine_temperature_max, EXCLUDED.engine_temperature_max), "
+            + "error_count = telemetry_rollups.error_count + EXCLUDED.error_count, "
+            + "speed_histogram = ARRAY(SELECT COALESCE(a, 0) + COALESCE(b, 0) "
+            + "FROM unnest(telemetry_rollups.speed_histogram, EXCLUDED.speed_histogram) WITH ORDINALITY AS h(a, b, n) "
+            + "ORDER BY n)";
+
+    private static final String ROLLUPS_SQL =
+            "SELECT samples, speed_count, speed_sum, speed_max, fuel_count, fuel_sum, fuel_min, fuel_max, "
+            + "engine_temperature_min, engine_temperature_max, error_count, speed_histogram "
+            + "FROM telemetry_rollups WHERE vehicle_id = ?";
+
+    private static final String RAW_SQL =
+            "SELECT speed, fuel_level, engine_temperature, error_code FROM telemetry WHERE vehicle_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TelemetryHistoryService historyService;
+    private final RecentTelemetryBuffer recentBuffer;
+
+    private final Counter upsertedCounter;
+
+    @Autowired
+    public TelemetryAggregationService(JdbcTemplate jdbcTemplate,
+                                       TelemetryHistoryService historyService,
+                                       RecentTelemetryBuffer recentBuffer,
+                                       MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.historyService = historyService;
+        this.recentBuffer = recentBuffer;
+
+        this.upsertedCounter = meterRegistry.counter("telemetry.rollup.upserted");
+    }
+
+    /**
+     * Добавляет записи в часовые строки telemetry_rollups. Вызывается в
+     * транзакции вставки этих записей в telemetry, поэтому при откате или
+     * падении процесса история и сводки остаются согласованными.
+     *
+     * @param points Записи телеметрии, только что вставленные в telemetry
+     */
+    public void upsertRollups(List<TelemetryPoint> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, TelemetryAccumulator> accumulators = new TreeMap<>(KEY_ORDER);
+        for (TelemetryPoint point : points) {
+            BucketKey key = new BucketKey(point.getVehicleId(), point.getTimestamp().truncatedTo(BUCKET));
+            accumulators.computeIfAbsent(key, k -> new TelemetryAccumulator())
+                    .add(point.getSpeed(), point.getFuelLevel(), point.getEngineTemperature(), point.getErrorCode());
+        }
+
+        List<BucketKey> keys = new ArrayList<>(accumulators.keySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BucketKey key = keys.get(i);
+                setRollupValues(ps, key, accumulators.get(key));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return keys.size();
+            }
+        });
+        upsertedCounter.increment(keys.size());
+    }
+
+    /**
+     * Статистика транспортного средства за период. Период в пределах окна
+     * RecentTelemetryBuffer считается целиком в памяти. Иначе полные часы
+     * читаются из telemetry_rollups, неполные часы на краях периода - из
+     * буфера или из telemetry.
+     *
+     * @param vehicleId ID транспортного средства
+     * @param start Начало периода (включительно) или null
+     * @param end Конец периода (включительно) или null
+     */
+    public VehicleStatisticsResponse getVehicleStatistics(Long vehicleId, LocalDateTime start, LocalDateTime end) {
+        historyService.checkVehicleExists(vehicleId);
+
+        TelemetryAccumulator result = new TelemetryAccumulator();
+        if (recentBuffer.accumulate(result, vehicleId, start, end, true)) {
+            return result.toResponse();
+        }
+
+        // Полные часы: [fullStart, fullEnd)
+        LocalDateTime fullStart = start == null ? null : ceilToBucket(start);
+        LocalDateTime fullEnd = end == null ? null : end.truncatedTo(BUCKET);
+
+        if (fullStart != null && fullEnd != null && !fullStart.isBefore(fullEnd)) {
+            // Период короче часа или не содержит ни одного полного часа
+            readRaw(result, vehicleId, start, end, true);
+            return result.toResponse();
+        }
+
+        readRollups(result, vehicleId, fullStart, fullEnd);
+        if (start != null && start.isBefore(fullStart)) {
+            readRaw(result, vehicleId, start, fullStart, false);
+        }
+        if (end != null) {
+            readRaw(result, vehicleId, fullEnd, end, true);
+        }
+        return result.toResponse();
+    }
+
+    private void readRollups(TelemetryAccumulator result, Long vehicleId, LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder(ROLLUPS_SQL);
+        List<Object> params = new ArrayList<>();
+        params.add(vehicleId);
+        if (from != null) {
+            sql.append(" AND bucket_start >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND bucket_start < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> result.merge(mapRollup(rs)), params.toArray());
+    }
+
+    private void readRaw(TelemetryAccumulator result, Long vehicleId, LocalDateTime from, LocalDateTime to,
+                         boolean inclusiveEnd) {
+        if (recentBuffer.accumulate(result, vehicleId, from, to, inclusiveEnd)) {
+            return;
+        }
+        String sql = RAW_SQL + " AND timestamp >= ? AND timestamp " + (inclusiveEnd ? "<=" : "<") + " ?";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> result.add(
+                        rs.getObject("speed", Double.class),
+                        rs.getObject("fuel_level", Double.class),
+                        rs.getObject("engine_temperature", Double.class),
+                        rs.getString("error_code")),
+                vehicleId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private static void setRollupValues(PreparedStatement ps, BucketKey key, TelemetryAccumulator acc)
+            throws SQLException {
+        ps.setLong(1, key.vehicleId());
+        ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+        ps.setLong(3, acc.samples);
+        ps.setLong(4, acc.speedCount);
+        ps.setDouble(5, acc.speedSum);
+        setFinite(ps, 6, acc.speedMax);
+        ps.setLong(7, acc.fuelCount);
+        ps.setDouble(8, acc.fuelSum);
+        setFinite(ps, 9, acc.fuelMin);
+        setFinite(ps, 10, acc.fuelMax);
+        setFinite(ps, 11, acc.engineTemperatureMin);
+        setFinite(ps, 12, acc.engineTemperatureMax);
+        ps.setLong(13, acc.errorCount);
+        Integer[] histogram = new Integer[TelemetryAccumulator.SPEED_BINS];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = acc.speedHistogram[i];
+        }
+        ps.setArray(14, ps.getConnection().createArrayOf("integer", histogram));
+    }
+
+    private static TelemetryAccumulator mapRollup(ResultSet rs) throws SQLException {
+        TelemetryAccumulator acc = new TelemetryAccumulator();
+        acc.samples = rs.getLong("samples");
+        acc.speedCount = rs.getLong("speed_count");
+        acc.speedSum = rs.getDouble("speed_sum");
+        acc.speedMax = getOrDefault(rs, "speed_max", Double.NEGATIVE_INFINITY);
+        acc.fuelCount = rs.getLong("fuel_count");
+        acc.fuelSum = rs.getDouble("fuel_sum");
+        acc.fuelMin = getOrDefault(rs, "fuel_min", Double.POSITIVE_INFINITY);
+        acc.fuelMax = getOrDefault(rs, "fuel_max", Double.NEGATIVE_INFINITY);
+        acc.engineTemperatureMin = getOrDefault(rs, "engine_temperature_min", Double.POSITIVE_INFINITY);
+        acc.engineTemperatureMax = getOrDefault(rs, "engine_temperature_max", Double.NEGATIVE_INFINITY);
+        acc.errorCount = rs.getLong("error_count");
+        Array array = rs.getArray("speed_histogram");
+        // Строки, перенесенные ранней версией скрипта миграции, без гистограммы
+        if (array != null) {
+            Integer[] histogram = (Integer[]) array.getArray();
+            for (int i = 0; i < histogram.length && i < TelemetryAccumulator.SPEED_BINS; i++) {
+                acc.speedHistogram[i] = histogram[i] != null ? histogram[i] : 0;
+            }
+        }
+        return acc;
+    }
+
+    private static void setFinite(PreparedStatement ps, int index, double value) throws SQLException {
+        if (Double.isInfinite(value)) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    private static double getOrDefault(ResultSet rs, String column, double empty) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? empty : value;
+    }
+
+    private static LocalDateTime ceilToBucket(LocalDateTime time) {
+        LocalDateTime truncated = time.truncatedTo(BUCKET);
+        return truncated.equals(time) ? time : truncated.plus(1, BUCKET);
+    }
+
+    private record BucketKey(long vehicleId, LocalDateTime bucketStart) {
+    }
+}
@@ -0,0 +1,193 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Пакет телеметрии, разобранный из двоичного кадра (TelemetryFrameCodec), в
+ * виде массивов примитивов по полям. Массивы переиспользуются между кадрами и
+ * растут только при увеличении размера пакета. Необязательные показатели
+ * отмечаются битами маски присутствия, код ошибки хранится как смещение в
+ * исходном буфере и превращается в строку только при чтении.
+ */
+public final class TelemetryFrameBatch {
+
+    public static final int HAS_SPEED = 1;
+    public static final int HAS_FUEL_LEVEL = 1 << 1;
+    public static final int HAS_ENGINE_TEMPERATURE = 1 << 2;
+    public static final int HAS_ENGINE_RPM = 1 << 3;
+    public static final int HAS_BATTERY_VOLTAGE = 1 << 4;
+    public static final int HAS_ERROR_CODE = 1 << 5;
+
+    static final int KNOWN_FIELDS = (1 << 6) - 1;
+
+    private long[] vehicleIds;
+    private long[] timestampMillis;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] speeds;
+    private double[] fuelLevels;
+    private double[] engineTemperatures;
+    private int[] engineRpms;
+    private double[] batteryVoltages;
+    private byte[] presence;
+    private int[] errorCodeOffsets;
+    private int[] errorCodeLengths;
+    private ByteBuffer source;
+    private int size;
+
+    public TelemetryFrameBatch(int capacity) {
+        allocate(Math.max(capacity, 16));
+    }
+
+    /**
+     * Подготавливает пакет к разбору нового кадра
+     *
+     * @param count Число записей в кадре
+     * @param source Буфер кадра, из которого читаются коды ошибок
+     */
+    void reset(int count, ByteBuffer source) {
+        if (count > vehicleIds.length) {
+            allocate(Math.max(count, vehicleIds.length * 2));
+        }
+        this.source = source;
+        this.size = 0;
+    }
+
+    void add(long vehicleId, long timestamp, double latitude, double longitude, int mask) {
+        vehicleIds[size] = vehicleId;
+        timestampMillis[size] = timestamp;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        presence[size] = (byte) mask;
+        size++;
+    }
+
+    void setSpeed(int index, double value) {
+        speeds[index] = value;
+    }
+
+    void setFuelLevel(int index, double value) {
+        fuelLevels[index] = value;
+    }
+
+    void setEngineTemperature(int index, double value) {
+        engineTemperatures[index] = value;
+    }
+
+    void setEngineRpm(int index, int value) {
+        engineRpms[index] = value;
+    }
+
+    void setBatteryVoltage(int index, double value) {
+        batteryVoltages[index] = value;
+    }
+
+    void setErrorCode(int index, int offset, int length) {
+        errorCodeOffsets[index] = offset;
+        errorCodeLengths[index] = length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    int capacity() {
+        return vehicleIds.length;
+    }
+
+    public long getVehicleId(int index) {
+        return vehicleIds[index];
+    }
+
+    /**
+     * @return Время снятия показаний, миллисекунды от эпохи (UTC)
+     */
+    public long getTimestampMillis(int index) {
+        return timestampMillis[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    public boolean has(int index, int field) {
+        return (presence[index] & field) != 0;
+    }
+
+    public double getSpeed(int index) {
+        return speeds[index];
+    }
+
+    public double getFuelLevel(int index) {
+        return fuelLevels[index];
+    }
+
+    public double getEngineTemperature(int index) {
+        return engineTemperatures[index];
+    }
+
+    public int getEngineRpm(int index) {
+        return engineRpms[index];
+    }
+
+    public double getBatteryVoltage(int index) {
+        return batteryVoltages[index];
+    }
+
+    /**
+     * @return Код ошибки или null, если трекер его не передал
+     */
+    public String getErrorCode(int index) {
+        if (!has(index, HAS_ERROR_CODE)) {
+            return null;
+        }
+        byte[] bytes = new byte[errorCodeLengths[index]];
+        source.get(errorCodeOffsets[index], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Запись пакета в виде, принимаемом очередью приема телеметрии
+     */
+    public TelemetryPoint toPoint(int index) {
+        long millis = timestampMillis[index];
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+        return new TelemetryPoint(
+                vehicleIds[index],
+                timestamp,
+                latitudes[index],
+                longitudes[index],
+                has(index, HAS_SPEED) ? speeds[index] : null,
+                has(index, HAS_FUEL_LEVEL) ? fuelLevels[index] : null,
+                has(index, HAS_ENGINE_TEMPERATURE) ? engineTemperatures[index] : null,
+                has(index, HAS_ENGINE_RPM) ? engineRpms[index] : null,
+                has(index, HAS_BATTERY_VOLTAGE) ? batteryVoltages[index] : null,
+                getErrorCode(index));
+    }
+
+    private void allocate(int capacity) {
+        vehicleIds = vehicleIds == null ? new long[capacity] : Arrays.copyOf(vehicleIds, capacity);
+        timestampMillis = timestampMillis == null ? new long[capacity] : Arrays.copyOf(timestampMillis, capacity);
+        latitudes = latitudes == null ? new double[capacity] : Arrays.copyOf(latitudes, capacity);
+        longitudes = longitudes == null ? new double[capacity] : Arrays.copyOf(longitudes, capacity);
+        speeds = speeds == null ? new double[capacity] : Arrays.copyOf(speeds, capacity);
+        fuelLevels = fuelLevels == null ? new double[capacity] : Arrays.copyOf(fuelLevels, capacity);
+        engineTemperatures = engineTemperatures == null ? new double[capacity] : Arrays.copyOf(engineTemperatures, capacity);
+        engineRpms = engineRpms == null ? new int[capacity] : Arrays.copyOf(engineRpms, capacity);
+        batteryVoltages = batteryVoltages == null ? new double[capacity] : Arrays.copyOf(batteryVoltages, capacity);
+        presence = presence == null ? new byte[capacity] : Arrays.copyOf(presence, capacity);
+        errorCodeOffsets = errorCodeOffsets == null ? new int[capacity] : Arrays.copyOf(errorCodeOffsets, capacity);
+        errorCodeLengths = errorCodeLengths == null ? new int[capacity] : Arrays.copyOf(errorCodeLengths, capacity);
+    }
+}
@@ -0,0 +1,250 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Двоичный формат пакетной загрузки телеметрии с трекеров.
+ *
+ * Кадр: "BTLM", байт версии, varint число записей, 8 байт (big-endian)
+ * базового времени в миллисекундах UTC. Каждая запись: zigzag-varint
+ * приращения ID транспортного средства, времени (мс), широты и долготы
+ * (1e-6 градуса) относительно предыдущей записи, байт маски присутствия
+ * (TelemetryFrameBatch.HAS_*) и присутствующие показатели в порядке битов:
+ * скорость, уровень топлива и температура двигателя с точностью 0.1,
+ * обороты двигателя, напряжение бортовой сети с точностью 0.01 (zigzag-varint),
+ * код ошибки (varint длина и байты UTF-8).
+ */
+public final class TelemetryFrameCodec {
+
+    private static final byte[] MAGIC = {'B', 'T', 'L', 'M'};
+    private static final int VERSION = 1;
+
+    public static final int MAX_SAMPLES = 100_000;
+    private static final int MAX_ERROR_CODE_BYTES = 255;
+
+    // Минимальный размер записи: четыре приращения и маска по одному байту
+    private static final int MIN_SAMPLE_BYTES = 5;
+
+    // Максимальный размер записи без байтов кода ошибки: десять varint и маска
+    private static final int MAX_SAMPLE_BYTES = 10 * 10 + 1;
+
+    private static final double COORDINATE_FACTOR = 1e6;
+    private static final double SENSOR_FACTOR = 10.0;
+    private static final double VOLTAGE_FACTOR = 100.0;
+
+    private TelemetryFrameCodec() {
+    }
+
+    /**
+     * Разбирает кадр в новый пакет
+     */
+    public static TelemetryFrameBatch decode(ByteBuffer buffer) {
+        TelemetryFrameBatch batch = new TelemetryFrameBatch(0);
+        decode(buffer, batch);
+        return batch;
+    }
+
+    /**
+     * Разбирает кадр в переданный пакет без создания объектов на запись.
+     * Позиция буфера сдвигается на конец кадра.
+     *
+     * @param buffer Буфер с кадром
+     * @param batch Пакет для заполнения, предыдущее содержимое отбрасывается
+     * @return Число записей
+     * @throws IllegalArgumentException если кадр поврежден или обрезан
+     */
+    public static int decode(ByteBuffer buffer, TelemetryFrameBatch batch) {
+        try {
+            for (byte expected : MAGIC) {
+                if (buffer.get() != expected) {
+                    throw new IllegalArgumentException("Not a telemetry frame");
+                }
+            }
+            int version = buffer.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported telemetry frame version: " + version);
+            }
+            long count = readVarint(buffer);
+            // Десятибайтный varint может дать отрицательное значение
+            if (count < 0 || count > MAX_SAMPLES) {
+                throw new IllegalArgumentException("Telemetry frame exceeds " + MAX_SAMPLES + " samples: " + count);
+            }
+            long timestamp = buffer.getLong();
+            if (count * MIN_SAMPLE_BYTES > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated telemetry frame");
+            }
+
+            int samples = (int) count;
+            batch.reset(samples, buffer);
+            long vehicleId = 0;
+            long lat = 0;
+            long lon = 0;
+            for (int i = 0; i < samples; i++) {
+                vehicleId += unzigzag(readVarint(buffer));
+                timestamp += unzigzag(readVarint(buffer));
+                lat += unzigzag(readVarint(buffer));
+                lon += unzigzag(readVarint(buffer));
+                int mask = buffer.get() & 0xFF;
+
+                double latitude = lat / COORDINATE_FACTOR;
+                double longitude = lon / COORDINATE_FACTOR;
+                if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+                    throw new IllegalArgumentException("Coordinates out of range in sample " + i);
+                }
+                if ((mask & ~TelemetryFrameBatch.KNOWN_FIELDS) != 0) {
+                    throw new IllegalArgumentException("Unknown fields in sample " + i);
+                }
+                batch.add(vehicleId, timestamp, latitude, longitude, mask);
+
+                if ((mask & TelemetryFrameBatch.HAS_SPEED) != 0) {
+                    batch.setSpeed(i, unzigzag(readVarint(buffer)) / SENSOR_FACTOR);
+                }
+                if ((mask & TelemetryFrameBatch.HAS_FUEL_LEVEL) != 0) {
+                    batch.setFuelLevel(i, unzigzag(readVarint(buffer)) / SENSOR_FACTOR);
+                }
+                if ((mask & TelemetryFrameBatch.HAS_ENGINE_TEMPERATURE) != 0) {
+                    batch.setEngineTemperature(i, unzigzag(readVarint(buffer)) / SENSOR_FACTOR);
+                }
+                if ((mask & TelemetryFrameBatch.HAS_ENGINE_RPM) != 0) {
+                    batch.setEngineRpm(i, (int) unzigzag(readVarint(buffer)));
+                }
+                if ((mask & TelemetryFrameBatch.HAS_BATTERY_VOLTAGE) != 0) {
+                    batch.setBatteryVoltage(i, unzigzag(readVarint(buffer)) / VOLTAGE_FACTOR);
+                }
+                if ((mask & TelemetryFrameBatch.HAS_ERROR_CODE) != 0) {
+                    long length = readVarint(buffer);
+                    if (length < 0 || length > MAX_ERROR_CODE_BYTES || length > buffer.remaining()) {
+                        throw new IllegalArgumentException("Invalid error code length in sample " + i);
+                    }
+                    batch.setErrorCode(i, buffer.position(), (int) length);
+                    buffer.position(buffer.position() + (int) length);
+                }
+            }
+            return samples;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated telemetry frame");
+        }
+    }
+
+    /**
+     * Кодирует записи в кадр. Используется клиентами и тестовыми стендами;
+     * показатели округляются до точности формата.
+     *
+     * @param points Записи телеметрии
+     * @return Кадр
+     */
+    public static byte[] encode(List<TelemetryPoint> points) {
+        if (points.size() > MAX_SAMPLES) {
+            throw new IllegalArgumentException("Telemetry frame exceeds " + MAX_SAMPLES + " samples: " + points.size());
+        }
+        long firstMillis = points.isEmpty() ? 0 : toMillis(points.get(0));
+        ByteBuffer out = ByteBuffer.allocate(32 + points.size() * MAX_SAMPLE_BYTES);
+        out.put(MAGIC);
+        out.put((byte) VERSION);
+        writeVarint(out, points.size());
+        out.putLong(firstMillis);
+
+        long lastVehicleId = 0;
+        long lastMillis = firstMillis;
+        long lastLat = 0;
+        long lastLon = 0;
+        for (TelemetryPoint point : points) {
+            byte[] errorCode = point.getErrorCode() != null
+                    ? point.getErrorCode().getBytes(StandardCharsets.UTF_8) : null;
+            if (errorCode != null && errorCode.length > MAX_ERROR_CODE_BYTES) {
+                throw new IllegalArgumentException("Error code is too long: " + point.getErrorCode());
+            }
+            if (out.remaining() < MAX_SAMPLE_BYTES + (errorCode != null ? errorCode.length : 0)) {
+                out = grow(out, errorCode != null ? errorCode.length : 0);
+            }
+
+            long millis = toMillis(point);
+            long lat = Math.round(point.getLatitude() * COORDINATE_FACTOR);
+            long lon = Math.round(point.getLongitude() * COORDINATE_FACTOR);
+            writeVarint(out, zigzag(point.getVehicleId() - lastVehicleId));
+            writeVarint(out, zigzag(millis - lastMillis));
+            writeVarint(out, zigzag(lat - lastLat));
+            writeVarint(out, zigzag(lon - lastLon));
+            lastVehicleId = point.getVehicleId();
+            lastMillis = millis;
+            lastLat = lat;
+            lastLon = lon;
+
+            int mask = 0;
+            mask |= point.getSpeed() != null ? TelemetryFrameBatch.HAS_SPEED : 0;
+            mask |= point.getFuelLevel() != null ? TelemetryFrameBatch.HAS_FUEL_LEVEL : 0;
+            mask |= point.getEngineTemperature() != null ? TelemetryFrameBatch.HAS_ENGINE_TEMPERATURE : 0;
+            mask |= point.getEngineRpm() != null ? TelemetryFrameBatch.HAS_ENGINE_RPM : 0;
+            mask |= point.getBatteryVoltage() != null ? TelemetryFrameBatch.HAS_BATTERY_VOLTAGE : 0;
+            mask |= errorCode != null ? TelemetryFrameBatch.HAS_ERROR_CODE : 0;
+            out.put((byte) mask);
+
+            if (point.getSpeed() != null) {
+                writeVarint(out, zigzag(Math.round(point.getSpeed() * SENSOR_FACTOR)));
+            }
+            if (point.getFuelLevel() != null) {
+                writeVarint(out, zigzag(Math.round(point.getFuelLevel() * SENSOR_FACTOR)));
+            }
+            if (point.getEngineTemperature() != null) {
+                writeVarint(out, zigzag(Math.round(point.getEngineTemperature() * SENSOR_FACTOR)));
+            }
+            if (point.getEngineRpm() != null) {
+                writeVarint(out, zigzag(point.getEngineRpm()));
+            }
+            if (point.getBatteryVoltage() != null) {
+                writeVarint(out, zigzag(Math.round(point.getBatteryVoltage() * VOLTAGE_FACTOR)));
+            }
+            if (errorCode != null) {
+                writeVarint(out, errorCode.length);
+                out.put(errorCode);
+            }
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in telemetry frame");
+    }
+
+    private static void writeVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long toMillis(TelemetryPoint point) {
+        return point.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static ByteBuffer grow(ByteBuffer out, int extra) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.capacity() + extra + MAX_SAMPLE_BYTES));
+        out.flip();
+        grown.put(out);
+        return grown;
+    }
+}
@@ -0,0 +1,273 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPageResponse;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.repository.TelemetryPointRowMapper;
+import com.bnovauto.api.repository.VehicleRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * История телеметрии без загрузки всего периода в память: постраничная выдача
+ * с курсором по (timestamp, id) и потоковая выгрузка в NDJSON/CSV через
+ * однонаправленный JDBC-курсор.
+ */
+@Service
+public class TelemetryHistoryService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int STREAM_FLUSH_ROWS = 1000;
+
+    private static final String CSV_HEADER = "vehicle_id,timestamp,latitude,longitude,speed,fuel_level,"
+            + "engine_temperature,engine_rpm,battery_voltage,error_code\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final VehicleRepository vehicleRepository;
+    private final RecentTelemetryBuffer recentBuffer;
+    private final ObjectWriter pointWriter;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public TelemetryHistoryService(JdbcTemplate jdbcTemplate,
+                                   @Qualifier("analyticsDataSource") DataSource analyticsDataSource,
+                                   @Qualifier("analyticsTransactionManager") PlatformTransactionManager analyticsTransactionManager,
+                                   VehicleRepository vehicleRepository, RecentTelemetryBuffer recentBuffer,
+                                   ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vehicleRepository = vehicleRepository;
+        this.recentBuffer = recentBuffer;
+        this.objectMapper = objectMapper;
+        this.pointWriter = objectMapper.writerFor(TelemetryPoint.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        // Выгрузка идет через пул аналитики. PostgreSQL отдает строки порциями
+        // по fetchSize только внутри транзакции (autocommit выключен)
+        this.streamingJdbcTemplate = new JdbcTemplate(analyticsDataSource);
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(analyticsTransactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void checkVehicleExists(Long vehicleId) {
+        if (!vehicleRepository.existsById(vehicleId)) {
+            throw new RuntimeException("Vehicle not found with id: " + vehicleId);
+        }
+    }
+
+    /**
+     * Страница истории телеметрии от новых записей к старым
+     *
+     * @param vehicleId ID транспортного средства
+     * @param startDate Начало периода в формате ISO (необязательно)
+     * @param endDate Конец периода в формате ISO (необязательно)
+     * @param cursor Курсор из предыдущей страницы (необязательно)
+     * @param limit Размер страницы (необязательно)
+     * @return Страница записей и курсор следующей страницы
+     */
+    public TelemetryPageResponse getTelemetryPage(Long vehicleId, String startDate, String endDate,
+                                                  String cursor, Integer limit) {
+        checkVehicleExists(vehicleId);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        StringBuilder sql = new StringBuilder("SELECT id, ").append(TelemetryPointRowMapper.COLUMNS)
+                .append(" FROM telemetry WHERE vehicle_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(vehicleId);
+        appendTimeRange(sql, params, startDate, endDate);
+
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.lastIndexOf('_');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            sql.append(" AND (timestamp, id) < (?, ?)");
+            params.add(LocalDateTime.parse(cursor.substring(0, separator)));
+            params.add(Long.parseLong(cursor.substring(separator + 1)));
+        }
+
+        // Одна лишняя строка показывает, есть ли следующая страница
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<TelemetryPoint> items = new ArrayList<>(pageSize);
+        long[] lastId = new long[1];
+        boolean[] hasMore = new boolean[1];
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+            if (items.size() < pageSize) {
+                items.add(TelemetryPointRowMapper.INSTANCE.mapRow(rs, items.size()));
+                lastId[0] = rs.getLong("id");
+            } else {
+                hasMore[0] = true;
+            }
+        }, params.toArray());
+
+        String nextCursor = null;
+        if (hasMore[0]) {
+            nextCursor = items.get(items.size() - 1).getTimestamp() + "_" + lastId[0];
+        }
+        return new TelemetryPageResponse(items, nextCursor);
+    }
+
+    /**
+     * Последние записи телеметрии за несколько минут, от новых к старым.
+     * Читаются из RecentTelemetryBuffer, а если буфер еще не покрывает
+     * период (например, сразу после запуска) - из БД.
+     *
+     * @param vehicleId ID транспортного средства
+     * @param minutes Длина периода в минутах
+     * @param limit Максимальное число записей (необязательно)
+     * @return Записи телеметрии
+     */
+    public List<TelemetryPoint> getRecentTelemetry(Long vehicleId, int minutes, Integer limit) {
+        checkVehicleExists(vehicleId);
+        if (minutes <= 0) {
+            throw new IllegalArgumentException("minutes must be positive");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime from = LocalDateTime.now().minusMinutes(minutes);
+
+        List<TelemetryPoint> points = recentBuffer.getRecent(vehicleId, from, pageSize);
+        if (points != null) {
+            return points;
+        }
+        return getTelemetryPage(vehicleId, from.toString(), null, null, pageSize).getItems();
+    }
+
+    /**
+     * Потоковая выгрузка истории телеметрии. Строки пишутся в поток по мере
+     * чтения из БД, поэтому расход памяти не зависит от длины периода.
+     *
+     * @param vehicleId ID транспортного средства
+     * @param startDate Начало периода в формате ISO (необязательно)
+     * @param endDate Конец периода в формате ISO (необязательно)
+     * @param format Формат выгрузки: ndjson или csv
+     * @param out Поток ответа
+     */
+    public void streamTelemetry(Long vehicleId, String startDate, String endDate, String format,
+                                OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(TelemetryPointRowMapper.COLUMNS)
+                .append(" FROM telemetry WHERE vehicle_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(vehicleId);
+        appendTimeRange(sql, params, startDate, endDate);
+        sql.append(" ORDER BY timestamp");
+
+        PointWriter writer = createWriter(format, out);
+        int[] rows = new int[1];
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    streamingJdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+                        try {
+                            writer.write(TelemetryPointRowMapper.INSTANCE.mapRow(rs, rows[0]));
+                            // Первая строка уходит клиенту сразу, дальше сбрасываем порциями
+                            if (++rows[0] % STREAM_FLUSH_ROWS == 1) {
+                                writer.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, params.toArray()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_NDJSON.equals(format) || FORMAT_CSV.equals(format);
+    }
+
+    private PointWriter createWriter(String format, OutputStream out) throws IOException {
+        if (FORMAT_CSV.equals(format)) {
+            Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            csv.write(CSV_HEADER);
+            return new PointWriter() {
+                @Override
+                public void write(TelemetryPoint point) throws IOException {
+                    csv.write(Long.toString(point.getVehicleId()));
+                    csv.write(',');
+                    csv.write(point.getTimestamp().toString());
+                    csv.write(',');
+                    csv.write(Double.toString(point.getLatitude()));
+                    csv.write(',');
+                    csv.write(Double.toString(point.getLongitude()));
+                    CsvUtils.writeValue(csv, point.getSpeed());
+                    CsvUtils.writeValue(csv, point.getFuelLevel());
+                    CsvUtils.writeValue(csv, point.getEngineTemperature());
+                    CsvUtils.writeValue(csv, point.getEngineRpm());
+                    CsvUtils.writeValue(csv, point.getBatteryVoltage());
+                    CsvUtils.writeValue(csv, point.getErrorCode());
+                    csv.write('\n');
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    csv.flush();
+                }
+            };
+        }
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return new PointWriter() {
+            @Override
+            public void write(TelemetryPoint point) throws IOException {
+                pointWriter.writeValue(generator, point);
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                generator.flush();
+            }
+        };
+    }
+
+    private static void appendTimeRange(StringBuilder sql, List<Object> params, String startDate, String endDate) {
+        if (startDate != null && !startDate.isEmpty()) {
+            sql.append(" AND timestamp >= ?");
+            params.add(LocalDateTime.parse(startDate, DateTimeFormatter.ISO_DATE_TIME));
+        }
+
+        if (endDate != null && !endDate.isEmpty()) {
+            sql.append(" AND timestamp <= ?");
+            params.add(LocalDateTime.parse(endDate, DateTimeFormatter.ISO_DATE_TIME));
+        }
+    }
+
+    private interface PointWriter {
+        void write(TelemetryPoint point) throws IOException;
+
+        void flush() throws IOException;
+    }
+}
@@ -0,0 +1,333 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.config.ExecutorConfig;
+import com.bnovauto.api.payload.response.MatchedPosition;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Пакетный прием телеметрии: ограниченная очередь в памяти и один поток записи,
+ * который группирует записи от разных транспортных средств и пишет их в БД
+ * пакетными INSERT через JDBC. Записи привязываются к назначенным маршрутам до
+ * вставки и сохраняются вместе с привязкой; часовые сводки telemetry_rollups
+ * обновляются в той же транзакции, что и вставка пакета.
+ */
+@Service
+public class TelemetryIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryIngestionService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO telemetry (vehicle_id, timestamp, location, speed, fuel_level, engine_temperature, "
+            + "engine_rpm, battery_voltage, error_code, route_id, matched_location, route_offset_meters) "
+            + "VALUES (?, ?, ST_SetSRID(ST_MakePoint(?, ?), 4326), ?, ?, ?, ?, ?, ?, ?, "
+            + "ST_SetSRID(ST_MakePoint(?, ?), 4326), ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReferenceDataCache referenceCache;
+    private final TelemetryAggregationService aggregationService;
+    private final RouteMatchingService matchingService;
+    private final List<TelemetryListener> listeners;
+    private final BlockingQueue<TelemetryPoint> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final boolean blockOnFull;
+    private final long offerTimeoutMs;
+    private final boolean virtualThreads;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Counter writtenCounter;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizeSummary;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @Autowired
+    public TelemetryIngestionService(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     ReferenceDataCache referenceCache,
+                                     TelemetryAggregationService aggregationService,
+                                     RouteMatchingService matchingService,
+                                     List<TelemetryListener> listeners,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${bnovauto.ingestion.queueCapacity}") int queueCapacity,
+                                     @Value("${bnovauto.ingestion.batchSize}") int batchSize,
+                                     @Value("${bnovauto.ingestion.flushIntervalMs}") long flushIntervalMs,
+                                     @Value("${bnovauto.ingestion.blockOnFull}") boolean blockOnFull,
+                                     @Value("${bnovauto.ingestion.offerTimeoutMs}") long offerTimeoutMs,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.referenceCache = referenceCache;
+        this.aggregationService = aggregationService;
+        this.matchingService = matchingService;
+        this.listeners = listeners;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.blockOnFull = blockOnFull;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.virtualThreads = virtualThreads;
+
+        this.acceptedCounter = meterRegistry.counter("telemetry.ingest.accepted");
+        this.rejectedCounter = meterRegistry.counter("telemetry.ingest.rejected");
+        this.droppedCounter = meterRegistry.counter("telemetry.ingest.dropped");
+        this.failedCounter = meterRegistry.counter("telemetry.ingest.failed");
+        this.writtenCounter = meterRegistry.counter("telemetry.ingest.written");
+        this.batchTimer = Timer.builder("telemetry.ingest.batch.duration").register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("telemetry.ingest.batch.size").register(meterRegistry);
+        meterRegistry.gauge("telemetry.ingest.queue.depth", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = ExecutorConfig.newThread(virtualThreads, "telemetry-writer", this::runWriter);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Поток записи дочитывает очередь до конца и завершается сам
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        if (writerThread.isAlive()) {
+            logger.warn("Telemetry writer did not drain in time, {} samples lost", queue.size());
+            writerThread.interrupt();
+        }
+    }
+
+    /**
+     * Ставит записи в очередь на запись. Записи принимаются по порядку: при
+     * переполнении очереди прием останавливается, и возвращается количество
+     * принятых записей, чтобы клиент мог повторить отправку оставшихся.
+     *
+     * @param points Записи телеметрии
+     * @return Количество принятых записей
+     */
+    public int submit(List<TelemetryPoint> points) throws InterruptedException {
+        return submit(points.size(), points::get);
+    }
+
+    /**
+     * Ставит в очередь записи разобранного двоичного кадра. Запись создается
+     * только в момент постановки в очередь, после переполнения очереди
+     * оставшиеся записи кадра не преобразуются.
+     *
+     * @param batch Разобранный кадр
+     * @return Количество принятых записей
+     */
+    public int submit(TelemetryFrameBatch batch) throws InterruptedException {
+        return submit(batch.size(), batch::toPoint);
+    }
+
+    private int submit(int count, IntFunction<TelemetryPoint> source) throws InterruptedException {
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            TelemetryPoint point = source.apply(i);
+            boolean offered = blockOnFull
+                    ? queue.offer(point, offerTimeoutMs, TimeUnit.MILLISECONDS)
+                    : queue.offer(point);
+            if (!offered) {
+                break;
+            }
+            accepted++;
+        }
+
+        acceptedCounter.increment(accepted);
+        rejectedCounter.increment(count - accepted);
+        return accepted;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Привязывает записи к назначенным маршрутам перед записью в БД
+     *
+     * @return Привязанные положения в порядке записей, см. RouteMatchingService.match
+     */
+    public List<MatchedPosition> match(List<TelemetryPoint> points) {
+        return matchingService.match(points);
+    }
+
+    /**
+     * Передает сохраненные записи и их привязку к маршрутам всем потребителям
+     * свежей телеметрии. Ошибка одного потребителя не мешает остальным.
+     * Внутри транзакции передача откладывается до ее фиксации, чтобы
+     * последние положения и события не опережали БД и не оставались после отката.
+     */
+    public void publish(List<TelemetryPoint> points, List<MatchedPosition> matches) {
+        TransactionUtils.afterCommit(() -> notifyListeners(points, matches));
+    }
+
+    private void notifyListeners(List<TelemetryPoint> points, List<MatchedPosition> matches) {
+        try {
+            matchingService.apply(points, matches);
+        } catch (Exception e) {
+            logger.error("Route matching failed", e);
+        }
+        for (TelemetryListener listener : listeners) {
+            try {
+                listener.onTelemetry(points);
+            } catch (Exception e) {
+                logger.error("Telemetry listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<TelemetryPoint> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+                if (!batch.isEmpty()) {
+                    batchTimer.record(() -> writeBatch(batch));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failedCounter.increment(batch.size());
+                logger.error("Failed to write telemetry batch of {} samples", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Собирает пакет: ждет первую запись, затем добирает очередь, пока пакет не
+     * заполнится или не истечет интервал сброса.
+     */
+    private void collectBatch(List<TelemetryPoint> batch) throws InterruptedException {
+        TelemetryPoint first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            TelemetryPoint next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<TelemetryPoint> batch) {
+        // Проверка существования транспортных средств по кэшу, неизвестные
+        // проверяются одним запросом на весь пакет
+        Set<Long> vehicleIds = new HashSet<>();
+        for (TelemetryPoint point : batch) {
+            vehicleIds.add(point.getVehicleId());
+        }
+        Set<Long> existingIds = referenceCache.findExistingVehicleIds(vehicleIds);
+
+        List<TelemetryPoint> rows = batch;
+        if (existingIds.size() < vehicleIds.size()) {
+            rows = new ArrayList<>(batch.size());
+            for (TelemetryPoint point : batch) {
+                if (existingIds.contains(point.getVehicleId())) {
+                    rows.add(point);
+                }
+            }
+            droppedCounter.increment(batch.size() - rows.size());
+            logger.warn("Dropped {} telemetry samples for unknown vehicles", batch.size() - rows.size());
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        final List<TelemetryPoint> toInsert = rows;
+        List<MatchedPosition> matches = matchingService.match(toInsert);
+        transactionTemplate.executeWithoutResult(status -> {
+            insertRows(toInsert, matches);
+            aggregationService.upsertRollups(toInsert);
+        });
+
+        writtenCounter.increment(toInsert.size());
+        batchSizeSummary.record(toInsert.size());
+        logger.debug("Wrote telemetry batch of {} samples, queue depth {}", toInsert.size(), queue.size());
+
+        publish(toInsert, matches);
+    }
+
+    private void insertRows(List<TelemetryPoint> toInsert, List<MatchedPosition> matches) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TelemetryPoint point = toInsert.get(i);
+                ps.setLong(1, point.getVehicleId());
+                ps.setObject(2, point.getTimestamp());
+                ps.setDouble(3, point.getLongitude());
+                ps.setDouble(4, point.getLatitude());
+                ps.setObject(5, point.getSpeed(), Types.DOUBLE);
+                ps.setObject(6, point.getFuelLevel(), Types.DOUBLE);
+                ps.setObject(7, point.getEngineTemperature(), Types.DOUBLE);
+                ps.setObject(8, point.getEngineRpm(), Types.INTEGER);
+                ps.setObject(9, point.getBatteryVoltage(), Types.DOUBLE);
+                ps.setString(10, point.getErrorCode());
+                MatchedPosition match = matches.get(i);
+                if (match != null) {
+                    ps.setLong(11, match.getRouteId());
+                    ps.setDouble(12, match.getLongitude());
+                    ps.setDouble(13, match.getLatitude());
+                    ps.setDouble(14, match.getOffsetMeters());
+                } else {
+                    ps.setNull(11, Types.BIGINT);
+                    ps.setNull(12, Types.DOUBLE);
+                    ps.setNull(13, Types.DOUBLE);
+                    ps.setNull(14, Types.DOUBLE);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return toInsert.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+
+import java.util.List;
+
+/**
+ * Потребитель свежей телеметрии. Вызывается после того, как записи сохранены
+ * в БД, в потоке записи, поэтому реализация не должна блокироваться надолго.
+ */
+public interface TelemetryListener {
+
+    void onTelemetry(List<TelemetryPoint> points);
+}
@@ -2,31 +2,50 @@ package com.bnovauto.api.service;
 
 import com.bnovauto.api.model.Telemetry;
 import com.bnovauto.api.model.Vehicle;
+import com.bnovauto.api.payload.request.TelemetryRequest;
+import com.bnovauto.api.payload.response.MatchedPosition;
+import com.bnovauto.api.payload.response.TelemetryBatchResponse;
+import com.bnovauto.api.payload.response.TelemetryPoint;
 import com.bnovauto.api.repository.TelemetryRepository;
-import com.bnovauto.api.repository.VehicleRepository;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.geom.PrecisionModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class TelemetryService {
 
+    // Кадры крупнее этого числа записей разбираются в пакет, который после
+    // запроса не удерживается потоком
+    private static final int MAX_REUSED_FRAME_SAMPLES = 10_000;
+
+    // Разобранный кадр переиспользуется потоком запроса, массивы пакета не
+    // создаются заново на каждый кадр
+    private final ThreadLocal<TelemetryFrameBatch> frameBatches =
+            ThreadLocal.withInitial(() -> new TelemetryFrameBatch(0));
+
     private final TelemetryRepository telemetryRepository;
-    private final VehicleRepository vehicleRepository;
-    private final GeometryFactory geometryFactory;
+    private final ReferenceDataCache referenceCache;
+    private final TelemetryIngestionService ingestionService;
+    private final TelemetryAggregationService aggregationService;
+    private final VehiclePositionStore positionStore;
 
     @Autowired
-    public TelemetryService(TelemetryRepository telemetryRepository, VehicleRepository vehicleRepository) {
+    public TelemetryService(TelemetryRepository telemetryRepository, ReferenceDataCache referenceCache,
+                            TelemetryIngestionService ingestionService,
+                            TelemetryAggregationService aggregationService, VehiclePositionStore positionStore) {
         this.telemetryRepository = telemetryRepository;
-        this.vehicleRepository = vehicleRepository;
-        this.geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+        this.referenceCache = referenceCache;
+        this.ingestionService = ingestionService;
+        this.aggregationService = aggregationService;
+        this.positionStore = positionStore;
     }
 
     public List<Telemetry> getAllTelemetry() {
@@ -37,12 +56,12 @@ public class TelemetryService {
         return telemetryRepository.findById(id);
     }
 
-    public List<Telemetry> getTelemetryByVehicleId(Long vehicleId) {
-        return telemetryRepository.findByVehicleId(vehicleId);
+    public List<TelemetryPoint> getTelemetryByVehicleId(Long vehicleId) {
+        return telemetryRepository.findPointsByVehicleId(vehicleId);
     }
 
-    public List<Telemetry> getTelemetryByVehicleIdAndTimeRange(Long vehicleId, LocalDateTime startTime, LocalDateTime endTime) {
-        return telemetryRepository.findByVehicleIdAndTimestampBetween(vehicleId, startTime, endTime);
+    public List<TelemetryPoint> getTelemetryByVehicleIdAndTimeRange(Long vehicleId, LocalDateTime startTime, LocalDateTime endTime) {
+        return telemetryRepository.findPointsByVehicleIdAndTimestampBetween(vehicleId, startTime, endTime);
     }
 
     public Telemetry createTelemetry(Telemetry telemetry) {
@@ -63,19 +82,19 @@ public class TelemetryService {
      * @param errorCode Код ошибки (если есть)
      * @return Созданная запись телеметрии
      */
+    @Transactional
     public Telemetry recordTelemetry(Long vehicleId, double latitude, double longitude, 
                                     Double speed, Double fuelLevel, Double engineTemperature, 
                                     Integer engineRpm, Double batteryVoltage, String errorCode) {
         
         // Проверка существования транспортного средства
-        Optional<Vehicle> vehicleOptional = vehicleRepository.findById(vehicleId);
-        if (!vehicleOptional.isPresent()) {
+        Vehicle vehicle = referenceCache.getVehicle(vehicleId);
+        if (vehicle == null) {
             throw new IllegalArgumentException("Vehicle not found with id: " + vehicleId);
         }
-        Vehicle vehicle = vehicleOptional.get();
         
         // Создание точки местоположения
-        Point location = geometryFactory.createPoint(new Coordinate(longitude, latitude));
+        Point location = GeometryUtils.createPoint(latitude, longitude);
         
         // Создание и сохранение записи телеметрии
         Telemetry telemetry = new Telemetry();
@@ -88,17 +107,87 @@ public class TelemetryService {
         telemetry.setEngineRpm(engineRpm);
         telemetry.setBatteryVoltage(batteryVoltage);
         telemetry.setErrorCode(errorCode);
+
+        // Привязка к назначенному маршруту сохраняется вместе с записью
+        List<TelemetryPoint> points = Collections.singletonList(new TelemetryPoint(
+                vehicleId, telemetry.getTimestamp(), latitude, longitude, speed, fuelLevel,
+                engineTemperature, engineRpm, batteryVoltage, errorCode));
+        List<MatchedPosition> matches = ingestionService.match(points);
+        MatchedPosition match = matches.get(0);
+        if (match != null) {
+            telemetry.setRouteId(match.getRouteId());
+            telemetry.setMatchedLocation(GeometryUtils.createPoint(match.getLatitude(), match.getLongitude()));
+            telemetry.setRouteOffsetMeters(match.getOffsetMeters());
+        }
         
-        return telemetryRepository.save(telemetry);
+        Telemetry saved = telemetryRepository.save(telemetry);
+        aggregationService.upsertRollups(points);
+        ingestionService.publish(points, matches);
+        return saved;
+    }
+
+    /**
+     * Ставит пакет записей телеметрии в очередь пакетной записи. Существование
+     * транспортных средств проверяется при записи одним запросом на пакет.
+     *
+     * @param requests Записи телеметрии в порядке их снятия
+     * @return Количество принятых записей; меньше размера пакета, если очередь переполнена
+     */
+    public int ingestTelemetryBatch(List<TelemetryRequest> requests) throws InterruptedException {
+        LocalDateTime receivedAt = LocalDateTime.now();
+        List<TelemetryPoint> points = new ArrayList<>(requests.size());
+        for (TelemetryRequest request : requests) {
+            points.add(new TelemetryPoint(
+                    request.getVehicleId(),
+                    request.getTimestamp() != null ? request.getTimestamp() : receivedAt,
+                    request.getLatitude(),
+                    request.getLongitude(),
+                    request.getSpeed(),
+                    request.getFuelLevel(),
+                    request.getEngineTemperature(),
+                    request.getEngineRpm(),
+                    request.getBatteryVoltage(),
+                    request.getErrorCode()));
+        }
+        return ingestionService.submit(points);
+    }
+
+    /**
+     * Разбирает двоичный кадр (TelemetryFrameCodec) и ставит его записи в
+     * очередь пакетной записи. Время снятия показаний в кадре обязательно.
+     *
+     * @param frame Буфер с кадром
+     * @return Число принятых и отклоненных записей; отклоненные есть, если очередь переполнена
+     * @throws IllegalArgumentException если кадр поврежден
+     */
+    public TelemetryBatchResponse ingestTelemetryFrame(ByteBuffer frame) throws InterruptedException {
+        TelemetryFrameBatch batch = frameBatches.get();
+        try {
+            int count = TelemetryFrameCodec.decode(frame, batch);
+            int accepted = ingestionService.submit(batch);
+            return new TelemetryBatchResponse(accepted, count - accepted, ingestionService.getQueueDepth());
+        } finally {
+            if (batch.capacity() > MAX_REUSED_FRAME_SAMPLES) {
+                frameBatches.remove();
+            } else {
+                // Буфер запроса не удерживается до следующего кадра
+                batch.reset(0, null);
+            }
+        }
+    }
+
+    public int getIngestionQueueDepth() {
+        return ingestionService.getQueueDepth();
     }
 
     /**
      * Получает последнюю запись телеметрии для указанного транспортного средства
+     * из хранилища последних положений, без запроса к БД
      * 
      * @param vehicleId ID транспортного средства
      * @return Последняя запись телеметрии или пустой Optional, если записей нет
      */
-    public Optional<Telemetry> getLatestTelemetryForVehicle(Long vehicleId) {
-        return telemetryRepository.findTopByVehicleIdOrderByTimestampDesc(vehicleId);
+    public Optional<TelemetryPoint> getLatestTelemetryForVehicle(Long vehicleId) {
+        return positionStore.getLatest(vehicleId);
     }
 }
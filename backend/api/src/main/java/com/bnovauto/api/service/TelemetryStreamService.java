@@ -0,0 +1,333 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.config.ExecutorConfig;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Рассылка свежей телеметрии подписчикам через Server-Sent Events.
+ * Подписка оформляется на транспортное средство, компанию или прямоугольник
+ * карты. У каждого подписчика свой ограниченный буфер, в котором для одного
+ * ТС хранится только последняя запись, а накопленное отправляется одним
+ * событием раз в интервал, поэтому медленный клиент получает реже, но не
+ * тормозит остальных. Подписчик, одна отправка которому длится дольше
+ * bnovauto.stream.sendTimeoutMs, отключается, чтобы не занимать поток
+ * рассылки.
+ */
+@Service
+public class TelemetryStreamService implements TelemetryListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryStreamService.class);
+
+    private final VehiclePositionStore positionStore;
+    private final long flushIntervalMs;
+    private final int maxPendingPerSubscriber;
+    private final long emitterTimeoutMs;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final boolean virtualThreads;
+
+    private final Map<Long, Set<Subscription>> vehicleSubscriptions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscription>> companySubscriptions = new ConcurrentHashMap<>();
+    private final List<Subscription> areaSubscriptions = new CopyOnWriteArrayList<>();
+    private final Queue<Subscription> dirtySubscriptions = new ConcurrentLinkedQueue<>();
+    private final Set<Subscription> allSubscriptions = ConcurrentHashMap.newKeySet();
+
+    private final Counter publishedCounter;
+    private final Counter deliveredCounter;
+    private final Counter conflatedCounter;
+    private final Counter droppedCounter;
+    private final Counter evictedCounter;
+
+    private ScheduledExecutorService flushScheduler;
+    private ExecutorService senderExecutor;
+    private ExecutorService closeExecutor;
+
+    @Autowired
+    public TelemetryStreamService(VehiclePositionStore positionStore,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${bnovauto.stream.flushIntervalMs}") long flushIntervalMs,
+                                  @Value("${bnovauto.stream.maxPendingPerSubscriber}") int maxPendingPerSubscriber,
+                                  @Value("${bnovauto.stream.emitterTimeoutMs}") long emitterTimeoutMs,
+                                  @Value("${bnovauto.stream.sendTimeoutMs}") long sendTimeoutMs,
+                                  @Value("${bnovauto.stream.senderThreads}") int senderThreads,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.positionStore = positionStore;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxPendingPerSubscriber = maxPendingPerSubscriber;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.senderThreads = senderThreads;
+        this.virtualThreads = virtualThreads;
+
+        this.publishedCounter = meterRegistry.counter("telemetry.stream.published");
+        this.deliveredCounter = meterRegistry.counter("telemetry.stream.delivered");
+        this.conflatedCounter = meterRegistry.counter("telemetry.stream.conflated");
+        this.droppedCounter = meterRegistry.counter("telemetry.stream.dropped");
+        this.evictedCounter = meterRegistry.counter("telemetry.stream.evicted");
+        meterRegistry.gauge("telemetry.stream.subscribers", allSubscriptions, Set::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "telemetry-stream-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Отправка в медленный сокет блокирует поток. На виртуальных потоках
+        // каждая отправка получает свой поток, иначе их число ограничено пулом
+        senderExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("telemetry-stream-send-", 0).factory())
+                : Executors.newFixedThreadPool(senderThreads, ExecutorConfig.namedThreadFactory("telemetry-stream-send-"));
+        // Завершение эмиттера ждет его монитор, который держит зависшая
+        // отправка, поэтому выполняется вне потока рассылки
+        closeExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("telemetry-stream-close-", 0).factory())
+                : Executors.newCachedThreadPool(ExecutorConfig.namedThreadFactory("telemetry-stream-close-"));
+        flushScheduler.scheduleWithFixedDelay(this::flushDirty, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        flushScheduler.scheduleWithFixedDelay(this::evictStalled, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flushScheduler.shutdownNow();
+        senderExecutor.shutdownNow();
+        closeExecutor.shutdownNow();
+        for (Subscription subscription : allSubscriptions) {
+            subscription.emitter.complete();
+        }
+    }
+
+    public SseEmitter subscribeVehicle(Long vehicleId) {
+        Subscription subscription = new Subscription(new SseEmitter(emitterTimeoutMs), null);
+        register(subscription, () -> vehicleSubscriptions.computeIfAbsent(vehicleId, id -> ConcurrentHashMap.newKeySet()).add(subscription),
+                () -> removeFrom(vehicleSubscriptions, vehicleId, subscription));
+        return subscription.emitter;
+    }
+
+    public SseEmitter subscribeCompany(Long companyId) {
+        Subscription subscription = new Subscription(new SseEmitter(emitterTimeoutMs), null);
+        register(subscription, () -> companySubscriptions.computeIfAbsent(companyId, id -> ConcurrentHashMap.newKeySet()).add(subscription),
+                () -> removeFrom(companySubscriptions, companyId, subscription));
+        return subscription.emitter;
+    }
+
+    public SseEmitter subscribeArea(double minLat, double minLon, double maxLat, double maxLon) {
+        if (minLat > maxLat || minLon > maxLon) {
+            throw new IllegalArgumentException("Invalid bounding box");
+        }
+        Subscription subscription = new Subscription(new SseEmitter(emitterTimeoutMs),
+                new double[] {minLat, minLon, maxLat, maxLon});
+        register(subscription, () -> areaSubscriptions.add(subscription), () -> areaSubscriptions.remove(subscription));
+        return subscription.emitter;
+    }
+
+    @Override
+    public void onTelemetry(List<TelemetryPoint> points) {
+        if (allSubscriptions.isEmpty()) {
+            return;
+        }
+        for (TelemetryPoint point : points) {
+            offerAll(vehicleSubscriptions.get(point.getVehicleId()), point);
+
+            Long companyId = positionStore.getCompanyId(point.getVehicleId());
+            if (companyId != null) {
+                offerAll(companySubscriptions.get(companyId), point);
+            }
+
+            for (Subscription subscription : areaSubscriptions) {
+                if (subscription.contains(point)) {
+                    offer(subscription, point);
+                }
+            }
+        }
+    }
+
+    private void offerAll(Set<Subscription> subscriptions, TelemetryPoint point) {
+        if (subscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            offer(subscription, point);
+        }
+    }
+
+    private void offer(Subscription subscription, TelemetryPoint point) {
+        Map<Long, TelemetryPoint> pending = subscription.pending;
+        if (pending.size() >= maxPendingPerSubscriber && !pending.containsKey(point.getVehicleId())) {
+            droppedCounter.increment();
+            return;
+        }
+        if (pending.put(point.getVehicleId(), point) != null) {
+            conflatedCounter.increment();
+        }
+        publishedCounter.increment();
+        if (subscription.dirty.compareAndSet(false, true)) {
+            dirtySubscriptions.add(subscription);
+        }
+    }
+
+    private void flushDirty() {
+        Subscription subscription;
+        while ((subscription = dirtySubscriptions.poll()) != null) {
+            Subscription target = subscription;
+            target.dirty.set(false);
+            if (target.evicted) {
+                continue;
+            }
+            // Если предыдущая отправка еще идет, записи продолжают схлопываться
+            // в буфере, а подписка вернется в очередь по ее завершении
+            if (target.sending.compareAndSet(false, true)) {
+                senderExecutor.execute(() -> send(target));
+            }
+        }
+    }
+
+    private void send(Subscription subscription) {
+        subscription.startSending();
+        try {
+            List<TelemetryPoint> batch = new ArrayList<>(subscription.pending.size());
+            for (Long vehicleId : subscription.pending.keySet()) {
+                TelemetryPoint point = subscription.pending.remove(vehicleId);
+                if (point != null) {
+                    batch.add(point);
+                }
+            }
+            if (!batch.isEmpty()) {
+                subscription.emitter.send(SseEmitter.event().name("telemetry").data(batch));
+                deliveredCounter.increment(batch.size());
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Telemetry subscriber disconnected: {}", e.getMessage());
+            subscription.emitter.completeWithError(e);
+        } finally {
+            subscription.finishSending();
+            subscription.sending.set(false);
+            if (!subscription.evicted && !subscription.pending.isEmpty() && subscription.dirty.compareAndSet(false, true)) {
+                dirtySubscriptions.add(subscription);
+            }
+        }
+    }
+
+    /**
+     * Отключает подписчиков, отправка которым идет дольше sendTimeoutMs.
+     * Подписка сразу убирается из рассылки, а поток отправки прерывается.
+     * Эмиттер завершается в closeExecutor: SseEmitter.completeWithError ждет
+     * монитор, занятый зависшей отправкой, и не должен задерживать поток
+     * рассылки остальным подписчикам.
+     */
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscription subscription : allSubscriptions) {
+            if (subscription.interruptIfStalled(now, sendTimeoutNanos)) {
+                evictedCounter.increment();
+                logger.debug("Telemetry subscriber evicted: send exceeded {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                subscription.evicted = true;
+                subscription.cleanup.run();
+                subscription.pending.clear();
+                closeExecutor.execute(() ->
+                        subscription.emitter.completeWithError(new TimeoutException("Telemetry subscriber is too slow")));
+            }
+        }
+    }
+
+    private void register(Subscription subscription, Runnable attach, Runnable detach) {
+        Runnable cleanup = () -> {
+            if (allSubscriptions.remove(subscription)) {
+                detach.run();
+            }
+        };
+        subscription.cleanup = cleanup;
+        subscription.emitter.onCompletion(cleanup);
+        subscription.emitter.onTimeout(cleanup);
+        subscription.emitter.onError(e -> cleanup.run());
+
+        allSubscriptions.add(subscription);
+        attach.run();
+    }
+
+    private static void removeFrom(Map<Long, Set<Subscription>> index, Long key, Subscription subscription) {
+        index.computeIfPresent(key, (id, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    public int getSubscriberCount() {
+        return allSubscriptions.size();
+    }
+
+    private static final class Subscription {
+        private final SseEmitter emitter;
+        // minLat, minLon, maxLat, maxLon для подписки на область карты
+        private final double[] area;
+        private final Map<Long, TelemetryPoint> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile Runnable cleanup;
+        private volatile boolean evicted;
+
+        // Поток, который сейчас отправляет событие, и время начала отправки
+        private Thread sender;
+        private long sendStartedNanos;
+
+        private Subscription(SseEmitter emitter, double[] area) {
+            this.emitter = emitter;
+            this.area = area;
+        }
+
+        private synchronized void startSending() {
+            sender = Thread.currentThread();
+            sendStartedNanos = System.nanoTime();
+        }
+
+        private void finishSending() {
+            synchronized (this) {
+                sender = null;
+            }
+            // Прерывание по таймауту не должно достаться следующей задаче пула
+            Thread.interrupted();
+        }
+
+        private synchronized boolean interruptIfStalled(long now, long timeoutNanos) {
+            if (sender == null || now - sendStartedNanos < timeoutNanos) {
+                return false;
+            }
+            sender.interrupt();
+            sender = null;
+            return true;
+        }
+
+        private boolean contains(TelemetryPoint point) {
+            return point.getLatitude() >= area[0] && point.getLongitude() >= area[1]
+                    && point.getLatitude() <= area[2] && point.getLongitude() <= area[3];
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TrackResponse;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
+import org.locationtech.jts.simplify.VWSimplifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Трек транспортного средства для отрисовки и воспроизведения поездки: только
+ * координаты и время из телеметрии, упрощенные алгоритмом Дугласа-Пекера или
+ * Висвалингама-Уайатта (JTS) и закодированные компактно.
+ *
+ * Время точки хранится в координате Z: упрощение работает в плоскости XY и
+ * возвращает исходные объекты Coordinate, поэтому время оставшихся точек
+ * сохраняется.
+ */
+@Service
+public class TrackService {
+
+    public static final String ALGORITHM_DOUGLAS_PEUCKER = "dp";
+    public static final String ALGORITHM_VISVALINGAM = "vw";
+
+    public static final int POLYLINE_PRECISION = 5;
+
+    private static final double POLYLINE_FACTOR = 1e5;
+    private static final double BINARY_FACTOR = 1e6;
+    private static final byte[] BINARY_MAGIC = {'B', 'T', 'R', 'K'};
+    private static final int BINARY_VERSION = 1;
+
+    private static final int MAX_POINTS = 1_000_000;
+
+    private final JdbcTemplate analyticsJdbcTemplate;
+    private final TelemetryHistoryService historyService;
+
+    @Autowired
+    public TrackService(@Qualifier("analyticsJdbcTemplate") JdbcTemplate analyticsJdbcTemplate,
+                        TelemetryHistoryService historyService) {
+        this.analyticsJdbcTemplate = analyticsJdbcTemplate;
+        this.historyService = historyService;
+    }
+
+    /**
+     * Упрощенный трек в формате Encoded Polyline
+     *
+     * @param vehicleId ID транспортного средства
+     * @param startDate Начало периода в формате ISO (необязательно)
+     * @param endDate Конец периода в формате ISO (необязательно)
+     * @param toleranceMeters Допуск упрощения в метрах; 0 - без упрощения
+     * @param algorithm dp или vw
+     */
+    public TrackResponse getTrack(Long vehicleId, String startDate, String endDate,
+                                  double toleranceMeters, String algorithm) {
+        Track track = loadTrack(vehicleId, startDate, endDate, toleranceMeters, algorithm);
+        Coordinate[] points = track.points;
+        LocalDateTime startTime = points.length > 0 ? toTime(track.baseSecond, points[0].getZ()) : null;
+        LocalDateTime endTime = points.length > 0 ? toTime(track.baseSecond, points[points.length - 1].getZ()) : null;
+        return new TrackResponse(vehicleId, algorithm, toleranceMeters, track.originalPoints, points.length,
+                startTime, endTime, POLYLINE_PRECISION, encodePolyline(points));
+    }
+
+    /**
+     * Упрощенный трек в двоичном формате с дельта-кодированием.
+     * Формат: "BTRK", версия (1 байт), число точек (varint), время первой
+     * точки в секундах UTC (8 байт, big-endian), далее для каждой точки
+     * zigzag-varint приращения широты и долготы (1e-6 градуса) и времени (секунды).
+     */
+    public byte[] getTrackBinary(Long vehicleId, String startDate, String endDate,
+                                 double toleranceMeters, String algorithm) {
+        Track track = loadTrack(vehicleId, startDate, endDate, toleranceMeters, algorithm);
+        Coordinate[] points = track.points;
+        ByteWriter out = new ByteWriter(16 + points.length * 6);
+        out.write(BINARY_MAGIC);
+        out.writeByte(BINARY_VERSION);
+        out.writeVarint(points.length);
+        long firstSecond = track.baseSecond + (points.length > 0 ? (long) points[0].getZ() : 0);
+        out.writeLong(firstSecond);
+
+        long lastLat = 0;
+        long lastLon = 0;
+        long lastSecond = firstSecond;
+        for (Coordinate point : points) {
+            long lat = Math.round(point.y * BINARY_FACTOR);
+            long lon = Math.round(point.x * BINARY_FACTOR);
+            long second = track.baseSecond + (long) point.getZ();
+            out.writeVarint(zigzag(lat - lastLat));
+            out.writeVarint(zigzag(lon - lastLon));
+            out.writeVarint(zigzag(second - lastSecond));
+            lastLat = lat;
+            lastLon = lon;
+            lastSecond = second;
+        }
+        return out.toByteArray();
+    }
+
+    public static boolean isSupportedAlgorithm(String algorithm) {
+        return ALGORITHM_DOUGLAS_PEUCKER.equals(algorithm) || ALGORITHM_VISVALINGAM.equals(algorithm);
+    }
+
+    private Track loadTrack(Long vehicleId, String startDate, String endDate, double toleranceMeters, String algorithm) {
+        if (!isSupportedAlgorithm(algorithm)) {
+            throw new IllegalArgumentException("Unsupported simplification algorithm: " + algorithm);
+        }
+        if (toleranceMeters < 0) {
+            throw new IllegalArgumentException("Tolerance must not be negative");
+        }
+        historyService.checkVehicleExists(vehicleId);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT ST_X(location) AS longitude, ST_Y(location) AS latitude, timestamp FROM telemetry "
+                + "WHERE vehicle_id = ? AND location IS NOT NULL");
+        List<Object> params = new ArrayList<>();
+        params.add(vehicleId);
+        if (startDate != null && !startDate.isEmpty()) {
+            sql.append(" AND timestamp >= ?");
+            params.add(LocalDateTime.parse(startDate, DateTimeFormatter.ISO_DATE_TIME));
+        }
+        if (endDate != null && !endDate.isEmpty()) {
+            sql.append(" AND timestamp <= ?");
+            params.add(LocalDateTime.parse(endDate, DateTimeFormatter.ISO_DATE_TIME));
+        }
+        sql.append(" ORDER BY timestamp LIMIT ").append(MAX_POINTS);
+
+        // Время в Z хранится как смещение в секундах от первой точки, чтобы не терять точность double
+        List<Coordinate> coordinates = new ArrayList<>();
+        long[] baseSecond = {Long.MIN_VALUE};
+        analyticsJdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+            long second = rs.getTimestamp("timestamp").toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+            if (baseSecond[0] == Long.MIN_VALUE) {
+                baseSecond[0] = second;
+            }
+            coordinates.add(new Coordinate(rs.getDouble("longitude"), rs.getDouble("latitude"), second - baseSecond[0]));
+        }, params.toArray());
+
+        Coordinate[] points = coordinates.toArray(new Coordinate[0]);
+        int originalPoints = points.length;
+        if (points.length > 2 && toleranceMeters > 0) {
+            points = simplify(points, toleranceMeters / GeometryUtils.METERS_PER_DEGREE, algorithm);
+        }
+        return new Track(points, originalPoints, baseSecond[0] == Long.MIN_VALUE ? 0 : baseSecond[0]);
+    }
+
+    private static Coordinate[] simplify(Coordinate[] points, double toleranceDegrees, String algorithm) {
+        Geometry line = GeometryUtils.GEOMETRY_FACTORY.createLineString(points);
+        Geometry simplified = ALGORITHM_VISVALINGAM.equals(algorithm)
+                ? VWSimplifier.simplify(line, toleranceDegrees)
+                : DouglasPeuckerSimplifier.simplify(line, toleranceDegrees);
+        Coordinate[] result = simplified.getCoordinates();
+        // Вырожденный результат (все точки в пределах допуска) - оставляем концы трека
+        return result.length >= 2 ? result : new Coordinate[] {points[0], points[points.length - 1]};
+    }
+
+    /**
+     * Кодирование Encoded Polyline: приращения широты и долготы с точностью
+     * 1e-5 градуса, zigzag и группы по 5 бит в печатных символах ASCII
+     */
+    static String encodePolyline(Coordinate[] points) {
+        StringBuilder encoded = new StringBuilder(points.length * 8);
+        long lastLat = 0;
+        long lastLon = 0;
+        for (Coordinate point : points) {
+            long lat = Math.round(point.y * POLYLINE_FACTOR);
+            long lon = Math.round(point.x * POLYLINE_FACTOR);
+            appendPolylineValue(encoded, lat - lastLat);
+            appendPolylineValue(encoded, lon - lastLon);
+            lastLat = lat;
+            lastLon = lon;
+        }
+        return encoded.toString();
+    }
+
+    private static void appendPolylineValue(StringBuilder encoded, long delta) {
+        long value = zigzag(delta);
+        while (value >= 0x20) {
+            encoded.append((char) ((0x20 | (value & 0x1f)) + 63));
+            value >>>= 5;
+        }
+        encoded.append((char) (value + 63));
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static LocalDateTime toTime(long baseSecond, double offset) {
+        return LocalDateTime.ofEpochSecond(baseSecond + (long) offset, 0, ZoneOffset.UTC);
+    }
+
+    private static final class Track {
+        private final Coordinate[] points;
+        private final int originalPoints;
+        private final long baseSecond;
+
+        private Track(Coordinate[] points, int originalPoints, long baseSecond) {
+            this.points = points;
+            this.originalPoints = originalPoints;
+            this.baseSecond = baseSecond;
+        }
+    }
+
+    private static final class ByteWriter {
+        private byte[] buffer;
+        private int size;
+
+        private ByteWriter(int capacity) {
+            this.buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
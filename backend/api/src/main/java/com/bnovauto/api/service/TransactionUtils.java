@@ -0,0 +1,34 @@
+package com.bnovauto.api.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Действия над состоянием в памяти, которые должны выполняться только после
+ * фиксации транзакции: иначе при откате в памяти остались бы данные, которых
+ * нет в базе.
+ */
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Выполняет действие после фиксации текущей транзакции. При откате
+     * действие не выполняется. Вне транзакции выполняется сразу.
+     *
+     * @param action Действие
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
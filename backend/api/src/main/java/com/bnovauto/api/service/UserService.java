@@ -1,10 +1,13 @@
 package com.bnovauto.api.service;
 
+import com.bnovauto.api.config.CacheConfig;
+import com.bnovauto.api.model.ERole;
 import com.bnovauto.api.model.User;
 import com.bnovauto.api.model.Role;
 import com.bnovauto.api.repository.UserRepository;
-import com.bnovauto.api.repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,11 +23,14 @@ public class UserService {
     private UserRepository userRepository;
     
     @Autowired
-    private RoleRepository roleRepository;
+    private ReferenceDataCache referenceCache;
     
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private CacheManager cacheManager;
+    
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -84,6 +90,7 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
         }
         
+        evictPrincipal(user.getUsername());
         return userRepository.save(user);
     }
     
@@ -93,6 +100,7 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
         
         userRepository.delete(user);
+        evictPrincipal(user.getUsername());
     }
     
     @Transactional
@@ -100,13 +108,13 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         
-        Role role = roleRepository.findByName(roleName)
-                .orElseThrow(() -> new RuntimeException("Role not found with name: " + roleName));
+        Role role = findRole(roleName);
         
         Set<Role> roles = user.getRoles();
         roles.add(role);
         user.setRoles(roles);
         
+        evictPrincipal(user.getUsername());
         return userRepository.save(user);
     }
     
@@ -115,13 +123,13 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         
-        Role role = roleRepository.findByName(roleName)
-                .orElseThrow(() -> new RuntimeException("Role not found with name: " + roleName));
+        Role role = findRole(roleName);
         
         Set<Role> roles = user.getRoles();
         roles.remove(role);
         user.setRoles(roles);
         
+        evictPrincipal(user.getUsername());
         return userRepository.save(user);
     }
     
@@ -130,9 +138,29 @@ public class UserService {
     }
     
     public List<User> getUsersByRole(String roleName) {
-        Role role = roleRepository.findByName(roleName)
-                .orElseThrow(() -> new RuntimeException("Role not found with name: " + roleName));
+        Role role = findRole(roleName);
         
         return userRepository.findByRolesContaining(role);
     }
+    
+    private Role findRole(String roleName) {
+        Role role = null;
+        try {
+            role = referenceCache.getRole(ERole.valueOf(roleName));
+        } catch (IllegalArgumentException e) {
+            // Неизвестное имя роли обрабатывается так же, как отсутствующая роль
+        }
+        if (role == null) {
+            throw new RuntimeException("Role not found with name: " + roleName);
+        }
+        return role;
+    }
+    
+    // Сброс кэша аутентификации; выполняется после фиксации транзакции
+    private void evictPrincipal(String username) {
+        Cache principals = cacheManager.getCache(CacheConfig.PRINCIPALS);
+        if (principals != null) {
+            principals.evict(username);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.repository.TelemetryPointRowMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Последнее известное положение каждого транспортного средства парка.
+ * Прогревается из БД при старте и затем обновляется конвейером приема
+ * телеметрии, поэтому чтение не обращается к PostgreSQL. Положения также
+ * разложены по ячейкам равномерной сетки для выборки по области карты.
+ */
+@Service
+public class VehiclePositionStore implements TelemetryListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VehiclePositionStore.class);
+
+    // Последняя запись по каждому ТС берется по индексу (vehicle_id, timestamp), без сортировки всей таблицы
+    private static final String WARM_UP_SQL =
+            "SELECT v.id AS vehicle_id, v.company_id, t.timestamp, ST_Y(t.location) AS latitude, "
+            + "ST_X(t.location) AS longitude, t.speed, t.fuel_level, t.engine_temperature, "
+            + "t.engine_rpm, t.battery_voltage, t.error_code "
+            + "FROM vehicles v LEFT JOIN LATERAL ("
+            + "SELECT * FROM telemetry WHERE vehicle_id = v.id ORDER BY timestamp DESC LIMIT 1"
+            + ") t ON true";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, TelemetryPoint> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Long> vehicleCompanies = new ConcurrentHashMap<>();
+
+    // Сетка: ключ ячейки -> ID ТС в ней, и обратное соответствие ТС -> ячейка
+    private final double gridCellDegrees;
+    private final Map<Long, Set<Long>> gridCells = new ConcurrentHashMap<>();
+    private final Map<Long, Long> vehicleCells = new ConcurrentHashMap<>();
+
+    @Autowired
+    public VehiclePositionStore(JdbcTemplate jdbcTemplate,
+                                @Value("${bnovauto.map.gridCellDegrees}") double gridCellDegrees) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gridCellDegrees = gridCellDegrees;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        jdbcTemplate.query(WARM_UP_SQL, (RowCallbackHandler) rs -> {
+            long vehicleId = rs.getLong("vehicle_id");
+            vehicleCompanies.put(vehicleId, rs.getLong("company_id"));
+            if (rs.getTimestamp("timestamp") != null) {
+                update(TelemetryPointRowMapper.INSTANCE.mapRow(rs, 0));
+            }
+        });
+        logger.info("Vehicle position store warmed up: {} vehicles, {} positions",
+                vehicleCompanies.size(), positions.size());
+    }
+
+    @Override
+    public void onTelemetry(List<TelemetryPoint> points) {
+        for (TelemetryPoint point : points) {
+            update(point);
+        }
+    }
+
+    /**
+     * Обновляет положение, только если запись новее уже известной: пакеты от
+     * трекеров могут приходить не по порядку. Ячейка сетки меняется внутри
+     * того же compute, поэтому сетка и положения одного ТС не расходятся при
+     * параллельных обновлениях. Записи удаленных или неизвестных ТС
+     * пропускаются.
+     */
+    public void update(TelemetryPoint point) {
+        positions.compute(point.getVehicleId(), (id, current) -> {
+            if (!vehicleCompanies.containsKey(id)
+                    || (current != null && point.getTimestamp().isBefore(current.getTimestamp()))) {
+                return current;
+            }
+            moveToCell(id, cellKey(point.getLatitude(), point.getLongitude()));
+            return point;
+        });
+    }
+
+    public void registerVehicle(Long vehicleId, Long companyId) {
+        vehicleCompanies.put(vehicleId, companyId);
+    }
+
+    public void removeVehicle(Long vehicleId) {
+        vehicleCompanies.remove(vehicleId);
+        positions.compute(vehicleId, (id, current) -> {
+            Long cell = vehicleCells.remove(id);
+            if (cell != null) {
+                removeFromCell(cell, id);
+            }
+            return null;
+        });
+    }
+
+    public boolean isKnownVehicle(Long vehicleId) {
+        return vehicleCompanies.containsKey(vehicleId);
+    }
+
+    public Long getCompanyId(Long vehicleId) {
+        return vehicleCompanies.get(vehicleId);
+    }
+
+    public Optional<TelemetryPoint> getLatest(Long vehicleId) {
+        return Optional.ofNullable(positions.get(vehicleId));
+    }
+
+    public List<TelemetryPoint> getFleetSnapshot() {
+        return new ArrayList<>(positions.values());
+    }
+
+    public List<TelemetryPoint> getCompanySnapshot(Long companyId) {
+        List<TelemetryPoint> snapshot = new ArrayList<>();
+        for (TelemetryPoint point : positions.values()) {
+            if (companyId.equals(vehicleCompanies.get(point.getVehicleId()))) {
+                snapshot.add(point);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Передает в consumer последние положения внутри прямоугольника. Если
+     * прямоугольник покрывает больше ячеек сетки, чем занято, дешевле
+     * просмотреть все положения подряд.
+     *
+     * @param companyId ID компании или null для всего парка
+     */
+    public void forEachInBox(double minLat, double minLon, double maxLat, double maxLon, Long companyId,
+                             Consumer<TelemetryPoint> consumer) {
+        long minX = cellIndex(minLon);
+        long maxX = cellIndex(maxLon);
+        long minY = cellIndex(minLat);
+        long maxY = cellIndex(maxLat);
+        long cellCount = (maxX - minX + 1) * (maxY - minY + 1);
+
+        if (cellCount > gridCells.size()) {
+            for (TelemetryPoint point : positions.values()) {
+                acceptIfInside(point, minLat, minLon, maxLat, maxLon, companyId, consumer);
+            }
+            return;
+        }
+
+        for (long y = minY; y <= maxY; y++) {
+            for (long x = minX; x <= maxX; x++) {
+                Set<Long> vehicles = gridCells.get(cellKey(x, y));
+                if (vehicles == null) {
+                    continue;
+                }
+                for (Long vehicleId : vehicles) {
+                    TelemetryPoint point = positions.get(vehicleId);
+                    if (point != null) {
+                        acceptIfInside(point, minLat, minLon, maxLat, maxLon, companyId, consumer);
+                    }
+                }
+            }
+        }
+    }
+
+    private void acceptIfInside(TelemetryPoint point, double minLat, double minLon, double maxLat, double maxLon,
+                                Long companyId, Consumer<TelemetryPoint> consumer) {
+        double latitude = point.getLatitude();
+        double longitude = point.getLongitude();
+        if (latitude < minLat || latitude > maxLat || longitude < minLon || longitude > maxLon) {
+            return;
+        }
+        if (companyId != null && !companyId.equals(vehicleCompanies.get(point.getVehicleId()))) {
+            return;
+        }
+        consumer.accept(point);
+    }
+
+    // Вызывается внутри positions.compute для того же ТС
+    private void moveToCell(Long vehicleId, long cell) {
+        vehicleCells.compute(vehicleId, (id, previous) -> {
+            if (previous == null || previous != cell) {
+                if (previous != null) {
+                    removeFromCell(previous, id);
+                }
+                gridCells.compute(cell, (key, vehicles) -> {
+                    Set<Long> updated = vehicles != null ? vehicles : ConcurrentHashMap.newKeySet();
+                    updated.add(id);
+                    return updated;
+                });
+            }
+            return cell;
+        });
+    }
+
+    private void removeFromCell(long cell, Long vehicleId) {
+        gridCells.computeIfPresent(cell, (key, vehicles) -> {
+            vehicles.remove(vehicleId);
+            return vehicles.isEmpty() ? null : vehicles;
+        });
+    }
+
+    private long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / gridCellDegrees);
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return cellKey(cellIndex(longitude), cellIndex(latitude));
+    }
+
+    private static long cellKey(long x, long y) {
+        return (y << 32) | (x & 0xffffffffL);
+    }
+}
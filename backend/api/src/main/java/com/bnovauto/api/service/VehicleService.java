@@ -1,23 +1,18 @@
 package com.bnovauto.api.service;
 
 import com.bnovauto.api.model.Vehicle;
-import com.bnovauto.api.model.Telemetry;
 import com.bnovauto.api.model.Company;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.payload.response.VehicleResponse;
+import com.bnovauto.api.payload.response.VehicleStatisticsResponse;
 import com.bnovauto.api.repository.VehicleRepository;
-import com.bnovauto.api.repository.CompanyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Query;
-
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @Service
 public class VehicleService {
@@ -26,13 +21,16 @@ public class VehicleService {
     private VehicleRepository vehicleRepository;
     
     @Autowired
-    private CompanyRepository companyRepository;
+    private VehiclePositionStore positionStore;
     
-    @PersistenceContext
-    private EntityManager entityManager;
+    @Autowired
+    private TelemetryAggregationService aggregationService;
     
-    public List<Vehicle> getAllVehicles() {
-        return vehicleRepository.findAll();
+    @Autowired
+    private ReferenceDataCache referenceCache;
+    
+    public List<VehicleResponse> getAllVehicles() {
+        return vehicleRepository.findAllSummaries();
     }
     
     public Vehicle getVehicleById(Long id) {
@@ -48,13 +46,18 @@ public class VehicleService {
         }
         
         // Проверка существования компании
-        Company company = companyRepository.findById(vehicle.getCompany().getId())
-                .orElseThrow(() -> new RuntimeException("Company not found with id: " + vehicle.getCompany().getId()));
+        Company company = referenceCache.getCompany(vehicle.getCompany().getId());
+        if (company == null) {
+            throw new RuntimeException("Company not found with id: " + vehicle.getCompany().getId());
+        }
         
         vehicle.setCompany(company);
         vehicle.setStatus("ACTIVE");
         
-        return vehicleRepository.save(vehicle);
+        Vehicle saved = vehicleRepository.save(vehicle);
+        // Хранилище положений меняется только после фиксации транзакции
+        TransactionUtils.afterCommit(() -> positionStore.registerVehicle(saved.getId(), company.getId()));
+        return saved;
     }
     
     @Transactional
@@ -79,13 +82,18 @@ public class VehicleService {
         
         // Если меняется компания, проверяем её существование
         if (!vehicle.getCompany().getId().equals(vehicleDetails.getCompany().getId())) {
-            Company company = companyRepository.findById(vehicleDetails.getCompany().getId())
-                    .orElseThrow(() -> new RuntimeException("Company not found with id: " + vehicleDetails.getCompany().getId()));
+            Company company = referenceCache.getCompany(vehicleDetails.getCompany().getId());
+            if (company == null) {
+                throw new RuntimeException("Company not found with id: " + vehicleDetails.getCompany().getId());
+            }
             
             vehicle.setCompany(company);
+            TransactionUtils.afterCommit(() -> positionStore.registerVehicle(id, company.getId()));
         }
         
-        return vehicleRepository.save(vehicle);
+        Vehicle saved = vehicleRepository.save(vehicle);
+        referenceCache.evictVehicle(id);
+        return saved;
     }
     
     @Transactional
@@ -94,115 +102,51 @@ public class VehicleService {
                 .orElseThrow(() -> new RuntimeException("Vehicle not found with id: " + id));
         
         vehicleRepository.delete(vehicle);
+        referenceCache.evictVehicle(id);
+        TransactionUtils.afterCommit(() -> positionStore.removeVehicle(id));
     }
     
-    public List<Vehicle> getVehiclesByCompany(Long companyId) {
-        return vehicleRepository.findByCompanyId(companyId);
+    public List<VehicleResponse> getVehiclesByCompany(Long companyId) {
+        return vehicleRepository.findSummariesByCompanyId(companyId);
     }
     
-    @SuppressWarnings("unchecked")
-    public List<Telemetry> getVehicleTelemetry(Long vehicleId, String startDate, String endDate) {
+    /**
+     * Последняя запись телеметрии из хранилища последних положений, без запроса к БД
+     */
+    public TelemetryPoint getLatestVehicleTelemetry(Long vehicleId) {
         // Проверка существования транспортного средства
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new RuntimeException("Vehicle not found with id: " + vehicleId));
-        
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT t FROM Telemetry t WHERE t.vehicle.id = :vehicleId");
-        
-        // Добавление фильтров по датам, если они указаны
-        if (startDate != null && !startDate.isEmpty()) {
-            queryBuilder.append(" AND t.timestamp >= :startDate");
-        }
-        
-        if (endDate != null && !endDate.isEmpty()) {
-            queryBuilder.append(" AND t.timestamp <= :endDate");
+        if (!positionStore.isKnownVehicle(vehicleId)) {
+            throw new RuntimeException("Vehicle not found with id: " + vehicleId);
         }
         
-        queryBuilder.append(" ORDER BY t.timestamp DESC");
-        
-        Query query = entityManager.createQuery(queryBuilder.toString());
-        query.setParameter("vehicleId", vehicleId);
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ISO_DATE_TIME;
-        
-        if (startDate != null && !startDate.isEmpty()) {
-            LocalDateTime start = LocalDateTime.parse(startDate, formatter);
-            query.setParameter("startDate", start);
-        }
-        
-        if (endDate != null && !endDate.isEmpty()) {
-            LocalDateTime end = LocalDateTime.parse(endDate, formatter);
-            query.setParameter("endDate", end);
-        }
-        
-        return query.getResultList();
+        return positionStore.getLatest(vehicleId).orElse(null);
     }
     
-    @SuppressWarnings("unchecked")
-    public Telemetry getLatestVehicleTelemetry(Long vehicleId) {
-        // Проверка существования транспортного средства
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new RuntimeException("Vehicle not found with id: " + vehicleId));
-        
-        Query query = entityManager.createQuery(
-                "SELECT t FROM Telemetry t WHERE t.vehicle.id = :vehicleId ORDER BY t.timestamp DESC");
-        query.setParameter("vehicleId", vehicleId);
-        query.setMaxResults(1);
-        
-        List<Telemetry> results = query.getResultList();
-        
-        if (results.isEmpty()) {
-            return null;
+    public List<TelemetryPoint> getFleetPositions(Long companyId) {
+        if (companyId != null) {
+            return positionStore.getCompanySnapshot(companyId);
         }
-        
-        return results.get(0);
+        return positionStore.getFleetSnapshot();
     }
     
-    public Map<String, Object> getVehicleStatistics(Long vehicleId, String startDate, String endDate) {
-        // Проверка существования транспортного средства
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new RuntimeException("Vehicle not found with id: " + vehicleId));
-        
-        Map<String, Object> statistics = new HashMap<>();
-        
-        // Получение телеметрии за указанный период
-        List<Telemetry> telemetryData = getVehicleTelemetry(vehicleId, startDate, endDate);
-        
-        // Расчет статистики
-        if (!telemetryData.isEmpty()) {
-            // Средняя скорость
-            double avgSpeed = telemetryData.stream()
-                    .filter(t -> t.getSpeed() != null)
-                    .mapToDouble(t -> t.getSpeed())
-                    .average()
-                    .orElse(0.0);
-            
-            // Средний расход топлива
-            double avgFuelLevel = telemetryData.stream()
-                    .filter(t -> t.getFuelLevel() != null)
-                    .mapToDouble(t -> t.getFuelLevel())
-                    .average()
-                    .orElse(0.0);
-            
-            // Максимальная скорость
-            double maxSpeed = telemetryData.stream()
-                    .filter(t -> t.getSpeed() != null)
-                    .mapToDouble(t -> t.getSpeed())
-                    .max()
-                    .orElse(0.0);
-            
-            // Количество ошибок
-            long errorCount = telemetryData.stream()
-                    .filter(t -> t.getErrorCode() != null && !t.getErrorCode().isEmpty())
-                    .count();
-            
-            statistics.put("avgSpeed", avgSpeed);
-            statistics.put("avgFuelLevel", avgFuelLevel);
-            statistics.put("maxSpeed", maxSpeed);
-            statistics.put("errorCount", errorCount);
-            statistics.put("dataPointsCount", telemetryData.size());
+    /**
+     * Статистика по телеметрии транспортного средства за период. Собирается из
+     * часовых агрегатов TelemetryAggregationService, сырая телеметрия читается
+     * только для неполных часов на краях периода.
+     * 
+     * @param vehicleId ID транспортного средства
+     * @param startDate Начало периода в формате ISO (необязательно)
+     * @param endDate Конец периода в формате ISO (необязательно)
+     * @return Статистика за период
+     */
+    public VehicleStatisticsResponse getVehicleStatistics(Long vehicleId, String startDate, String endDate) {
+        return aggregationService.getVehicleStatistics(vehicleId, parseDate(startDate), parseDate(endDate));
+    }
+    
+    private static LocalDateTime parseDate(String date) {
+        if (date == null || date.isEmpty()) {
+            return null;
         }
-        
-        return statistics;
+        return LocalDateTime.parse(date, DateTimeFormatter.ISO_DATE_TIME);
     }
 }
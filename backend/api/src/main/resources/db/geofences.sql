@@ -0,0 +1,13 @@
+-- Геозоны компаний (GeofenceService): депо, запретные зоны, площадки клиентов.
+-- Многоугольники хранятся в WGS 84, проверка входа и выхода идет в памяти.
+CREATE TABLE IF NOT EXISTS geofences (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    area geometry(Polygon, 4326) NOT NULL,
+    company_id BIGINT NOT NULL REFERENCES companies(id) ON DELETE CASCADE,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_geofences_company_id ON geofences (company_id);
@@ -0,0 +1,13 @@
+-- Назначение маршрутов машинам (RouteAssignment). У машины не больше одного
+-- назначения в статусе ASSIGNED, по нему RouteDeviationService выбирает маршрут.
+CREATE TABLE IF NOT EXISTS route_assignments (
+    id BIGSERIAL PRIMARY KEY,
+    route_id BIGINT NOT NULL REFERENCES routes(id) ON DELETE CASCADE,
+    vehicle_id BIGINT NOT NULL REFERENCES vehicles(id) ON DELETE CASCADE,
+    status VARCHAR(20) DEFAULT 'ASSIGNED',
+    assigned_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_route_assignments_vehicle_id_status ON route_assignments (vehicle_id, status);
+CREATE INDEX IF NOT EXISTS idx_route_assignments_route_id ON route_assignments (route_id);
@@ -0,0 +1,21 @@
+-- Метрики маршрутов, которые RouteMetricsService считает при записи линии:
+-- длина, накопленные расстояния до каждой вершины и охватывающий прямоугольник.
+ALTER TABLE routes ADD COLUMN IF NOT EXISTS length_meters DOUBLE PRECISION;
+ALTER TABLE routes ADD COLUMN IF NOT EXISTS cumulative_distances DOUBLE PRECISION[];
+ALTER TABLE routes ADD COLUMN IF NOT EXISTS min_latitude DOUBLE PRECISION;
+ALTER TABLE routes ADD COLUMN IF NOT EXISTS min_longitude DOUBLE PRECISION;
+ALTER TABLE routes ADD COLUMN IF NOT EXISTS max_latitude DOUBLE PRECISION;
+ALTER TABLE routes ADD COLUMN IF NOT EXISTS max_longitude DOUBLE PRECISION;
+
+-- Заполнение для маршрутов, сохраненных до появления метрик. Длина считается
+-- по сфере, как в приложении. Накопленные расстояния остаются пустыми:
+-- RouteMetrics.of пересчитывает их при первом чтении маршрута.
+UPDATE routes
+SET length_meters = ST_Length(path::geography, false),
+    min_latitude = ST_YMin(path),
+    min_longitude = ST_XMin(path),
+    max_latitude = ST_YMax(path),
+    max_longitude = ST_XMax(path)
+WHERE path IS NOT NULL
+  AND NOT ST_IsEmpty(path)
+  AND length_meters IS NULL;
@@ -228,6 +228,10 @@ CREATE TABLE analytics.reports (
     parameters JSONB,
     created_by INTEGER REFERENCES auth.users(id),
     company_id INTEGER REFERENCES auth.companies(id),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- PENDING, RUNNING, COMPLETED, FAILED
+    result JSONB, -- строки отчета после завершения
+    error TEXT,
+    completed_at TIMESTAMP WITH TIME ZONE,
     created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
@@ -238,33 +242,98 @@ INSERT INTO auth.roles (name, description) VALUES
 ('ROLE_DIRECTOR', 'Директор/предприятие - имеет полный доступ в приложении'),
 ('ROLE_SUPPORT', 'Поддержка - помогает при проблемах и имеет доступ к редактированию рабочих столов');
 
--- Создание материализованных представлений для аналитики
-CREATE MATERIALIZED VIEW analytics.daily_vehicle_stats AS
+-- Непрерывные агрегаты телеметрии (TimescaleDB) по минутам, часам и суткам.
+-- Обновление пересчитывает только интервалы, куда пришли новые или опоздавшие
+-- данные, а не всю гипертаблицу. Часовой агрегат строится из минутного, суточный
+-- из часового, поэтому средние хранятся как сумма и количество. Обновление
+-- запускает приложение (StatisticsRollupService), политики TimescaleDB не нужны.
+-- Агрегаты строятся над fleet.vehicle_telemetry, как прежнее представление
+-- daily_vehicle_stats, и питают отчеты и представления analytics ниже.
+-- Телеметрия из таблицы telemetry приложения сводится в telemetry_rollups
+-- (db/telemetry_rollups.sql) и в эти агрегаты не попадает.
+CREATE MATERIALIZED VIEW analytics.vehicle_stats_1m
+WITH (timescaledb.continuous, timescaledb.materialized_only = true) AS
 SELECT
-    time_bucket('1 day', time) AS day,
+    time_bucket('1 minute', time) AS bucket,
     vehicle_id,
-    AVG(speed) AS avg_speed,
+    COUNT(*) AS samples,
+    SUM(speed) AS speed_sum,
+    COUNT(speed) AS speed_count,
     MAX(speed) AS max_speed,
+    SUM(fuel_level) AS fuel_level_sum,
+    COUNT(fuel_level) AS fuel_level_count,
     MIN(fuel_level) AS min_fuel_level,
     MAX(fuel_level) AS max_fuel_level,
-    AVG(fuel_level) AS avg_fuel_level,
-    MAX(odometer) - MIN(odometer) AS distance_traveled,
-    AVG(fuel_consumption) AS avg_fuel_consumption
+    MIN(odometer) AS min_odometer,
+    MAX(odometer) AS max_odometer,
+    SUM(fuel_consumption) AS fuel_consumption_sum,
+    COUNT(fuel_consumption) AS fuel_consumption_count
 FROM
     fleet.vehicle_telemetry
 GROUP BY
-    day, vehicle_id;
+    time_bucket('1 minute', time), vehicle_id
+WITH NO DATA;
 
--- Создание индекса для оптимизации запросов к материализованному представлению
-CREATE INDEX idx_daily_vehicle_stats_day_vehicle ON analytics.daily_vehicle_stats(day, vehicle_id);
+CREATE MATERIALIZED VIEW analytics.vehicle_stats_1h
+WITH (timescaledb.continuous, timescaledb.materialized_only = true) AS
+SELECT
+    time_bucket('1 hour', bucket) AS bucket,
+    vehicle_id,
+    SUM(samples) AS samples,
+    SUM(speed_sum) AS speed_sum,
+    SUM(speed_count) AS speed_count,
+    MAX(max_speed) AS max_speed,
+    SUM(fuel_level_sum) AS fuel_level_sum,
+    SUM(fuel_level_count) AS fuel_level_count,
+    MIN(min_fuel_level) AS min_fuel_level,
+    MAX(max_fuel_level) AS max_fuel_level,
+    MIN(min_odometer) AS min_odometer,
+    MAX(max_odometer) AS max_odometer,
+    SUM(fuel_consumption_sum) AS fuel_consumption_sum,
+    SUM(fuel_consumption_count) AS fuel_consumption_count
+FROM
+    analytics.vehicle_stats_1m
+GROUP BY
+    time_bucket('1 hour', bucket), vehicle_id
+WITH NO DATA;
 
--- Создание функции для обновления материализованного представления
-CREATE OR REPLACE FUNCTION refresh_daily_vehicle_stats()
-RETURNS VOID AS $$
-BEGIN
-    REFRESH MATERIALIZED VIEW analytics.daily_vehicle_stats;
-END;
-$$ LANGUAGE plpgsql;
+CREATE MATERIALIZED VIEW analytics.vehicle_stats_1d
+WITH (timescaledb.continuous, timescaledb.materialized_only = true) AS
+SELECT
+    time_bucket('1 day', bucket) AS bucket,
+    vehicle_id,
+    SUM(samples) AS samples,
+    SUM(speed_sum) AS speed_sum,
+    SUM(speed_count) AS speed_count,
+    MAX(max_speed) AS max_speed,
+    SUM(fuel_level_sum) AS fuel_level_sum,
+    SUM(fuel_level_count) AS fuel_level_count,
+    MIN(min_fuel_level) AS min_fuel_level,
+    MAX(max_fuel_level) AS max_fuel_level,
+    MIN(min_odometer) AS min_odometer,
+    MAX(max_odometer) AS max_odometer,
+    SUM(fuel_consumption_sum) AS fuel_consumption_sum,
+    SUM(fuel_consumption_count) AS fuel_consumption_count
+FROM
+    analytics.vehicle_stats_1h
+GROUP BY
+    time_bucket('1 day', bucket), vehicle_id
+WITH NO DATA;
+
+-- Суточная статистика в прежнем виде для отчетов и представлений ниже
+CREATE VIEW analytics.daily_vehicle_stats AS
+SELECT
+    bucket AS day,
+    vehicle_id,
+    speed_sum / NULLIF(speed_count, 0) AS avg_speed,
+    max_speed,
+    min_fuel_level,
+    max_fuel_level,
+    fuel_level_sum / NULLIF(fuel_level_count, 0) AS avg_fuel_level,
+    max_odometer - min_odometer AS distance_traveled,
+    fuel_consumption_sum / NULLIF(fuel_consumption_count, 0) AS avg_fuel_consumption
+FROM
+    analytics.vehicle_stats_1d;
 
 -- Создание триггерной функции для автоматического обновления updated_at
 CREATE OR REPLACE FUNCTION update_timestamp()
@@ -0,0 +1,4 @@
+-- Индекс для выборок телеметрии одного ТС за период и поиска последней
+-- записи (VehiclePositionStore, TelemetryRepository). При ddl-auto=validate
+-- Hibernate не создает индексы из @Table, поэтому он задается здесь.
+CREATE INDEX IF NOT EXISTS idx_telemetry_vehicle_id_timestamp ON telemetry (vehicle_id, timestamp);
@@ -0,0 +1,110 @@
+-- Часовые агрегаты телеметрии. Приложение обновляет их в одной транзакции
+-- со вставкой записей в telemetry (TelemetryAggregationService).
+-- Средние хранятся как сумма и количество, чтобы строки складывались.
+CREATE TABLE IF NOT EXISTS telemetry_rollups (
+    vehicle_id BIGINT NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    samples BIGINT NOT NULL,
+    speed_count BIGINT NOT NULL,
+    speed_sum DOUBLE PRECISION NOT NULL,
+    speed_max DOUBLE PRECISION,
+    fuel_count BIGINT NOT NULL,
+    fuel_sum DOUBLE PRECISION NOT NULL,
+    fuel_min DOUBLE PRECISION,
+    fuel_max DOUBLE PRECISION,
+    engine_temperature_min DOUBLE PRECISION,
+    engine_temperature_max DOUBLE PRECISION,
+    error_count BIGINT NOT NULL,
+    speed_histogram INTEGER[], -- корзины по 5 км/ч, последняя - 250 км/ч и выше
+    PRIMARY KEY (vehicle_id, bucket_start)
+);
+
+-- Перенос накопленной истории. Строки пересчитываются из telemetry целиком и
+-- заменяют существующие, поэтому скрипт можно выполнять повторно и после
+-- запуска приема. Блокировка ждет транзакции приема, уже обновившие сводки,
+-- и не дает начать новые обновления до фиксации: их записи либо попадают в
+-- пересчет, либо добавляются к нему после. Номер корзины гистограммы
+-- считается так же, как в TelemetryAccumulator.speedBin.
+BEGIN;
+
+LOCK TABLE telemetry_rollups IN SHARE ROW EXCLUSIVE MODE;
+
+WITH speed_bins AS (
+    SELECT
+        vehicle_id,
+        date_trunc('hour', timestamp) AS bucket_start,
+        LEAST(GREATEST(floor(speed / 5), 0), 50)::INTEGER AS bin,
+        COUNT(*)::INTEGER AS samples
+    FROM
+        telemetry
+    WHERE
+        speed IS NOT NULL
+    GROUP BY
+        1, 2, 3
+),
+histograms AS (
+    SELECT
+        k.vehicle_id,
+        k.bucket_start,
+        array_agg(COALESCE(b.samples, 0) ORDER BY s.bin) AS speed_histogram
+    FROM
+        (SELECT DISTINCT vehicle_id, bucket_start FROM speed_bins) k
+        CROSS JOIN generate_series(0, 50) AS s(bin)
+        LEFT JOIN speed_bins b
+            ON b.vehicle_id = k.vehicle_id AND b.bucket_start = k.bucket_start AND b.bin = s.bin
+    GROUP BY
+        k.vehicle_id, k.bucket_start
+)
+INSERT INTO telemetry_rollups (vehicle_id, bucket_start, samples, speed_count, speed_sum, speed_max,
+                               fuel_count, fuel_sum, fuel_min, fuel_max,
+                               engine_temperature_min, engine_temperature_max, error_count, speed_histogram)
+SELECT
+    t.vehicle_id,
+    t.bucket_start,
+    t.samples,
+    t.speed_count,
+    t.speed_sum,
+    t.speed_max,
+    t.fuel_count,
+    t.fuel_sum,
+    t.fuel_min,
+    t.fuel_max,
+    t.engine_temperature_min,
+    t.engine_temperature_max,
+    t.error_count,
+    COALESCE(h.speed_histogram, array_fill(0, ARRAY[51]))
+FROM
+    (SELECT
+        vehicle_id,
+        date_trunc('hour', timestamp) AS bucket_start,
+        COUNT(*) AS samples,
+        COUNT(speed) AS speed_count,
+        COALESCE(SUM(speed), 0) AS speed_sum,
+        MAX(speed) AS speed_max,
+        COUNT(fuel_level) AS fuel_count,
+        COALESCE(SUM(fuel_level), 0) AS fuel_sum,
+        MIN(fuel_level) AS fuel_min,
+        MAX(fuel_level) AS fuel_max,
+        MIN(engine_temperature) AS engine_temperature_min,
+        MAX(engine_temperature) AS engine_temperature_max,
+        SUM(CASE WHEN error_code IS NOT NULL AND error_code <> '' THEN 1 ELSE 0 END) AS error_count
+    FROM
+        telemetry
+    GROUP BY
+        vehicle_id, date_trunc('hour', timestamp)) t
+    LEFT JOIN histograms h ON h.vehicle_id = t.vehicle_id AND h.bucket_start = t.bucket_start
+ON CONFLICT (vehicle_id, bucket_start) DO UPDATE SET
+    samples = EXCLUDED.samples,
+    speed_count = EXCLUDED.speed_count,
+    speed_sum = EXCLUDED.speed_sum,
+    speed_max = EXCLUDED.speed_max,
+    fuel_count = EXCLUDED.fuel_count,
+    fuel_sum = EXCLUDED.fuel_sum,
+    fuel_min = EXCLUDED.fuel_min,
+    fuel_max = EXCLUDED.fuel_max,
+    engine_temperature_min = EXCLUDED.engine_temperature_min,
+    engine_temperature_max = EXCLUDED.engine_temperature_max,
+    error_count = EXCLUDED.error_count,
+    speed_histogram = EXCLUDED.speed_histogram;
+
+COMMIT;
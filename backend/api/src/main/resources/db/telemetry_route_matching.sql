@@ -0,0 +1,6 @@
+-- Привязка записей телеметрии к назначенному маршруту (RouteMatchingService):
+-- маршрут, ближайшая точка на его линии и пройденное вдоль него расстояние.
+-- У записей без назначенного маршрута колонки пустые.
+ALTER TABLE telemetry ADD COLUMN IF NOT EXISTS route_id BIGINT;
+ALTER TABLE telemetry ADD COLUMN IF NOT EXISTS matched_location geometry(Point, 4326);
+ALTER TABLE telemetry ADD COLUMN IF NOT EXISTS route_offset_meters DOUBLE PRECISION;
@@ -0,0 +1,190 @@
+package com.bnovauto.api.repository;
+
+import com.bnovauto.api.model.Company;
+import com.bnovauto.api.model.ERole;
+import com.bnovauto.api.model.Role;
+import com.bnovauto.api.model.User;
+import com.bnovauto.api.model.Vehicle;
+import com.bnovauto.api.payload.response.VehicleResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Число SQL-запросов на запросы, за которыми стоят эндпоинты списков. Число
+ * запросов не должно зависеть от размера результата.
+ *
+ * Списки маршрутов и телеметрии здесь не проверяются: таблица routes содержит
+ * массив PostgreSQL (cumulative_distances), который H2 не создает, а проекция
+ * телеметрии вызывает функции PostGIS ST_X/ST_Y. Геозоны тоже не проверяются:
+ * H2 не принимает многоугольники JTS в колонку geometry без PostGIS.
+ */
+@DataJpaTest(properties = {
+        // YEAR - зарезервированное слово H2 2.x, а у vehicles есть колонка year
+        "spring.test.database.replace=none",
+        "spring.datasource.url=jdbc:h2:mem:fetchplan;NON_KEYWORDS=YEAR",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class FetchPlanQueryCountTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // GET /api/vehicles
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50})
+    void vehicleListIsSingleStatement(int size) {
+        List<Company> companies = persistCompanies(5);
+        persistVehicles(companies, size);
+        startCounting();
+
+        List<VehicleResponse> vehicles = vehicleRepository.findAllSummaries();
+
+        assertEquals(size, vehicles.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // GET /api/vehicles/company/{companyId}
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50})
+    void companyVehicleListIsSingleStatement(int size) {
+        List<Company> companies = persistCompanies(1);
+        persistVehicles(companies, size);
+        startCounting();
+
+        List<VehicleResponse> vehicles = vehicleRepository.findSummariesByCompanyId(companies.get(0).getId());
+
+        assertEquals(size, vehicles.size());
+        assertEquals(companies.get(0).getId(), vehicles.get(0).getCompanyId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void lazyCompaniesAreLoadedInBatches() {
+        List<Company> companies = persistCompanies(10);
+        persistVehicles(companies, 50);
+        startCounting();
+
+        List<Vehicle> vehicles = vehicleRepository.findAll();
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        for (Vehicle vehicle : vehicles) {
+            assertTrue(vehicle.getCompany().getName().startsWith("Company "));
+        }
+        // Компании всех ТС догружаются одним запросом по default_batch_fetch_size
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    // GET /api/users
+    @ParameterizedTest
+    @ValueSource(ints = {1, 30})
+    void userListWithCompanyAndRolesIsSingleStatement(int size) {
+        List<Company> companies = persistCompanies(3);
+        Set<Role> roles = persistRoles();
+        for (int i = 0; i < size; i++) {
+            persistUser("user" + i, companies.get(i % companies.size()), roles);
+        }
+        startCounting();
+
+        List<User> users = userRepository.findAll();
+        for (User user : users) {
+            assertEquals(roles.size(), user.getRoles().size());
+            assertTrue(user.getCompany().getName().startsWith("Company "));
+        }
+
+        assertEquals(size, users.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // Аутентификация по JWT: UserDetailsServiceImpl.loadUserByUsername
+    @Test
+    void userWithRolesIsLoadedBySingleStatement() {
+        List<Company> companies = persistCompanies(1);
+        Set<Role> roles = persistRoles();
+        persistUser("driver", companies.get(0), roles);
+        startCounting();
+
+        User user = userRepository.findByUsername("driver").orElseThrow();
+
+        assertEquals(roles.size(), user.getRoles().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private void startCounting() {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    private List<Company> persistCompanies(int count) {
+        List<Company> companies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Company company = new Company();
+            company.setName("Company " + i);
+            companies.add(entityManager.persist(company));
+        }
+        return companies;
+    }
+
+    private void persistVehicles(List<Company> companies, int count) {
+        for (int i = 0; i < count; i++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setName("Vehicle " + i);
+            vehicle.setLicensePlate("A" + i + "BC77");
+            vehicle.setStatus("ACTIVE");
+            vehicle.setCompany(companies.get(i % companies.size()));
+            entityManager.persist(vehicle);
+        }
+    }
+
+    private Set<Role> persistRoles() {
+        Role driver = new Role();
+        driver.setName(ERole.ROLE_DRIVER);
+        Role support = new Role();
+        support.setName(ERole.ROLE_SUPPORT);
+        return Set.of(entityManager.persist(driver), entityManager.persist(support));
+    }
+
+    private void persistUser(String username, Company company, Set<Role> roles) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@bnovauto.com");
+        user.setPassword("password");
+        user.setCompany(company);
+        user.setRoles(new HashSet<>(roles));
+        entityManager.persist(user);
+    }
+}
@@ -0,0 +1,245 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.model.Company;
+import com.bnovauto.api.model.Geofence;
+import com.bnovauto.api.payload.request.GeofenceRequest;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.repository.GeofenceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Определение геозон по телеметрии: попадание точки в многоугольники своей
+ * компании, события входа и выхода, параллельная проверка крупных пакетов и
+ * обновление индекса только после фиксации транзакции.
+ */
+class GeofenceServiceTests {
+
+    private static final long COMPANY_ID = 1;
+    private static final long OTHER_COMPANY_ID = 2;
+
+    // Депо: квадрат 55.70..55.80 с.ш., 37.50..37.70 в.д.
+    private static final List<List<Double>> DEPOT = List.of(
+            List.of(55.70, 37.50), List.of(55.70, 37.70), List.of(55.80, 37.70), List.of(55.80, 37.50));
+
+    // Площадка клиента внутри депо
+    private static final List<List<Double>> SITE = List.of(
+            List.of(55.74, 37.58), List.of(55.74, 37.62), List.of(55.76, 37.62), List.of(55.76, 37.58));
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 3, 1, 12, 0, 0);
+
+    private GeofenceRepository geofenceRepository;
+    private ReferenceDataCache referenceCache;
+    private VehiclePositionStore positionStore;
+    private final List<GeofenceEvent> events = Collections.synchronizedList(new ArrayList<>());
+    private GeofenceService service;
+
+    @BeforeEach
+    void setUp() {
+        geofenceRepository = mock(GeofenceRepository.class);
+        referenceCache = mock(ReferenceDataCache.class);
+        positionStore = new VehiclePositionStore(null, 0.05);
+        for (long vehicleId = 1; vehicleId <= 4; vehicleId++) {
+            positionStore.registerVehicle(vehicleId, COMPANY_ID);
+        }
+        positionStore.registerVehicle(5L, OTHER_COMPANY_ID);
+
+        when(geofenceRepository.findAllAreas()).thenReturn(List.of(
+                new Object[] {10L, COMPANY_ID, GeometryUtils.createPolygon(DEPOT)},
+                new Object[] {11L, COMPANY_ID, GeometryUtils.createPolygon(SITE)},
+                new Object[] {20L, OTHER_COMPANY_ID, GeometryUtils.createPolygon(SITE)}));
+        service = newService(1000);
+        service.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void pointIsMatchedAgainstOwnCompanyGeofences() {
+        service.onTelemetry(List.of(
+                point(1, 0, 55.75, 37.60),
+                point(2, 0, 55.72, 37.52),
+                point(3, 0, 55.90, 37.60),
+                // Вершина многоугольника считается входящей в него
+                point(4, 0, 55.70, 37.50),
+                point(5, 0, 55.75, 37.60)));
+
+        assertEquals(Set.of(10L, 11L), service.getVehicleGeofences(1L));
+        assertEquals(Set.of(10L), service.getVehicleGeofences(2L));
+        assertEquals(Set.of(), service.getVehicleGeofences(3L));
+        assertEquals(Set.of(10L), service.getVehicleGeofences(4L));
+        assertEquals(Set.of(20L), service.getVehicleGeofences(5L));
+        // Первая запись каждого ТС только задает исходное состояние
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void unknownVehicleIsIgnored() {
+        service.onTelemetry(List.of(point(99, 0, 55.75, 37.60), point(99, 1, 55.90, 37.60)));
+
+        assertEquals(Set.of(), service.getVehicleGeofences(99L));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void transitionsPublishEnterAndExit() {
+        service.onTelemetry(List.of(
+                point(1, 0, 55.90, 37.60),
+                point(1, 1, 55.72, 37.52),
+                point(1, 2, 55.75, 37.60),
+                point(1, 3, 55.75, 37.60),
+                point(1, 4, 55.90, 37.60)));
+
+        assertEquals(4, events.size());
+        assertEvent(events.get(0), 10, true, 1);
+        assertEvent(events.get(1), 11, true, 2);
+        // Выход из обеих геозон одной записью
+        assertEquals(Set.of(10L, 11L), Set.of(events.get(2).getGeofenceId(), events.get(3).getGeofenceId()));
+        assertFalse(events.get(2).isEntered());
+        assertFalse(events.get(3).isEntered());
+        assertEquals(start.plusSeconds(4), events.get(3).getTimestamp());
+    }
+
+    @Test
+    void olderSampleDoesNotChangeState() {
+        service.onTelemetry(List.of(point(1, 0, 55.90, 37.60), point(1, 5, 55.72, 37.52)));
+        // Запоздавший пакет с записью вне депо, снятой раньше уже проверенной
+        service.onTelemetry(List.of(point(1, 3, 55.90, 37.60)));
+        service.onTelemetry(List.of(point(1, 6, 55.72, 37.52)));
+
+        assertEquals(Set.of(10L), service.getVehicleGeofences(1L));
+        assertEquals(1, events.size());
+        assertEvent(events.get(0), 10, true, 5);
+    }
+
+    @Test
+    void parallelBatchKeepsVehicleOrder() {
+        service.stop();
+        service = newService(2);
+        service.load();
+
+        List<TelemetryPoint> points = new ArrayList<>();
+        for (int second = 0; second < 40; second++) {
+            for (long vehicleId = 1; vehicleId <= 4; vehicleId++) {
+                // Каждое ТС поочередно въезжает в депо и выезжает из него
+                double latitude = second % 2 == 0 ? 55.90 : 55.72;
+                points.add(point(vehicleId, second, latitude, 37.52));
+            }
+        }
+        service.onTelemetry(points);
+
+        assertEquals(4 * 39, events.size());
+        for (long vehicleId = 1; vehicleId <= 4; vehicleId++) {
+            List<GeofenceEvent> vehicleEvents = new ArrayList<>();
+            for (GeofenceEvent event : events) {
+                if (event.getVehicleId() == vehicleId) {
+                    vehicleEvents.add(event);
+                }
+            }
+            assertEquals(39, vehicleEvents.size());
+            for (int i = 0; i < vehicleEvents.size(); i++) {
+                assertEvent(vehicleEvents.get(i), 10, i % 2 == 0, i + 1);
+            }
+        }
+    }
+
+    @Test
+    void createdGeofenceIsIndexedAfterCommit() {
+        Company company = new Company();
+        company.setId(COMPANY_ID);
+        when(referenceCache.getCompany(COMPANY_ID)).thenReturn(company);
+        when(geofenceRepository.save(any(Geofence.class))).thenAnswer(invocation -> {
+            Geofence geofence = invocation.getArgument(0);
+            geofence.setId(12L);
+            return geofence;
+        });
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.createGeofence(request(List.of(
+                List.of(56.00, 37.50), List.of(56.00, 37.70), List.of(56.10, 37.70), List.of(56.10, 37.50))));
+
+        service.onTelemetry(List.of(point(1, 0, 56.05, 37.60)));
+        assertEquals(Set.of(), service.getVehicleGeofences(1L));
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        service.onTelemetry(List.of(point(1, 1, 56.05, 37.60)));
+        assertEquals(Set.of(12L), service.getVehicleGeofences(1L));
+        assertEquals(1, events.size());
+        assertEvent(events.get(0), 12, true, 1);
+    }
+
+    @Test
+    void rolledBackDeleteKeepsGeofence() {
+        service.onTelemetry(List.of(point(2, 0, 55.72, 37.52)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.deleteGeofence(10L);
+        // Откат: afterCommit не вызывается
+        TransactionSynchronizationManager.clearSynchronization();
+
+        service.onTelemetry(List.of(point(2, 1, 55.72, 37.52)));
+        assertEquals(Set.of(10L), service.getVehicleGeofences(2L));
+    }
+
+    @Test
+    void deletedGeofenceProducesNoExit() {
+        service.onTelemetry(List.of(point(2, 0, 55.72, 37.52)));
+
+        service.deleteGeofence(10L);
+
+        assertEquals(Set.of(), service.getVehicleGeofences(2L));
+        service.onTelemetry(List.of(point(2, 1, 55.90, 37.60)));
+        assertTrue(events.isEmpty());
+    }
+
+    private GeofenceService newService(int parallelThreshold) {
+        return new GeofenceService(geofenceRepository, referenceCache, positionStore,
+                event -> events.add((GeofenceEvent) event),
+                new SimpleMeterRegistry(), parallelThreshold, 4);
+    }
+
+    private static GeofenceRequest request(List<List<Double>> coordinates) {
+        GeofenceRequest request = new GeofenceRequest();
+        request.setName("Склад");
+        request.setType("DEPOT");
+        request.setCompanyId(COMPANY_ID);
+        request.setCoordinates(coordinates);
+        return request;
+    }
+
+    private TelemetryPoint point(long vehicleId, int second, double latitude, double longitude) {
+        return new TelemetryPoint(vehicleId, start.plusSeconds(second), latitude, longitude,
+                40.0, 50.0, 90.0, 2000, 13.8, null);
+    }
+
+    private void assertEvent(GeofenceEvent event, long geofenceId, boolean entered, int second) {
+        assertEquals(geofenceId, event.getGeofenceId());
+        assertEquals(entered, event.isEntered());
+        assertEquals(start.plusSeconds(second), event.getTimestamp());
+    }
+}
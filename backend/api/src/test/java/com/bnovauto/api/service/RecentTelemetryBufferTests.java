@@ -0,0 +1,200 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Кольца RecentTelemetryBuffer: вытеснение старых записей при заполнении,
+ * вставка запоздавших записей, рост кольца с переносом через границу массива
+ * и словарь кодов ошибок ограниченного размера.
+ */
+class RecentTelemetryBufferTests {
+
+    private static final long VEHICLE_ID = 1;
+
+    // Минимальная емкость кольца после округления до степени двойки
+    private static final int CAPACITY = 128;
+
+    // Записи идут после создания буфера, иначе период не считается покрытым
+    private final LocalDateTime base = LocalDateTime.now().plusMinutes(1).truncatedTo(ChronoUnit.SECONDS);
+
+    @Test
+    void fullRingEvictsOldestSamples() {
+        RecentTelemetryBuffer buffer = newBuffer(6, CAPACITY, 16);
+        List<TelemetryPoint> points = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            points.add(point(i, "E" + (i % 3)));
+        }
+        buffer.onTelemetry(points);
+
+        assertEquals(CAPACITY, buffer.getSampleCount());
+        // Вытесненные записи больше не покрываются буфером
+        assertNull(buffer.getRecent(VEHICLE_ID, at(300 - CAPACITY - 1), 1000));
+
+        List<TelemetryPoint> recent = buffer.getRecent(VEHICLE_ID, at(300 - CAPACITY), 1000);
+        assertNotNull(recent);
+        assertEquals(CAPACITY, recent.size());
+        for (int i = 0; i < recent.size(); i++) {
+            int second = 299 - i;
+            assertSample(second, "E" + (second % 3), recent.get(i));
+        }
+    }
+
+    @Test
+    void fullRingDropsSampleOlderThanOldest() {
+        RecentTelemetryBuffer buffer = newBuffer(6, CAPACITY, 16);
+        List<TelemetryPoint> points = new ArrayList<>();
+        for (int i = 10; i < 10 + CAPACITY; i++) {
+            points.add(point(i, null));
+        }
+        buffer.onTelemetry(points);
+
+        buffer.onTelemetry(List.of(point(5, null)));
+
+        assertEquals(CAPACITY, buffer.getSampleCount());
+        assertNull(buffer.getRecent(VEHICLE_ID, at(5), 1000));
+        assertEquals(CAPACITY, buffer.getRecent(VEHICLE_ID, at(10), 1000).size());
+    }
+
+    @Test
+    void lateSamplesAreInsertedInOrder() {
+        RecentTelemetryBuffer buffer = newBuffer(6, CAPACITY, 16);
+        List<TelemetryPoint> points = new ArrayList<>();
+        for (int i = 0; i < 20; i += 2) {
+            points.add(point(i, null));
+        }
+        buffer.onTelemetry(points);
+        buffer.onTelemetry(List.of(point(7, "P0301"), point(1, null), point(19, null)));
+
+        List<TelemetryPoint> recent = buffer.getRecent(VEHICLE_ID, at(0), 1000);
+        assertEquals(13, recent.size());
+        for (int i = 1; i < recent.size(); i++) {
+            assertTrue(recent.get(i - 1).getTimestamp().isAfter(recent.get(i).getTimestamp()));
+        }
+        assertSample(7, "P0301", find(recent, 7));
+        assertSample(1, null, find(recent, 1));
+
+        TelemetryAccumulator accumulator = new TelemetryAccumulator();
+        assertTrue(buffer.accumulate(accumulator, VEHICLE_ID, at(1), at(7), true));
+        // Секунды 1, 2, 4, 6, 7
+        assertEquals(5, accumulator.samples);
+        assertEquals(1, accumulator.errorCount);
+        assertEquals(7.0, accumulator.speedMax, 1e-9);
+    }
+
+    @Test
+    void ringGrowsWhenWrapped() {
+        RecentTelemetryBuffer buffer = newBuffer(1, 4096, 16);
+        List<TelemetryPoint> points = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            points.add(point(i, null));
+        }
+        buffer.onTelemetry(points);
+
+        // Запись через час вытесняет первые 20 записей из окна, начало кольца сдвигается
+        buffer.onTelemetry(List.of(point(3620, "C3620")));
+
+        // Запоздавшие записи внутри окна заполняют кольцо через границу массива, и оно растет
+        points.clear();
+        for (int i = 40; i < 90; i++) {
+            points.add(point(i, i % 10 == 0 ? "C" + i : null));
+        }
+        buffer.onTelemetry(points);
+
+        assertEquals(71, buffer.getSampleCount());
+        assertNull(buffer.getRecent(VEHICLE_ID, at(19), 1000));
+        List<TelemetryPoint> recent = buffer.getRecent(VEHICLE_ID, at(20), 1000);
+        assertEquals(71, recent.size());
+        assertSample(3620, "C3620", recent.get(0));
+        for (int i = 1; i < recent.size(); i++) {
+            int second = 90 - i;
+            assertSample(second, second >= 40 && second % 10 == 0 ? "C" + second : null, recent.get(i));
+        }
+    }
+
+    @Test
+    void errorCodesBeyondDictionaryAreStoredRaw() {
+        RecentTelemetryBuffer buffer = newBuffer(6, CAPACITY, 2);
+        List<TelemetryPoint> points = new ArrayList<>();
+        for (int i = 0; i < 10; i += 2) {
+            points.add(point(i, "CODE" + i));
+        }
+        buffer.onTelemetry(points);
+        // Запоздавшая запись сдвигает хвост вместе с сохраненными строками
+        buffer.onTelemetry(List.of(point(3, "LATE"), point(4, "CODE4")));
+
+        List<TelemetryPoint> recent = buffer.getRecent(VEHICLE_ID, at(0), 1000);
+        assertEquals(7, recent.size());
+        assertSample(8, "CODE8", recent.get(0));
+        assertSample(6, "CODE6", recent.get(1));
+        assertSample(4, "CODE4", recent.get(2));
+        assertSample(4, "CODE4", recent.get(3));
+        assertSample(3, "LATE", recent.get(4));
+        assertSample(2, "CODE2", recent.get(5));
+        assertSample(0, "CODE0", recent.get(6));
+
+        TelemetryAccumulator accumulator = new TelemetryAccumulator();
+        assertTrue(buffer.accumulate(accumulator, VEHICLE_ID, at(0), null, true));
+        assertEquals(7, accumulator.errorCount);
+    }
+
+    @Test
+    void periodBeforeStartIsNotCovered() {
+        RecentTelemetryBuffer buffer = newBuffer(6, CAPACITY, 16);
+        TelemetryAccumulator accumulator = new TelemetryAccumulator();
+        assertFalse(buffer.accumulate(accumulator, VEHICLE_ID, base.minusHours(1), base, true));
+        assertNull(buffer.getRecent(VEHICLE_ID, base.minusHours(1), 10));
+        assertEquals(0, buffer.getRecent(VEHICLE_ID, base, 10).size());
+    }
+
+    private static RecentTelemetryBuffer newBuffer(int windowHours, int maxSamples, int maxErrorCodes) {
+        return new RecentTelemetryBuffer(windowHours, maxSamples, maxErrorCodes, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Запись на секунде second: скорость и обороты кодируют секунду для проверки переноса полей
+     */
+    private TelemetryPoint point(int second, String errorCode) {
+        return new TelemetryPoint(VEHICLE_ID, at(second), 55 + second / 1e4, 37 + second / 1e4,
+                (double) (second % 200), second % 2 == 0 ? 50.0 : null, 90.0, second, 13.5, errorCode);
+    }
+
+    private LocalDateTime at(int second) {
+        return base.plusSeconds(second);
+    }
+
+    private TelemetryPoint find(List<TelemetryPoint> points, int second) {
+        for (TelemetryPoint point : points) {
+            if (point.getTimestamp().equals(at(second))) {
+                return point;
+            }
+        }
+        throw new AssertionError("No sample at second " + second);
+    }
+
+    private void assertSample(int second, String errorCode, TelemetryPoint point) {
+        assertEquals(at(second), point.getTimestamp());
+        assertEquals(55 + second / 1e4, point.getLatitude(), 1e-9);
+        assertEquals(37 + second / 1e4, point.getLongitude(), 1e-9);
+        assertEquals(second % 200, point.getSpeed().doubleValue(), 1e-9);
+        if (second % 2 == 0) {
+            assertEquals(50.0, point.getFuelLevel().doubleValue(), 1e-9);
+        } else {
+            assertNull(point.getFuelLevel());
+        }
+        assertEquals(Integer.valueOf(second), point.getEngineRpm());
+        assertEquals(errorCode, point.getErrorCode());
+    }
+}
@@ -0,0 +1,113 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.request.ReportRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Завершение заданий на отчеты: каждое задание сохраняется в
+ * analytics.reports ровно один раз, в том числе при отказе очереди.
+ */
+class ReportServiceTests {
+
+    private static final String FINISH_PREFIX = "UPDATE analytics.reports SET status = ?, result";
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcTemplate analyticsJdbcTemplate;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        analyticsJdbcTemplate = mock(JdbcTemplate.class);
+
+        ResultSet created = mock(ResultSet.class);
+        when(created.getLong("id")).thenReturn(1L);
+        when(created.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+        when(jdbcTemplate.queryForObject(startsWith("INSERT"), any(RowMapper.class), any(Object[].class)))
+                .thenAnswer(invocation -> invocation.<RowMapper<?>>getArgument(1).mapRow(created, 0));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void completedJobIsSavedOnce() {
+        executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        when(analyticsJdbcTemplate.queryForList(anyString(), any(Object[].class))).thenReturn(List.of());
+
+        newService().submit(request("2026-03-01T00:00:00", "2026-03-04T00:00:00"));
+
+        verify(jdbcTemplate, timeout(5000)).update(startsWith(FINISH_PREFIX),
+                eq(ReportService.STATUS_COMPLETED), any(), any(), eq(1L));
+        verify(jdbcTemplate, times(1)).update(startsWith(FINISH_PREFIX), any(Object[].class));
+    }
+
+    @Test
+    void rejectedJobIsSavedOnce() throws Exception {
+        // Один поток без очереди: первые сутки занимают его, вторые получают отказ
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+        CountDownLatch release = new CountDownLatch(1);
+        when(analyticsJdbcTemplate.queryForList(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+
+        ReportService service = newService();
+        assertThrows(RejectedExecutionException.class,
+                () -> service.submit(request("2026-03-01T00:00:00", "2026-03-04T00:00:00")));
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        verify(jdbcTemplate, times(1)).update(startsWith(FINISH_PREFIX), any(Object[].class));
+        verify(jdbcTemplate).update(startsWith(FINISH_PREFIX),
+                eq(ReportService.STATUS_FAILED), any(), eq("Report queue is full"), eq(1L));
+    }
+
+    private ReportService newService() {
+        return new ReportService(jdbcTemplate, analyticsJdbcTemplate, executor, mock(CacheManager.class),
+                new ObjectMapper(), 2);
+    }
+
+    private static ReportRequest request(String startDate, String endDate) {
+        ReportRequest request = new ReportRequest();
+        request.setReportType(ReportType.FUEL_CONSUMPTION.name());
+        request.setCompanyId(1L);
+        request.setStartDate(startDate);
+        request.setEndDate(endDate);
+        return request;
+    }
+}
@@ -0,0 +1,221 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Кодирование и разбор двоичного кадра телеметрии: записи переживают
+ * кодирование без потерь в пределах точности формата, поврежденные кадры
+ * отклоняются IllegalArgumentException, а не исключениями буфера или массивов.
+ */
+class TelemetryFrameCodecTests {
+
+    private static final double DELTA = 1e-9;
+
+    // Заголовок без числа записей: "BTLM" и версия
+    private static final byte[] HEADER = {'B', 'T', 'L', 'M', 1};
+
+    @Test
+    void roundTripPreservesSamples() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 12, 0, 0);
+        List<TelemetryPoint> points = List.of(
+                new TelemetryPoint(7, start, 55.751244, 37.618423, 62.5, 48.3, 91.2, 2450, 13.84, null),
+                // Время и координаты идут назад, ID уменьшается: отрицательные приращения
+                new TelemetryPoint(3, start.minusSeconds(5).plusNanos(250_000_000), -33.868820, 151.209296,
+                        null, null, null, null, null, "P0301"),
+                new TelemetryPoint(3, start.plusMinutes(1), 0, -180, 0.0, 0.0, -40.0, 0, 0.0, "ОШИБКА"));
+
+        TelemetryFrameBatch batch = new TelemetryFrameBatch(0);
+        int count = TelemetryFrameCodec.decode(ByteBuffer.wrap(TelemetryFrameCodec.encode(points)), batch);
+
+        assertEquals(points.size(), count);
+        assertEquals(points.size(), batch.size());
+        for (int i = 0; i < points.size(); i++) {
+            TelemetryPoint expected = points.get(i);
+            TelemetryPoint actual = batch.toPoint(i);
+            assertEquals(expected.getVehicleId(), actual.getVehicleId());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getLatitude(), actual.getLatitude(), DELTA);
+            assertEquals(expected.getLongitude(), actual.getLongitude(), DELTA);
+            assertNullableEquals(expected.getSpeed(), actual.getSpeed());
+            assertNullableEquals(expected.getFuelLevel(), actual.getFuelLevel());
+            assertNullableEquals(expected.getEngineTemperature(), actual.getEngineTemperature());
+            assertEquals(expected.getEngineRpm(), actual.getEngineRpm());
+            assertNullableEquals(expected.getBatteryVoltage(), actual.getBatteryVoltage());
+            assertEquals(expected.getErrorCode(), actual.getErrorCode());
+        }
+        assertFalse(batch.has(1, TelemetryFrameBatch.HAS_SPEED));
+        assertTrue(batch.has(2, TelemetryFrameBatch.HAS_SPEED));
+    }
+
+    @Test
+    void emptyFrameRoundTrips() {
+        TelemetryFrameBatch batch = new TelemetryFrameBatch(0);
+        assertEquals(0, TelemetryFrameCodec.decode(ByteBuffer.wrap(TelemetryFrameCodec.encode(List.of())), batch));
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    void batchIsReusedAcrossFrames() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 12, 0, 0);
+        TelemetryFrameBatch batch = new TelemetryFrameBatch(0);
+        TelemetryFrameCodec.decode(ByteBuffer.wrap(TelemetryFrameCodec.encode(List.of(
+                new TelemetryPoint(1, start, 1, 1, 10.0, null, null, null, null, "E1"),
+                new TelemetryPoint(2, start, 2, 2, 20.0, null, null, null, null, "E2")))), batch);
+
+        int count = TelemetryFrameCodec.decode(ByteBuffer.wrap(TelemetryFrameCodec.encode(List.of(
+                new TelemetryPoint(9, start, 3, 3, null, null, null, null, null, null)))), batch);
+
+        assertEquals(1, count);
+        assertEquals(1, batch.size());
+        assertEquals(9, batch.getVehicleId(0));
+        assertNull(batch.toPoint(0).getSpeed());
+        assertNull(batch.getErrorCode(0));
+    }
+
+    @Test
+    void rejectsWrongMagic() {
+        byte[] frame = TelemetryFrameCodec.encode(List.of());
+        frame[0] = 'X';
+        assertMalformed(frame);
+    }
+
+    @Test
+    void rejectsUnsupportedVersion() {
+        byte[] frame = TelemetryFrameCodec.encode(List.of());
+        frame[4] = 2;
+        assertMalformed(frame);
+    }
+
+    @Test
+    void rejectsTruncatedFrame() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 12, 0, 0);
+        byte[] frame = TelemetryFrameCodec.encode(List.of(
+                new TelemetryPoint(1, start, 55.75, 37.61, 60.0, 50.0, 90.0, 2500, 13.8, "P0301"),
+                new TelemetryPoint(2, start, 55.76, 37.62, 61.0, 51.0, 91.0, 2600, 13.9, "P0302")));
+        for (int length = 0; length < frame.length; length++) {
+            assertMalformed(Arrays.copyOf(frame, length));
+        }
+    }
+
+    @Test
+    void rejectsNegativeSampleCount() {
+        // Varint из десяти байт с установленным старшим битом: -1
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        frame.put(HEADER);
+        putNegativeVarint(frame);
+        frame.putLong(0);
+        assertMalformed(Arrays.copyOf(frame.array(), frame.position()));
+    }
+
+    @Test
+    void rejectsTooManySamples() {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        frame.put(HEADER);
+        putVarint(frame, TelemetryFrameCodec.MAX_SAMPLES + 1);
+        frame.putLong(0);
+        assertMalformed(Arrays.copyOf(frame.array(), frame.position()));
+    }
+
+    @Test
+    void rejectsNegativeErrorCodeLength() {
+        ByteBuffer frame = sampleHeader(TelemetryFrameBatch.HAS_ERROR_CODE);
+        putNegativeVarint(frame);
+        frame.put(new byte[16]);
+        assertMalformed(Arrays.copyOf(frame.array(), frame.position()));
+    }
+
+    @Test
+    void rejectsErrorCodeLongerThanFrame() {
+        ByteBuffer frame = sampleHeader(TelemetryFrameBatch.HAS_ERROR_CODE);
+        putVarint(frame, 20);
+        frame.put(new byte[4]);
+        assertMalformed(Arrays.copyOf(frame.array(), frame.position()));
+    }
+
+    @Test
+    void rejectsUnknownFields() {
+        ByteBuffer frame = sampleHeader(1 << 6);
+        assertMalformed(Arrays.copyOf(frame.array(), frame.position()));
+    }
+
+    @Test
+    void rejectsCoordinatesOutOfRange() {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        frame.put(HEADER);
+        putVarint(frame, 1);
+        frame.putLong(0);
+        putVarint(frame, 2);
+        putVarint(frame, 0);
+        putVarint(frame, 91_000_000L * 2);
+        putVarint(frame, 0);
+        frame.put((byte) 0);
+        assertMalformed(Arrays.copyOf(frame.array(), frame.position()));
+    }
+
+    @Test
+    void rejectsOverlongVarint() {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        frame.put(HEADER);
+        for (int i = 0; i < 11; i++) {
+            frame.put((byte) 0x80);
+        }
+        frame.put((byte) 0);
+        frame.putLong(0);
+        assertMalformed(Arrays.copyOf(frame.array(), frame.position()));
+    }
+
+    /**
+     * Кадр из одной записи с нулевыми приращениями и заданной маской, без показателей
+     */
+    private static ByteBuffer sampleHeader(int mask) {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        frame.put(HEADER);
+        putVarint(frame, 1);
+        frame.putLong(0);
+        for (int i = 0; i < 4; i++) {
+            putVarint(frame, 0);
+        }
+        frame.put((byte) mask);
+        return frame;
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static void putNegativeVarint(ByteBuffer out) {
+        for (int i = 0; i < 9; i++) {
+            out.put((byte) 0xFF);
+        }
+        out.put((byte) 0x01);
+    }
+
+    private static void assertMalformed(byte[] frame) {
+        assertThrows(IllegalArgumentException.class,
+                () -> TelemetryFrameCodec.decode(ByteBuffer.wrap(frame), new TelemetryFrameBatch(0)));
+    }
+
+    private static void assertNullableEquals(Double expected, Double actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(expected, actual, DELTA);
+        }
+    }
+}
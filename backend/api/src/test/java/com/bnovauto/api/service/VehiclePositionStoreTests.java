@@ -0,0 +1,114 @@
+package com.bnovauto.api.service;
+
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Последние положения и сетка VehiclePositionStore: запоздавшие записи не
+ * вытесняют новые, выборка по области совпадает с положениями, записи
+ * удаленных ТС не возвращают их в хранилище.
+ */
+class VehiclePositionStoreTests {
+
+    private static final long COMPANY_ID = 1;
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 3, 1, 12, 0, 0);
+
+    @Test
+    void olderSampleDoesNotMoveVehicle() {
+        VehiclePositionStore store = newStore(1);
+        store.update(point(1, 10, 55.75, 37.61));
+        store.update(point(1, 5, 59.93, 30.31));
+
+        assertEquals(start.plusSeconds(10), store.getLatest(1L).orElseThrow().getTimestamp());
+        assertEquals(List.of(1L), vehiclesAt(store, 55.75, 37.61));
+        assertEquals(List.of(), vehiclesAt(store, 59.93, 30.31));
+    }
+
+    @Test
+    void unknownVehicleIsIgnored() {
+        VehiclePositionStore store = newStore(1);
+        store.update(point(7, 0, 55.75, 37.61));
+
+        assertFalse(store.getLatest(7L).isPresent());
+        assertEquals(List.of(), vehiclesAt(store, 55.75, 37.61));
+    }
+
+    @Test
+    void lateSampleAfterRemovalIsIgnored() {
+        VehiclePositionStore store = newStore(1);
+        store.update(point(1, 0, 55.75, 37.61));
+        store.removeVehicle(1L);
+        store.update(point(1, 1, 55.75, 37.61));
+
+        assertFalse(store.isKnownVehicle(1L));
+        assertFalse(store.getLatest(1L).isPresent());
+        assertTrue(store.getFleetSnapshot().isEmpty());
+        assertEquals(List.of(), vehiclesAt(store, 55.75, 37.61));
+    }
+
+    @Test
+    void concurrentUpdatesKeepGridConsistent() throws Exception {
+        VehiclePositionStore store = newStore(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    // Потоки чередуют записи из двух далеких ячеек
+                    for (int second = offset; second < 4000; second += 4) {
+                        double latitude = second % 8 < 4 ? 55.75 : 59.93;
+                        double longitude = second % 8 < 4 ? 37.61 : 30.31;
+                        store.update(point(1, second, latitude, longitude));
+                    }
+                    return null;
+                }));
+            }
+            ready.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        TelemetryPoint latest = store.getLatest(1L).orElseThrow();
+        assertEquals(start.plusSeconds(3999), latest.getTimestamp());
+        assertEquals(List.of(1L), vehiclesAt(store, latest.getLatitude(), latest.getLongitude()));
+    }
+
+    private static VehiclePositionStore newStore(long vehicleCount) {
+        VehiclePositionStore store = new VehiclePositionStore(null, 0.05);
+        for (long vehicleId = 1; vehicleId <= vehicleCount; vehicleId++) {
+            store.registerVehicle(vehicleId, COMPANY_ID);
+        }
+        return store;
+    }
+
+    // Прямоугольник из одной точки занимает одну ячейку, поэтому выборка идет по сетке
+    private static List<Long> vehiclesAt(VehiclePositionStore store, double latitude, double longitude) {
+        List<Long> vehicles = new ArrayList<>();
+        store.forEachInBox(latitude, longitude, latitude, longitude, null, point -> vehicles.add(point.getVehicleId()));
+        return vehicles;
+    }
+
+    private TelemetryPoint point(long vehicleId, int second, double latitude, double longitude) {
+        return new TelemetryPoint(vehicleId, start.plusSeconds(second), latitude, longitude,
+                40.0, 50.0, 90.0, 2000, 13.8, null);
+    }
+}
@@ -0,0 +1,41 @@
+package com.bnovauto.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Точка входа benchmarks.jar. Принимает обычные аргументы JMH, но по умолчанию
+ * сохраняет результаты в JSON (results/jmh-&lt;время&gt;.json), чтобы прогоны
+ * можно было сравнивать между собой. Бенчмарки с БД запускаются, только если
+ * задан -Dbnovauto.bench.jdbcUrl.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.result("results/jmh-" + timestamp + ".json");
+        }
+        if (commandLine.getIncludes().isEmpty() && System.getProperty(StatisticsBenchmark.JDBC_URL_PROPERTY) == null) {
+            options.include(".*").exclude(StatisticsBenchmark.class.getSimpleName());
+        }
+
+        new java.io.File("results").mkdirs();
+        new Runner(options.build()).run();
+    }
+}
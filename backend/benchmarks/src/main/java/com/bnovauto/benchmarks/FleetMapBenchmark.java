@@ -0,0 +1,70 @@
+package com.bnovauto.benchmarks;
+
+import com.bnovauto.api.payload.response.FleetMapResponse;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.service.FleetMapService;
+import com.bnovauto.api.service.VehiclePositionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы карты парка (FleetMapService) по последним положениям: видимая
+ * область города на крупном масштабе, вся область на мелком масштабе с
+ * кластеризацией и круг вокруг точки
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FleetMapBenchmark {
+
+    @Param({"50000"})
+    private int vehicleCount;
+
+    private FleetMapService mapService;
+
+    @Setup
+    public void setUp() {
+        VehiclePositionStore store = new VehiclePositionStore(null, 0.05);
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        // Парк распределен по области примерно 200 x 200 км
+        for (long id = 1; id <= vehicleCount; id++) {
+            store.registerVehicle(id, id % 10);
+            store.update(new TelemetryPoint(id, now, 54.8 + random.nextDouble() * 1.8,
+                    36.0 + random.nextDouble() * 3.2, 40.0, 50.0, 90.0, 2000, 13.8, null));
+        }
+        mapService = new FleetMapService(store, new SimpleMeterRegistry(), 12, 2000);
+    }
+
+    @Benchmark
+    public FleetMapResponse cityViewport() {
+        return mapService.findInBox(55.70, 37.55, 55.78, 37.70, 14, null);
+    }
+
+    @Benchmark
+    public FleetMapResponse regionClustered() {
+        return mapService.findInBox(54.5, 35.5, 57.0, 39.5, 7, null);
+    }
+
+    @Benchmark
+    public FleetMapResponse radius() {
+        return mapService.findInRadius(55.75, 37.61, 2000, 15, null);
+    }
+}
@@ -0,0 +1,63 @@
+package com.bnovauto.benchmarks;
+
+import com.bnovauto.api.service.GeometryUtils;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение геометрий: точка телеметрии (TelemetryService.recordTelemetry) и
+ * линия маршрута с промежуточными точками (RouteService.createRouteBetweenPoints)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Param({"0", "10", "100", "1000"})
+    private int waypointCount;
+
+    private List<Double> waypoints;
+    private double latitude;
+    private double longitude;
+
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        waypoints = new ArrayList<>(waypointCount * 2);
+        for (int i = 0; i < waypointCount; i++) {
+            waypoints.add(55.5 + random.nextDouble());
+            waypoints.add(37.3 + random.nextDouble());
+        }
+        latitude = 55.75;
+        longitude = 37.61;
+    }
+
+    @Benchmark
+    public Point createPoint() {
+        return GeometryUtils.createPoint(latitude, longitude);
+    }
+
+    @Benchmark
+    public LineString createPath() {
+        return GeometryUtils.createPath(55.70, 37.50, 55.80, 37.70, waypoints);
+    }
+}
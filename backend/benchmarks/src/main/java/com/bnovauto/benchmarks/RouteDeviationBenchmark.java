@@ -0,0 +1,75 @@
+package com.bnovauto.benchmarks;
+
+import com.bnovauto.api.service.GeometryUtils;
+import com.bnovauto.api.service.RouteGeometryIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка отклонения точки от маршрута по RouteGeometryIndex: точки на
+ * маршруте, рядом с границей порога и далеко от маршрута
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteDeviationBenchmark {
+
+    private static final long ROUTE_ID = 1L;
+    private static final int POINTS = 1024;
+
+    @Param({"100", "1000"})
+    private int vertexCount;
+
+    private RouteGeometryIndex index;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Double> waypoints = new ArrayList<>(vertexCount * 2);
+        double lat = 55.70;
+        double lon = 37.50;
+        for (int i = 0; i < vertexCount; i++) {
+            lat += (random.nextDouble() - 0.3) * 0.002;
+            lon += random.nextDouble() * 0.002;
+            waypoints.add(lat);
+            waypoints.add(lon);
+        }
+        index = new RouteGeometryIndex(null, 100);
+        index.refresh(ROUTE_ID, GeometryUtils.createPath(55.70, 37.50, lat, lon, waypoints));
+
+        // Смещение от вершин маршрута от 0 до ~300 м
+        latitudes = new double[POINTS];
+        longitudes = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            int vertex = random.nextInt(vertexCount);
+            latitudes[i] = waypoints.get(2 * vertex) + (random.nextDouble() - 0.5) * 0.005;
+            longitudes[i] = waypoints.get(2 * vertex + 1) + (random.nextDouble() - 0.5) * 0.005;
+        }
+    }
+
+    @Benchmark
+    public Boolean isOnRoute() {
+        int i = cursor++ & (POINTS - 1);
+        return index.isOnRoute(ROUTE_ID, latitudes[i], longitudes[i]);
+    }
+}
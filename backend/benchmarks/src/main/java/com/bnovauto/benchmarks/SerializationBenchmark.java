@@ -0,0 +1,104 @@
+package com.bnovauto.benchmarks;
+
+import com.bnovauto.api.config.GeometryJsonModule;
+import com.bnovauto.api.model.Company;
+import com.bnovauto.api.model.Telemetry;
+import com.bnovauto.api.model.Vehicle;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.payload.response.VehicleResponse;
+import com.bnovauto.api.service.GeometryUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ответов API в JSON: сущности Vehicle и Telemetry с вложенными
+ * связями против VehicleResponse и TelemetryPoint со ссылками по ID.
+ * Point сериализуется через GeometryJsonModule, как в приложении.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Vehicle> vehicles;
+    private List<VehicleResponse> vehicleResponses;
+    private List<Telemetry> telemetry;
+    private List<TelemetryPoint> points;
+
+    @Setup
+    public void setUp() {
+        // Настройки как у ObjectMapper из Spring Boot
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .registerModule(new GeometryJsonModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime now = LocalDateTime.now();
+        Company company = new Company(1L, "BnovAuto", "Moscow", "info@bnovauto.com", now, now);
+
+        vehicles = new ArrayList<>(size);
+        vehicleResponses = new ArrayList<>(size);
+        telemetry = new ArrayList<>(size);
+        points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Vehicle vehicle = new Vehicle((long) i, "Vehicle " + i, "Model", "A" + i + "BC77", 2020,
+                    "ACTIVE", company, now, now);
+            vehicles.add(vehicle);
+            vehicleResponses.add(VehicleResponse.from(vehicle));
+
+            double speed = random.nextDouble(0, 120);
+            double fuelLevel = random.nextDouble(0, 100);
+            LocalDateTime timestamp = now.minusSeconds(i);
+            telemetry.add(new Telemetry((long) i, vehicle, timestamp, GeometryUtils.createPoint(55.75, 37.61), speed, fuelLevel,
+                    90.0, 2500, 13.8, null, null, null, null));
+            points.add(new TelemetryPoint(i, timestamp, 55.75, 37.61, speed, fuelLevel,
+                    90.0, 2500, 13.8, null));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeVehicles() throws Exception {
+        return objectMapper.writeValueAsBytes(vehicles);
+    }
+
+    @Benchmark
+    public byte[] serializeVehicleResponses() throws Exception {
+        return objectMapper.writeValueAsBytes(vehicleResponses);
+    }
+
+    @Benchmark
+    public byte[] serializeTelemetry() throws Exception {
+        return objectMapper.writeValueAsBytes(telemetry);
+    }
+
+    @Benchmark
+    public byte[] serializeTelemetryPoints() throws Exception {
+        return objectMapper.writeValueAsBytes(points);
+    }
+}
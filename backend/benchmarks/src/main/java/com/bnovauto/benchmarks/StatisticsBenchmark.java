@@ -0,0 +1,102 @@
+package com.bnovauto.benchmarks;
+
+import com.bnovauto.api.BnovautoApiApplication;
+import com.bnovauto.api.payload.response.VehicleStatisticsResponse;
+import com.bnovauto.api.service.VehicleService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика по транспортному средству через VehicleService.getVehicleStatistics
+ * на реальной БД. Контекст приложения поднимается целиком без веб-сервера,
+ * поэтому измеряется тот же путь, что у GET /api/vehicles/{id}/statistics:
+ * часовые строки telemetry_rollups и дочитывание неполных часов из telemetry.
+ * Запускается только с -Dbnovauto.bench.jdbcUrl, -Dbnovauto.bench.username,
+ * -Dbnovauto.bench.password и -Dbnovauto.bench.vehicleId. Схема БД должна
+ * соответствовать приложению (db/*.sql).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    static final String JDBC_URL_PROPERTY = "bnovauto.bench.jdbcUrl";
+
+    // all - вся история (только часовые строки), day - сутки с неполными
+    // часами на краях, hour - период короче часа (только записи telemetry)
+    @Param({"all", "day", "hour"})
+    private String period;
+
+    private ConfigurableApplicationContext context;
+    private VehicleService vehicleService;
+    private Long vehicleId;
+    private String startDate;
+    private String endDate;
+
+    @Setup
+    public void setUp() {
+        String url = System.getProperty(JDBC_URL_PROPERTY);
+        if (url == null) {
+            throw new IllegalStateException("Set -D" + JDBC_URL_PROPERTY + " to run database benchmarks");
+        }
+        context = new SpringApplicationBuilder(BnovautoApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + System.getProperty("bnovauto.bench.username", "bnovauto"),
+                        "spring.datasource.password=" + System.getProperty("bnovauto.bench.password", ""),
+                        "logging.level.root=WARN")
+                .run();
+        vehicleService = context.getBean(VehicleService.class);
+        vehicleId = Long.getLong("bnovauto.bench.vehicleId", 1L);
+
+        // Границы не совпадают с началом часа, чтобы края дочитывались из telemetry
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(17);
+        switch (period) {
+            case "all" -> {
+                startDate = null;
+                endDate = null;
+            }
+            case "day" -> {
+                startDate = end.minusDays(1).minusMinutes(29).format(DateTimeFormatter.ISO_DATE_TIME);
+                endDate = end.format(DateTimeFormatter.ISO_DATE_TIME);
+            }
+            case "hour" -> {
+                startDate = end.minusMinutes(40).format(DateTimeFormatter.ISO_DATE_TIME);
+                endDate = end.format(DateTimeFormatter.ISO_DATE_TIME);
+            }
+            default -> throw new IllegalArgumentException("Unknown period: " + period);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public VehicleStatisticsResponse getVehicleStatistics() {
+        return vehicleService.getVehicleStatistics(vehicleId, startDate, endDate);
+    }
+}
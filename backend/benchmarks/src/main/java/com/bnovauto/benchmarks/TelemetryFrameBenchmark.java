@@ -0,0 +1,135 @@
+package com.bnovauto.benchmarks;
+
+import com.bnovauto.api.payload.request.TelemetryRequest;
+import com.bnovauto.api.payload.response.TelemetryPoint;
+import com.bnovauto.api.service.TelemetryFrameBatch;
+import com.bnovauto.api.service.TelemetryFrameCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор пакетной загрузки телеметрии: JSON-массив TelemetryRequest через
+ * Jackson против двоичного кадра TelemetryFrameCodec. Время указано на пакет,
+ * стоимость одной записи - время, деленное на size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TelemetryFrameBenchmark {
+
+    private static final TypeReference<List<TelemetryRequest>> REQUEST_LIST = new TypeReference<>() {
+    };
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private byte[] json;
+    private byte[] frame;
+    private TelemetryFrameBatch batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Настройки как у ObjectMapper из Spring Boot
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<TelemetryPoint> points = new ArrayList<>(size);
+        List<TelemetryRequest> requests = new ArrayList<>(size);
+        double latitude = 55.75;
+        double longitude = 37.61;
+        for (int i = 0; i < size; i++) {
+            // Трекер отправляет пакет по нескольким машинам, запись раз в секунду
+            long vehicleId = 1 + i % 10;
+            LocalDateTime timestamp = start.plusSeconds(i / 10);
+            latitude += random.nextDouble(-0.0005, 0.0005);
+            longitude += random.nextDouble(-0.0005, 0.0005);
+            double speed = Math.round(random.nextDouble(0, 120) * 10) / 10.0;
+            double fuelLevel = Math.round(random.nextDouble(0, 100) * 10) / 10.0;
+            String errorCode = i % 100 == 0 ? "P0301" : null;
+            points.add(new TelemetryPoint(vehicleId, timestamp, latitude, longitude, speed, fuelLevel,
+                    90.5, 2500, 13.84, errorCode));
+
+            TelemetryRequest request = new TelemetryRequest();
+            request.setVehicleId(vehicleId);
+            request.setTimestamp(timestamp);
+            request.setLatitude(latitude);
+            request.setLongitude(longitude);
+            request.setSpeed(speed);
+            request.setFuelLevel(fuelLevel);
+            request.setEngineTemperature(90.5);
+            request.setEngineRpm(2500);
+            request.setBatteryVoltage(13.84);
+            request.setErrorCode(errorCode);
+            requests.add(request);
+        }
+
+        json = objectMapper.writeValueAsBytes(requests);
+        frame = TelemetryFrameCodec.encode(points);
+        batch = new TelemetryFrameBatch(size);
+    }
+
+    @Benchmark
+    public List<TelemetryRequest> parseJson() throws IOException {
+        return objectMapper.readValue(json, REQUEST_LIST);
+    }
+
+    // Разбор в переиспользуемый пакет без создания объектов на запись
+    @Benchmark
+    public int decodeFrame() {
+        return TelemetryFrameCodec.decode(ByteBuffer.wrap(frame), batch);
+    }
+
+    // Полный путь до очереди приема: JSON -> TelemetryRequest -> TelemetryPoint
+    @Benchmark
+    public List<TelemetryPoint> parseJsonToPoints() throws IOException {
+        List<TelemetryRequest> requests = objectMapper.readValue(json, REQUEST_LIST);
+        List<TelemetryPoint> points = new ArrayList<>(requests.size());
+        for (TelemetryRequest request : requests) {
+            points.add(new TelemetryPoint(request.getVehicleId(), request.getTimestamp(),
+                    request.getLatitude(), request.getLongitude(), request.getSpeed(), request.getFuelLevel(),
+                    request.getEngineTemperature(), request.getEngineRpm(), request.getBatteryVoltage(),
+                    request.getErrorCode()));
+        }
+        return points;
+    }
+
+    // Полный путь до очереди приема: кадр -> TelemetryFrameBatch -> TelemetryPoint
+    @Benchmark
+    public List<TelemetryPoint> decodeFrameToPoints() {
+        int count = TelemetryFrameCodec.decode(ByteBuffer.wrap(frame), batch);
+        List<TelemetryPoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(batch.toPoint(i));
+        }
+        return points;
+    }
+}
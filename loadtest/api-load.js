@@ -0,0 +1,104 @@
+// Нагрузочный тест API для сравнения режимов потоков (платформенные и
+// виртуальные). Запуск и порядок сравнения описаны в README.md рядом.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api/api';
+const USERNAME = __ENV.USERNAME || 'director';
+const PASSWORD = __ENV.PASSWORD || 'director';
+const VEHICLE_IDS = (__ENV.VEHICLE_IDS || '1,2,3,4,5').split(',').map(Number);
+const RATE = Number(__ENV.RATE || 500);
+const DURATION = __ENV.DURATION || '3m';
+const MODE = __ENV.MODE || 'unknown';
+
+export const options = {
+  discardResponseBodies: true,
+  scenarios: {
+    // Открытая модель нагрузки: частота запросов не зависит от задержки
+    // ответов, поэтому насыщение сервера видно по росту p99 и ошибок
+    api: {
+      executor: 'constant-arrival-rate',
+      rate: RATE,
+      timeUnit: '1s',
+      duration: DURATION,
+      preAllocatedVUs: Math.max(50, RATE),
+      maxVUs: RATE * 4,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+};
+
+export function setup() {
+  const res = http.post(`${BASE_URL}/auth/signin`,
+    JSON.stringify({ username: USERNAME, password: PASSWORD }),
+    { headers: { 'Content-Type': 'application/json' }, responseType: 'text' });
+  check(res, { 'signin 200': (r) => r.status === 200 });
+  return { token: res.json('accessToken') };
+}
+
+function randomVehicle() {
+  return VEHICLE_IDS[Math.floor(Math.random() * VEHICLE_IDS.length)];
+}
+
+function telemetryBatch(size) {
+  const now = new Date().toISOString().slice(0, 19);
+  const batch = [];
+  for (let i = 0; i < size; i++) {
+    batch.push({
+      vehicleId: randomVehicle(),
+      timestamp: now,
+      latitude: 55.75 + Math.random() / 10,
+      longitude: 37.61 + Math.random() / 10,
+      speed: Math.random() * 90,
+      fuelLevel: Math.random() * 100,
+    });
+  }
+  return JSON.stringify(batch);
+}
+
+// Смесь запросов: чтение справочников через JPA, история и агрегаты по
+// телеметрии, пакетный прием
+export default function (data) {
+  const params = {
+    headers: { Authorization: `Bearer ${data.token}`, 'Content-Type': 'application/json' },
+  };
+  const dice = Math.random();
+  let res;
+  if (dice < 0.35) {
+    res = http.get(`${BASE_URL}/vehicles`, Object.assign({ tags: { name: 'vehicles' } }, params));
+  } else if (dice < 0.5) {
+    res = http.get(`${BASE_URL}/routes`, Object.assign({ tags: { name: 'routes' } }, params));
+  } else if (dice < 0.65) {
+    res = http.get(`${BASE_URL}/vehicles/${randomVehicle()}/telemetry?limit=100`,
+      Object.assign({ tags: { name: 'telemetry-page' } }, params));
+  } else if (dice < 0.75) {
+    res = http.get(`${BASE_URL}/vehicles/${randomVehicle()}/statistics`,
+      Object.assign({ tags: { name: 'statistics' } }, params));
+  } else {
+    res = http.post(`${BASE_URL}/telemetry/batch`, telemetryBatch(50),
+      Object.assign({ tags: { name: 'telemetry-batch' } }, params));
+  }
+  check(res, { 'status 2xx': (r) => r.status >= 200 && r.status < 300 });
+}
+
+export function handleSummary(data) {
+  const duration = data.metrics.http_req_duration.values;
+  const result = {
+    mode: MODE,
+    rate: RATE,
+    duration: DURATION,
+    throughput: data.metrics.http_reqs.values.rate,
+    failedRate: data.metrics.http_req_failed.values.rate,
+    p50: duration['p(50)'],
+    p95: duration['p(95)'],
+    p99: duration['p(99)'],
+    max: duration.max,
+  };
+  return {
+    stdout: JSON.stringify(result, null, 2) + '\n',
+    [`results-${MODE}-${RATE}.json`]: JSON.stringify(result, null, 2),
+  };
+}